@@ -0,0 +1,89 @@
+package dev.coms4156.project.teamproject.benchmark;
+
+import dev.coms4156.project.teamproject.model.DistanceKernel;
+import dev.coms4156.project.teamproject.model.Location;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the distance computations of nearby searches: {@link Location#distance(Location)} one
+ * pair at a time, and {@link DistanceKernel} over a batch of locations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceBenchmark {
+
+  @Param({"1000", "100000"})
+  private int count;
+
+  // Search radius; locations are spread over about 110 km, so most are outside of it
+  @Param({"10"})
+  private double radiusKm;
+
+  private Location query;
+  private Location[] locations;
+  private float[] latitudes;
+  private float[] longitudes;
+  private double[] distances;
+
+  /**
+   * Generates `count` random locations around Los Angeles.
+   */
+  @Setup
+  public void setUp() {
+    Random random = new Random(4156);
+    query = new Location(34.05f, -118.25f);
+    locations = new Location[count];
+    latitudes = new float[count];
+    longitudes = new float[count];
+    distances = new double[count];
+    for (int i = 0; i < count; i++) {
+      latitudes[i] = (float) (33.55 + random.nextDouble());
+      longitudes[i] = (float) (-118.75 + random.nextDouble());
+      locations[i] = new Location(latitudes[i], longitudes[i]);
+    }
+  }
+
+  /**
+   * Distance between a single pair of locations.
+   */
+  @Benchmark
+  public double locationDistanceSingle() {
+    return query.distance(locations[0]);
+  }
+
+  /**
+   * Distances to every location, one {@link Location} at a time, as the controller used to.
+   */
+  @Benchmark
+  public void locationDistance(Blackhole blackhole) {
+    for (Location location : locations) {
+      blackhole.consume(query.distance(location) <= radiusKm);
+    }
+  }
+
+  /**
+   * Distances to every location in one batch.
+   */
+  @Benchmark
+  public int distanceKernel() {
+    return DistanceKernel.distancesWithin(query.latitude, query.longitude, latitudes, longitudes,
+        count, radiusKm, distances);
+  }
+}
@@ -0,0 +1,161 @@
+package dev.coms4156.project.teamproject.benchmark;
+
+import dev.coms4156.project.teamproject.model.AccountProfile;
+import dev.coms4156.project.teamproject.model.ClientProfile;
+import dev.coms4156.project.teamproject.model.FoodListing;
+import dev.coms4156.project.teamproject.model.PooledIdGenerator;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.h2.tools.Server;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+/**
+ * Measures how many food listings per second Hibernate inserts when a transaction persists many
+ * of them, as bulk imports and batch endpoints do. `ids` picks how listing IDs are generated:
+ * `identity` maps them back to database-generated IDs (see `benchmark/identity-ids.xml`), which
+ * forces one INSERT round trip per listing, and `pooled` uses the pooled sequences the entities
+ * are mapped with, which lets the inserts go out in JDBC batches.
+ *
+ * <p>Runs against an in-memory H2 database served over TCP on the loopback interface by default,
+ * so that every statement sent is a network round trip, as with a real database server. Pass
+ * e.g. `-p url=jdbc:mysql://127.0.0.1:3306/benchmark?rewriteBatchedStatements=true -p user=root
+ * -p password=...` to run against MySQL instead; the tables are created and dropped by the
+ * benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertBenchmark {
+
+  private static final int LISTINGS_PER_TRANSACTION = 500;
+  private static final String H2_TCP_PORT = "9123";
+
+  @Param({"identity", "pooled"})
+  private String ids;
+
+  @Param({"jdbc:h2:tcp://localhost:" + H2_TCP_PORT + "/mem:insert-benchmark;DB_CLOSE_DELAY=-1"})
+  private String url;
+
+  @Param({"sa"})
+  private String user;
+
+  @Param({""})
+  private String password;
+
+  private Server h2Server;
+  private LocalContainerEntityManagerFactoryBean factoryBean;
+  private EntityManagerFactory entityManagerFactory;
+  private int clientId;
+  private int accountId;
+  private final LocalDateTime pickUpTime = LocalDateTime.of(2024, 10, 6, 11, 0);
+
+  /**
+   * Creates the schema and the client and provider account the listings are made under, after
+   * starting the H2 server if the default database is used.
+   *
+   * @throws SQLException if the H2 server cannot be started
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException {
+    if (url.startsWith("jdbc:h2:tcp://localhost:" + H2_TCP_PORT + "/")) {
+      h2Server = Server.createTcpServer("-tcpPort", H2_TCP_PORT, "-ifNotExists").start();
+    }
+    Map<String, Object> properties = new HashMap<>();
+    properties.put(AvailableSettings.HBM2DDL_AUTO, "create-drop");
+    properties.put(AvailableSettings.PHYSICAL_NAMING_STRATEGY,
+        CamelCaseToUnderscoresNamingStrategy.class.getName());
+    properties.put(AvailableSettings.STATEMENT_BATCH_SIZE, 50);
+    properties.put(AvailableSettings.ORDER_INSERTS, true);
+    properties.put(PooledIdGenerator.ALLOCATION_SIZE_SETTING, 50);
+
+    factoryBean = new LocalContainerEntityManagerFactoryBean();
+    factoryBean.setDataSource(new DriverManagerDataSource(url, user, password));
+    factoryBean.setPackagesToScan("dev.coms4156.project.teamproject.model");
+    factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+    factoryBean.setJpaPropertyMap(properties);
+    if ("identity".equals(ids)) {
+      factoryBean.setMappingResources("benchmark/identity-ids.xml");
+    }
+    factoryBean.afterPropertiesSet();
+    entityManagerFactory = factoryBean.getObject();
+
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    entityManager.getTransaction().begin();
+    ClientProfile client = new ClientProfile();
+    entityManager.persist(client);
+    AccountProfile account = new AccountProfile(client, AccountProfile.AccountType.PROVIDER,
+        "1234567890", "benchmark");
+    entityManager.persist(account);
+    entityManager.getTransaction().commit();
+    entityManager.close();
+    clientId = client.getClientId();
+    accountId = account.getAccountId();
+  }
+
+  /**
+   * Deletes the listings inserted by the iteration, so the table does not grow without bound.
+   */
+  @TearDown(Level.Iteration)
+  public void deleteListings() {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    entityManager.getTransaction().begin();
+    entityManager.createQuery("DELETE FROM FoodListing").executeUpdate();
+    entityManager.getTransaction().commit();
+    entityManager.close();
+  }
+
+  /**
+   * Drops the schema and stops the H2 server if it was started.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    factoryBean.destroy();
+    if (h2Server != null) {
+      h2Server.stop();
+    }
+  }
+
+  /**
+   * Persists a transaction's worth of listings; the score is in listings inserted per second.
+   */
+  @Benchmark
+  @OperationsPerInvocation(LISTINGS_PER_TRANSACTION)
+  public void insertListings() {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    entityManager.getTransaction().begin();
+    ClientProfile client = entityManager.getReference(ClientProfile.class, clientId);
+    AccountProfile account = entityManager.getReference(AccountProfile.class, accountId);
+    for (int i = 0; i < LISTINGS_PER_TRANSACTION; i++) {
+      entityManager.persist(new FoodListing(client, account, "snack", 1 + i % 20, pickUpTime,
+          34.052f, -118.243f));
+    }
+    entityManager.getTransaction().commit();
+    entityManager.close();
+  }
+}
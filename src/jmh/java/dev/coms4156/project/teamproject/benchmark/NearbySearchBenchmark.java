@@ -0,0 +1,195 @@
+package dev.coms4156.project.teamproject.benchmark;
+
+import dev.coms4156.project.teamproject.cache.NearbySearchCache;
+import dev.coms4156.project.teamproject.cache.ProfileCache;
+import dev.coms4156.project.teamproject.controller.FoodListingController;
+import dev.coms4156.project.teamproject.index.ListingSpatialIndex;
+import dev.coms4156.project.teamproject.model.AccountProfile;
+import dev.coms4156.project.teamproject.model.ClientProfile;
+import dev.coms4156.project.teamproject.model.FoodListing;
+import dev.coms4156.project.teamproject.model.ListingFilter;
+import dev.coms4156.project.teamproject.repository.AccountProfileRepository;
+import dev.coms4156.project.teamproject.repository.ClientProfileRepository;
+import dev.coms4156.project.teamproject.repository.FoodListingRepository;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Measures {@link FoodListingController#getNearbyListings} end to end over a synthetic client
+ * whose listings are spread uniformly over a 1 by 1 degree area around Los Angeles. The database
+ * is replaced by an in-memory fake that answers the grid cell and bounding box queries the way
+ * the real indexes would, so the numbers cover the service's own work (candidate selection,
+ * distance checks, filtering) and not database round trips.
+ *
+ * <p>`path` picks how candidates are found: `database` goes to the repository on every search,
+ * `cache` goes through the nearby search cache and `index` through the in-memory spatial index.
+ * The largest dataset needs a few gigabytes of heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class NearbySearchBenchmark {
+
+  private static final int QUERY_COUNT = 1024;
+
+  @Param({"1000", "100000", "1000000", "10000000"})
+  private int listingCount;
+
+  @Param({"5", "25"})
+  private int radiusKm;
+
+  @Param({"database", "cache", "index"})
+  private String path;
+
+  private FoodListingController controller;
+  private float[] queryLatitudes;
+  private float[] queryLongitudes;
+  private int nextQuery;
+
+  /**
+   * Generates the listings and wires a controller to fakes of the repositories it uses.
+   */
+  @Setup
+  public void setUp() {
+    Random random = new Random(4156);
+    ClientProfile client = new ClientProfile();
+    AccountProfile account = new AccountProfile(client, AccountProfile.AccountType.PROVIDER,
+        "1234567890", "benchmark");
+    LocalDateTime pickUpTime = LocalDateTime.of(2024, 10, 6, 11, 0);
+
+    List<FoodListing> listings = new ArrayList<>(listingCount);
+    Map<Long, List<FoodListing>> listingsByCell = new HashMap<>();
+    Map<Integer, FoodListing> listingsById = new HashMap<>();
+    for (int i = 0; i < listingCount; i++) {
+      FoodListing listing = new FoodListing(client, account, "snack", 1 + random.nextInt(20),
+          pickUpTime, (float) (33.55 + random.nextDouble()),
+          (float) (-118.75 + random.nextDouble()));
+      ReflectionTestUtils.setField(listing, "listingId", i);
+      listings.add(listing);
+      listingsByCell.computeIfAbsent(listing.getGeoCell(), cell -> new ArrayList<>()).add(listing);
+      listingsById.put(i, listing);
+    }
+
+    queryLatitudes = new float[QUERY_COUNT];
+    queryLongitudes = new float[QUERY_COUNT];
+    for (int i = 0; i < QUERY_COUNT; i++) {
+      // Queries cluster in the center of the area, like recipients in the same neighborhoods
+      queryLatitudes[i] = (float) (34.05 + random.nextGaussian() * 0.05);
+      queryLongitudes[i] = (float) (-118.25 + random.nextGaussian() * 0.05);
+    }
+
+    FoodListingRepository foodListingRepository = fakeFoodListingRepository(listings,
+        listingsByCell, listingsById);
+    ClientProfileRepository clientProfileRepository = (ClientProfileRepository) Proxy
+        .newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {ClientProfileRepository.class}, (proxy, method, args) -> {
+              if ("findById".equals(method.getName())) {
+                return Optional.of(client);
+              }
+              throw new UnsupportedOperationException(method.getName());
+            });
+    // Nearby searches only look up the client
+    AccountProfileRepository accountProfileRepository = (AccountProfileRepository) Proxy
+        .newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {AccountProfileRepository.class}, (proxy, method, args) -> {
+              throw new UnsupportedOperationException(method.getName());
+            });
+
+    controller = new FoodListingController();
+    ReflectionTestUtils.setField(controller, "foodListingRepository", foodListingRepository);
+    ReflectionTestUtils.setField(controller, "profileCache",
+        new ProfileCache(clientProfileRepository, accountProfileRepository, 1000, 3600));
+    ReflectionTestUtils.setField(controller, "listingSpatialIndex",
+        new ListingSpatialIndex(foodListingRepository, "index".equals(path)));
+    // A cache that cannot hold any listing never hits
+    ReflectionTestUtils.setField(controller, "nearbySearchCache",
+        new NearbySearchCache("cache".equals(path) ? Long.MAX_VALUE : 0, 3600));
+  }
+
+  /**
+   * One nearby search from the next query location.
+   */
+  @Benchmark
+  public ResponseEntity<?> getNearbyListings() {
+    int query = nextQuery++ & (QUERY_COUNT - 1);
+    return controller.getNearbyListings(0, queryLatitudes[query], queryLongitudes[query],
+        radiusKm, ListingFilter.NONE, null, null);
+  }
+
+  /**
+   * Fakes the queries of {@link FoodListingRepository} used by nearby searches, looking listings
+   * up by grid cell like the database would with its (client_id, geo_cell) index.
+   */
+  @SuppressWarnings("unchecked")
+  private static FoodListingRepository fakeFoodListingRepository(List<FoodListing> listings,
+      Map<Long, List<FoodListing>> listingsByCell, Map<Integer, FoodListing> listingsById) {
+    return (FoodListingRepository) Proxy.newProxyInstance(
+        NearbySearchBenchmark.class.getClassLoader(),
+        new Class<?>[] {FoodListingRepository.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "findInCellsAndBoundingBox": {
+              List<FoodListing> found = new ArrayList<>();
+              for (Long cell : (Collection<Long>) args[1]) {
+                for (FoodListing listing : listingsByCell.getOrDefault(cell, List.of())) {
+                  if (inBox(listing, args, 2)) {
+                    found.add(listing);
+                  }
+                }
+              }
+              return found;
+            }
+            case "findInBoundingBox": {
+              List<FoodListing> found = new ArrayList<>();
+              for (FoodListing listing : listings) {
+                if (inBox(listing, args, 1)) {
+                  found.add(listing);
+                }
+              }
+              return found;
+            }
+            case "findByClient":
+              return listings;
+            case "findAllById": {
+              List<FoodListing> found = new ArrayList<>();
+              for (Integer id : (Iterable<Integer>) args[0]) {
+                found.add(listingsById.get(id));
+              }
+              return found;
+            }
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  private static boolean inBox(FoodListing listing, Object[] args, int first) {
+    return listing.getLatitude() >= (float) args[first]
+        && listing.getLatitude() <= (float) args[first + 1]
+        && listing.getLongitude() >= (float) args[first + 2]
+        && listing.getLongitude() <= (float) args[first + 3];
+  }
+}
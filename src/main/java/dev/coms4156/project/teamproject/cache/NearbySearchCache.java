@@ -0,0 +1,284 @@
+package dev.coms4156.project.teamproject.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import dev.coms4156.project.teamproject.model.ClientProfile;
+import dev.coms4156.project.teamproject.model.FoodListing;
+import dev.coms4156.project.teamproject.model.GeoGrid;
+import dev.coms4156.project.teamproject.model.ListingFilter;
+import dev.coms4156.project.teamproject.model.Location;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of the candidate listings for nearby searches, keyed by client, grid cell of the query
+ * location, radius bucket and listing filter. Each entry holds every listing passing the filter
+ * within the bucket's radius (plus half of a cell's diagonal) of the cell's center, so it answers
+ * any search from anywhere in that cell with a radius up to the bucket's. Callers still need to
+ * check the exact distance of each listing.
+ *
+ * <p>Writes invalidate exactly the entries whose area contains the written location. The entries
+ * of each client are indexed by cell, so a write only visits the cells of its own client and only
+ * the entries of cells within reach of it. Entries also expire after a while, which bounds how long
+ * writes made through other instances of the service go unnoticed. Eviction is size-bounded by the
+ * total number of cached listings.
+ */
+@Component
+public class NearbySearchCache {
+
+  /**
+   * Largest search radius that is cached, in kilometers. Larger searches go to the database.
+   */
+  public static final double MAX_RADIUS_KM = 64;
+
+  // Farthest any location in a cell can be from its center, with some margin for the curvature of
+  // the Earth
+  private static final double HALF_CELL_DIAGONAL_KM =
+      Math.toRadians(GeoGrid.CELL_DEGREES) * Location.EARTH_RADIUS_KM * Math.sqrt(2) / 2 * 1.01;
+
+  // Radius buckets are the powers of two up to MAX_RADIUS_KM
+  private static final int BUCKET_COUNT =
+      Integer.numberOfTrailingZeros(radiusBucket(MAX_RADIUS_KM)) + 1;
+  // Farthest a written location can be from the center of a cell whose entries it affects
+  private static final double MAX_REACH_KM = MAX_RADIUS_KM + HALF_CELL_DIAGONAL_KM;
+
+  private final Cache<Key, List<FoodListing>> cache;
+  // The entries and loads of each client by cell. A CellEntries is only read and changed inside
+  // a compute of its client's map, and the cache is never called from inside one.
+  private final Map<Integer, Map<Long, CellEntries>> cells = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs the cache.
+   *
+   * @param maxListings the maximum number of listings held across all entries
+   * @param ttlSeconds  how long an entry is kept after being loaded, in seconds
+   */
+  @Autowired
+  public NearbySearchCache(
+      @Value("${mealmatch.nearby-cache.max-listings:200000}") long maxListings,
+      @Value("${mealmatch.nearby-cache.ttl-seconds:60}") long ttlSeconds) {
+    this.cache = Caffeine.newBuilder()
+        .maximumWeight(maxListings)
+        .weigher((Key key, List<FoodListing> listings) -> listings.size() + 1)
+        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+        // Runs synchronously with the eviction, so it never drops a reloaded entry of the key
+        .evictionListener((Key key, List<FoodListing> listings, RemovalCause cause) ->
+            indexOf(key.clientId()).computeIfPresent(key.cell(), (cell, entries) -> {
+              entries.keys.remove(key);
+              return entries.isIdle() ? null : entries;
+            }))
+        .build();
+  }
+
+  /**
+   * Returns whether searches with the given radius around the given location can be cached.
+   *
+   * @param latitude the latitude of the query location
+   * @param radiusKm the search radius in kilometers
+   * @return whether the search can be cached
+   */
+  public boolean covers(float latitude, double radiusKm) {
+    return radiusKm <= MAX_RADIUS_KM && latitude >= -90 && latitude <= 90;
+  }
+
+  /**
+   * Returns the listings in `client` that may be within `radiusKm` of (`latitude`, `longitude`),
+   * loading them with `loader` if they are not cached yet. Expects {@link #covers} to be true.
+   *
+   * @param client    the client to search in
+   * @param latitude  the latitude of the query location
+   * @param longitude the longitude of the query location
+   * @param radiusKm  the search radius in kilometers
+   * @param filter    the filter the loaded listings pass
+   * @param loader    fetches the listings passing `filter` within a radius of a location from the
+   *                  database
+   * @return the candidate listings
+   */
+  public List<FoodListing> getCandidates(ClientProfile client, float latitude, float longitude,
+      double radiusKm, ListingFilter filter, Loader loader) {
+    Key key = new Key(client.getClientId(), GeoGrid.cellOf(latitude, longitude),
+        radiusBucket(radiusKm), filter);
+    List<FoodListing> cached = cache.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+
+    Map<Long, CellEntries> clientCells = cellsOf(key.clientId());
+    int bucket = bucketIndex(key.radiusBucket());
+    long[] generation = new long[1];
+    clientCells.compute(key.cell(), (cell, entries) -> {
+      CellEntries started = entries != null ? entries : new CellEntries();
+      started.loading++;
+      generation[0] = started.generations[bucket];
+      return started;
+    });
+    List<FoodListing> candidates = null;
+    boolean[] current = new boolean[1];
+    try {
+      candidates = cache.get(key, unused -> {
+        Location center = GeoGrid.centerOf(key.cell());
+        return List.copyOf(loader.load(center.latitude, center.longitude,
+            key.radiusBucket() + HALF_CELL_DIAGONAL_KM));
+      });
+    } finally {
+      boolean loaded = candidates != null;
+      clientCells.compute(key.cell(), (cell, entries) -> {
+        if (entries == null) {
+          return null;
+        }
+        entries.loading--;
+        // A write near the cell while loading may not be reflected in the loaded entry
+        current[0] = loaded && entries.generations[bucket] == generation[0];
+        if (current[0]) {
+          entries.keys.add(key);
+        }
+        return entries.isIdle() ? null : entries;
+      });
+    }
+    if (!current[0]) {
+      cache.invalidate(key);
+    }
+    return candidates;
+  }
+
+  /**
+   * Invalidates every entry of `client` whose area contains (`latitude`, `longitude`). Should be
+   * called after a listing at that location is created, updated or fulfilled, and for both the old
+   * and the new location of a listing that moves.
+   *
+   * @param client    the client of the listing
+   * @param latitude  the latitude of the listing
+   * @param longitude the longitude of the listing
+   */
+  public void invalidate(ClientProfile client, float latitude, float longitude) {
+    Location location = new Location(latitude, longitude);
+    Map<Long, CellEntries> clientCells = indexOf(client.getClientId());
+    List<Key> invalidated = new ArrayList<>();
+    for (Long cell : clientCells.keySet()) {
+      double distance = GeoGrid.centerOf(cell).distance(location);
+      if (distance > MAX_REACH_KM) {
+        continue;
+      }
+      clientCells.computeIfPresent(cell, (unused, entries) -> {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+          if (distance <= (1 << bucket) + HALF_CELL_DIAGONAL_KM) {
+            entries.generations[bucket]++;
+          }
+        }
+        entries.keys.removeIf(key -> {
+          boolean covered = distance <= key.radiusBucket() + HALF_CELL_DIAGONAL_KM;
+          if (covered) {
+            invalidated.add(key);
+          }
+          return covered;
+        });
+        return entries.isIdle() ? null : entries;
+      });
+    }
+    cache.invalidateAll(invalidated);
+  }
+
+  /**
+   * Invalidates every entry of `client`. Cheaper than invalidating the location of each listing
+   * after writing many listings at once.
+   *
+   * @param client the client whose listings were written
+   */
+  public void invalidate(ClientProfile client) {
+    invalidateClient(client.getClientId());
+  }
+
+  /**
+   * Drops every entry.
+   */
+  public void clear() {
+    for (Integer clientId : cells.keySet()) {
+      invalidateClient(clientId);
+    }
+    cache.invalidateAll();
+  }
+
+  private void invalidateClient(int clientId) {
+    Map<Long, CellEntries> clientCells = indexOf(clientId);
+    List<Key> invalidated = new ArrayList<>();
+    for (Long cell : clientCells.keySet()) {
+      clientCells.computeIfPresent(cell, (unused, entries) -> {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+          entries.generations[bucket]++;
+        }
+        invalidated.addAll(entries.keys);
+        entries.keys.clear();
+        return entries.isIdle() ? null : entries;
+      });
+    }
+    cache.invalidateAll(invalidated);
+  }
+
+  private Map<Long, CellEntries> cellsOf(int clientId) {
+    return cells.computeIfAbsent(clientId, unused -> new ConcurrentHashMap<>());
+  }
+
+  private Map<Long, CellEntries> indexOf(int clientId) {
+    return cells.getOrDefault(clientId, Map.of());
+  }
+
+  private static int bucketIndex(int radiusBucket) {
+    return Integer.numberOfTrailingZeros(radiusBucket);
+  }
+
+  /**
+   * Rounds a radius up to the next power of two (in kilometers), so that nearby searches with
+   * similar radii share entries.
+   */
+  private static int radiusBucket(double radiusKm) {
+    int bucket = 1;
+    while (bucket < radiusKm) {
+      bucket *= 2;
+    }
+    return bucket;
+  }
+
+  /**
+   * Fetches the listings that may be within a radius of a location.
+   */
+  @FunctionalInterface
+  public interface Loader {
+
+    /**
+     * Fetches the listings that may be within `radiusKm` of (`latitude`, `longitude`).
+     *
+     * @param latitude  the latitude of the location
+     * @param longitude the longitude of the location
+     * @param radiusKm  the radius in kilometers
+     * @return the listings, possibly including some farther than `radiusKm`
+     */
+    List<FoodListing> load(double latitude, double longitude, double radiusKm);
+  }
+
+  private record Key(int clientId, long cell, int radiusBucket, ListingFilter filter) {
+  }
+
+  /**
+   * The cached entries of a cell of a client, the number of loads of entries of the cell in
+   * progress, and a generation per radius bucket that writes near the cell increment, so that a
+   * load can tell whether a write it may have missed happened while it ran.
+   */
+  private static final class CellEntries {
+    private final Set<Key> keys = new HashSet<>();
+    private final long[] generations = new long[BUCKET_COUNT];
+    private int loading;
+
+    private boolean isIdle() {
+      return keys.isEmpty() && loading == 0;
+    }
+  }
+}
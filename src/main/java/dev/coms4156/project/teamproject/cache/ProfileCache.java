@@ -0,0 +1,136 @@
+package dev.coms4156.project.teamproject.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import dev.coms4156.project.teamproject.model.AccountProfile;
+import dev.coms4156.project.teamproject.model.ClientProfile;
+import dev.coms4156.project.teamproject.repository.AccountProfileRepository;
+import dev.coms4156.project.teamproject.repository.ClientProfileRepository;
+import java.time.Duration;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Read-through cache of clients and of accounts by client, which almost every request looks up
+ * before running its actual query. Clients never change once created and accounts are never
+ * updated by the service, so entries only expire to bound the memory they hold and how long a
+ * change made directly in the database goes unnoticed. IDs that are not found are not cached, so
+ * that clients and accounts created after a failed lookup are found right away.
+ *
+ * <p>The cached profiles are detached and shared by every request, so they must only be read or
+ * referenced by other entities, never modified. Code that changes or deletes a profile must
+ * invalidate it.
+ */
+@Component
+public class ProfileCache {
+
+  private final ClientProfileRepository clientProfileRepository;
+  private final AccountProfileRepository accountProfileRepository;
+  private final Cache<Integer, ClientProfile> clients;
+  private final Cache<AccountKey, AccountProfile> accounts;
+
+  /**
+   * Constructs the cache.
+   *
+   * @param clientProfileRepository  the repository to load clients from
+   * @param accountProfileRepository the repository to load accounts from
+   * @param maxEntries               the maximum number of clients, and of accounts, held
+   * @param ttlSeconds               how long a profile is kept after being loaded, in seconds
+   */
+  @Autowired
+  public ProfileCache(ClientProfileRepository clientProfileRepository,
+      AccountProfileRepository accountProfileRepository,
+      @Value("${mealmatch.profile-cache.max-entries:100000}") long maxEntries,
+      @Value("${mealmatch.profile-cache.ttl-seconds:600}") long ttlSeconds) {
+    this.clientProfileRepository = clientProfileRepository;
+    this.accountProfileRepository = accountProfileRepository;
+    this.clients = Caffeine.newBuilder()
+        .maximumSize(maxEntries)
+        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+        .recordStats()
+        .build();
+    this.accounts = Caffeine.newBuilder()
+        .maximumSize(maxEntries)
+        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+        .recordStats()
+        .build();
+  }
+
+  /**
+   * Returns the client with `clientId`, loading it from the database if it is not cached.
+   *
+   * @param clientId the ID of the client
+   * @return the client, or empty if there is no such client
+   */
+  public Optional<ClientProfile> findClient(int clientId) {
+    return Optional.ofNullable(clients.get(clientId,
+        unused -> clientProfileRepository.findById(clientId).orElse(null)));
+  }
+
+  /**
+   * Returns the account with `accountId` if it belongs to the client with `clientId`, loading it
+   * from the database along with its client if it is not cached.
+   *
+   * @param clientId  the ID of the client
+   * @param accountId the ID of the account
+   * @return the account, or empty if there is no such account in the client
+   */
+  public Optional<AccountProfile> findAccount(int clientId, int accountId) {
+    return Optional.ofNullable(accounts.get(new AccountKey(clientId, accountId),
+        unused -> accountProfileRepository.findByClientIdAndAccountId(clientId, accountId)
+            .orElse(null)));
+  }
+
+  /**
+   * Drops the client with `clientId` and its accounts. Should be called after the client is
+   * changed or deleted.
+   *
+   * @param clientId the ID of the client
+   */
+  public void invalidateClient(int clientId) {
+    clients.invalidate(clientId);
+    accounts.asMap().keySet().removeIf(key -> key.clientId() == clientId);
+  }
+
+  /**
+   * Drops the account with `accountId`. Should be called after the account is changed or
+   * deleted.
+   *
+   * @param accountId the ID of the account
+   */
+  public void invalidateAccount(int accountId) {
+    accounts.asMap().keySet().removeIf(key -> key.accountId() == accountId);
+  }
+
+  /**
+   * Drops every profile.
+   */
+  public void clear() {
+    clients.invalidateAll();
+    accounts.invalidateAll();
+  }
+
+  /**
+   * Returns the hit and miss counts of client lookups since startup.
+   *
+   * @return the statistics of the client cache
+   */
+  public CacheStats clientStats() {
+    return clients.stats();
+  }
+
+  /**
+   * Returns the hit and miss counts of account lookups since startup.
+   *
+   * @return the statistics of the account cache
+   */
+  public CacheStats accountStats() {
+    return accounts.stats();
+  }
+
+  private record AccountKey(int clientId, int accountId) {
+  }
+}
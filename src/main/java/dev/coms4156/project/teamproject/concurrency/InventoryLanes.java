@@ -0,0 +1,386 @@
+package dev.coms4156.project.teamproject.concurrency;
+
+import dev.coms4156.project.teamproject.cache.NearbySearchCache;
+import dev.coms4156.project.teamproject.index.ListingSpatialIndex;
+import dev.coms4156.project.teamproject.model.ClientProfile;
+import dev.coms4156.project.teamproject.model.FoodListing;
+import dev.coms4156.project.teamproject.repository.FoodListingRepository;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serializes the fulfills of contended listings on striped single-threaded lanes. A listing is
+ * contended when it is fulfilled while another fulfill of it is still in progress; from then on,
+ * and until it has not been fulfilled for a while, every fulfill of it goes to the lane its ID
+ * maps to. Other listings keep being fulfilled directly by the calling thread.
+ *
+ * <p>Each lane keeps the quantity listed of the listings it serves in memory and takes every
+ * fulfill queued for a listing at once: it accepts as many as the quantity allows and commits
+ * their total with a single conditional decrement, so a contended row is updated once per batch
+ * instead of once per fulfill, and callers no longer wait on each other's row locks. Callers only
+ * get their outcome once it has been committed. The database stays the authority: when a commit
+ * fails or a fulfill would be rejected, the lane reads the quantity again before deciding.
+ *
+ * <p>The lanes only see the fulfills made through this instance of the service, so they are
+ * disabled unless `mealmatch.inventory-lanes.enabled` is set to true.
+ */
+@Component
+public class InventoryLanes {
+
+  private final FoodListingRepository foodListingRepository;
+  private final ListingSpatialIndex listingSpatialIndex;
+  private final NearbySearchCache nearbySearchCache;
+  private final boolean enabled;
+  private final int maxBatch;
+  private final long idleNanos;
+  private final List<Lane> lanes = new ArrayList<>();
+  private final Map<Integer, Integer> directFulfills = new ConcurrentHashMap<>();
+  private final Map<Integer, Long> hotUntil = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs the lanes and starts their threads if they are enabled.
+   *
+   * @param foodListingRepository the repository to read and decrement quantities with
+   * @param listingSpatialIndex   the index to update after each commit
+   * @param nearbySearchCache     the cache to invalidate after each commit
+   * @param enabled               whether contended listings should be fulfilled on the lanes
+   * @param laneCount             the number of lanes
+   * @param maxBatch              the maximum number of fulfills a lane takes at once
+   * @param idleMillis            how long a listing is served by its lane after its last fulfill
+   */
+  @Autowired
+  public InventoryLanes(FoodListingRepository foodListingRepository,
+      ListingSpatialIndex listingSpatialIndex, NearbySearchCache nearbySearchCache,
+      @Value("${mealmatch.inventory-lanes.enabled:false}") boolean enabled,
+      @Value("${mealmatch.inventory-lanes.count:8}") int laneCount,
+      @Value("${mealmatch.inventory-lanes.max-batch:256}") int maxBatch,
+      @Value("${mealmatch.inventory-lanes.idle-millis:1000}") long idleMillis) {
+    if (laneCount < 1 || maxBatch < 1 || idleMillis < 1) {
+      throw new IllegalArgumentException("Expected at least one lane, a positive batch size and "
+          + "a positive idle time.");
+    }
+    this.foodListingRepository = foodListingRepository;
+    this.listingSpatialIndex = listingSpatialIndex;
+    this.nearbySearchCache = nearbySearchCache;
+    this.enabled = enabled;
+    this.maxBatch = maxBatch;
+    this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+    if (enabled) {
+      for (int i = 0; i < laneCount; i++) {
+        Lane lane = new Lane("inventory-lane-" + i);
+        lanes.add(lane);
+        lane.thread.start();
+      }
+    }
+  }
+
+  /**
+   * Returns whether the lanes are enabled.
+   *
+   * @return whether the lanes are enabled
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Decides how a fulfill of the listing with `listingId` is made. Returns true if it should go
+   * through {@link #fulfill}. Otherwise, the caller fulfills it directly and must call
+   * {@link #finishDirect} once it is done.
+   *
+   * @param listingId the ID of the listing to fulfill
+   * @return whether the fulfill should go through a lane
+   */
+  public boolean routesToLane(int listingId) {
+    if (!enabled) {
+      return false;
+    }
+    long now = System.nanoTime();
+    Long until = hotUntil.get(listingId);
+    if (until != null) {
+      if (until - now > 0) {
+        hotUntil.put(listingId, now + idleNanos);
+        return true;
+      }
+      hotUntil.remove(listingId, until);
+    }
+    if (directFulfills.merge(listingId, 1, Integer::sum) > 1) {
+      // Another fulfill of the listing is in progress, so it is contended
+      finishDirect(listingId);
+      hotUntil.put(listingId, now + idleNanos);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Records that a direct fulfill allowed by {@link #routesToLane} is done.
+   *
+   * @param listingId the ID of the listing that was fulfilled
+   */
+  public void finishDirect(int listingId) {
+    if (enabled) {
+      directFulfills.computeIfPresent(listingId, (id, count) -> count == 1 ? null : count - 1);
+    }
+  }
+
+  /**
+   * Fulfills `quantity` of the listing with `listingId` in `client` on the listing's lane, and
+   * waits until the outcome has been committed.
+   *
+   * @param client    the client of the listing
+   * @param listingId the ID of the listing
+   * @param quantity  the quantity requested, which must be positive
+   * @return the outcome of the fulfill
+   */
+  public Outcome fulfill(ClientProfile client, int listingId, int quantity) {
+    Fulfillment fulfillment = new Fulfillment(client, listingId, quantity,
+        new CompletableFuture<>());
+    lanes.get(Math.floorMod(listingId, lanes.size())).queue.add(fulfillment);
+    return fulfillment.outcome().join();
+  }
+
+  /**
+   * Makes the lanes read the listing with `listingId` from the database again before its next
+   * fulfill. Should be called after the listing is updated other than by a fulfill.
+   *
+   * @param listingId the ID of the listing
+   */
+  public void forget(int listingId) {
+    if (enabled) {
+      lanes.get(Math.floorMod(listingId, lanes.size())).forgotten.add(listingId);
+    }
+  }
+
+  /**
+   * Returns the number of listings forgotten with {@link #forget} that the lanes have not
+   * processed yet.
+   *
+   * @return the number of pending forgotten listings
+   */
+  public int pendingForgets() {
+    int pending = 0;
+    for (Lane lane : lanes) {
+      pending += lane.forgotten.size();
+    }
+    return pending;
+  }
+
+  /**
+   * Stops the lanes' threads.
+   */
+  @PreDestroy
+  public void close() {
+    for (Lane lane : lanes) {
+      lane.thread.interrupt();
+    }
+  }
+
+  /**
+   * The outcome of a fulfill made on a lane.
+   *
+   * @param status         whether the fulfill succeeded, or why it did not
+   * @param quantityListed the quantity listed after the fulfill was decided
+   */
+  public record Outcome(Status status, int quantityListed) {
+  }
+
+  /**
+   * Whether a fulfill succeeded, or why it did not.
+   */
+  public enum Status {
+    FULFILLED, INSUFFICIENT_QUANTITY, NOT_FOUND
+  }
+
+  private record Fulfillment(ClientProfile client, int listingId, int quantity,
+      CompletableFuture<Outcome> outcome) {
+  }
+
+  private record Key(int clientId, int listingId) {
+  }
+
+  /**
+   * A listing served by a lane, as last read or written by it.
+   */
+  private static final class Held {
+
+    private final FoodListing listing;
+    private long lastUsed;
+
+    private Held(FoodListing listing) {
+      this.listing = listing;
+    }
+  }
+
+  /**
+   * One lane. Everything but the queue and the forgotten set is only used by the lane's thread.
+   */
+  private final class Lane implements Runnable {
+
+    private final BlockingQueue<Fulfillment> queue = new LinkedBlockingQueue<>();
+    private final Set<Integer> forgotten = ConcurrentHashMap.newKeySet();
+    private final Map<Key, Held> held = new HashMap<>();
+    private final Thread thread;
+
+    private Lane(String name) {
+      thread = new Thread(this, name);
+      thread.setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      List<Fulfillment> batch = new ArrayList<>();
+      while (!Thread.currentThread().isInterrupted()) {
+        try {
+          Fulfillment first = queue.poll(idleNanos, TimeUnit.NANOSECONDS);
+          dropForgotten();
+          if (first != null) {
+            batch.add(first);
+            queue.drainTo(batch, maxBatch - 1);
+            process(batch);
+            batch.clear();
+          }
+          evictIdle();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      for (Fulfillment fulfillment : queue) {
+        fulfillment.outcome().completeExceptionally(
+            new IllegalStateException("Inventory lanes were stopped."));
+      }
+    }
+
+    private void process(List<Fulfillment> batch) {
+      Map<Key, List<Fulfillment>> byListing = new LinkedHashMap<>();
+      for (Fulfillment fulfillment : batch) {
+        byListing.computeIfAbsent(
+            new Key(fulfillment.client().getClientId(), fulfillment.listingId()),
+            key -> new ArrayList<>()).add(fulfillment);
+      }
+      for (Map.Entry<Key, List<Fulfillment>> entry : byListing.entrySet()) {
+        try {
+          commit(entry.getKey(), entry.getValue());
+        } catch (RuntimeException e) {
+          held.remove(entry.getKey());
+          for (Fulfillment fulfillment : entry.getValue()) {
+            fulfillment.outcome().completeExceptionally(e);
+          }
+        }
+      }
+    }
+
+    /**
+     * Accepts as many of the fulfills of one listing as its quantity allows, in order, commits
+     * their total and completes every fulfill.
+     */
+    private void commit(Key key, List<Fulfillment> fulfillments) {
+      ClientProfile client = fulfillments.get(0).client();
+      Held listingHeld = held.get(key);
+      boolean fresh = false;
+      boolean[] accepted = new boolean[fulfillments.size()];
+      int remaining = 0;
+      int total = 0;
+      boolean committed = false;
+      while (!committed) {
+        if (listingHeld == null) {
+          listingHeld = reload(key, client).orElse(null);
+          if (listingHeld == null) {
+            complete(fulfillments, new Outcome(Status.NOT_FOUND, 0));
+            return;
+          }
+          fresh = true;
+        }
+        remaining = listingHeld.listing.getQuantityListed();
+        boolean anyRejected = false;
+        for (int i = 0; i < accepted.length; i++) {
+          int quantity = fulfillments.get(i).quantity();
+          accepted[i] = quantity <= remaining;
+          if (accepted[i]) {
+            remaining -= quantity;
+          } else {
+            anyRejected = true;
+          }
+        }
+        total = listingHeld.listing.getQuantityListed() - remaining;
+        if (anyRejected && !fresh) {
+          // The quantity may have been raised since it was read, so read it before rejecting
+          listingHeld = null;
+        } else if (total > 0 && foodListingRepository.decrementQuantityListed(client,
+            key.listingId(), total) == 0) {
+          // The quantity was lowered since it was read
+          listingHeld = null;
+          fresh = false;
+        } else {
+          committed = true;
+        }
+      }
+
+      FoodListing listing = listingHeld.listing;
+      listing.setQuantityListed(remaining);
+      listingHeld.lastUsed = System.nanoTime();
+      if (total > 0) {
+        if (remaining == 0) {
+          listingSpatialIndex.update(client, listing);
+        }
+        nearbySearchCache.invalidate(client, listing.getLatitude(), listing.getLongitude());
+      }
+      for (int i = 0; i < accepted.length; i++) {
+        fulfillments.get(i).outcome().complete(new Outcome(
+            accepted[i] ? Status.FULFILLED : Status.INSUFFICIENT_QUANTITY, remaining));
+      }
+    }
+
+    private Optional<Held> reload(Key key, ClientProfile client) {
+      held.remove(key);
+      Optional<FoodListing> listing =
+          foodListingRepository.findByClientAndListingId(client, key.listingId());
+      listing.ifPresent(found -> held.put(key, new Held(found)));
+      return Optional.ofNullable(held.get(key));
+    }
+
+    private void complete(List<Fulfillment> fulfillments, Outcome outcome) {
+      for (Fulfillment fulfillment : fulfillments) {
+        fulfillment.outcome().complete(outcome);
+      }
+    }
+
+    private void dropForgotten() {
+      if (!forgotten.isEmpty()) {
+        // Most forgotten listings are not held, so every one is removed whether held or not
+        Set<Integer> drained = new HashSet<>(forgotten);
+        held.keySet().removeIf(key -> drained.contains(key.listingId()));
+        forgotten.removeAll(drained);
+      }
+    }
+
+    private void evictIdle() {
+      long now = System.nanoTime();
+      Iterator<Map.Entry<Key, Held>> iterator = held.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<Key, Held> entry = iterator.next();
+        if (now - entry.getValue().lastUsed > idleNanos) {
+          iterator.remove();
+          hotUntil.computeIfPresent(entry.getKey().listingId(),
+              (id, until) -> until - now > 0 ? until : null);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package dev.coms4156.project.teamproject.concurrency;
+
+import jakarta.persistence.EntityManager;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Retries read-modify-write operations on versioned entities when they conflict with a concurrent
+ * write. Each attempt should read the entities it modifies, so that a retry starts over from their
+ * latest state. Between attempts, the persistence context is cleared (so that reads go to the
+ * database instead of returning the stale entities) and the thread sleeps for a random time of up
+ * to the backoff, which doubles with every attempt, so that conflicting writers spread out instead
+ * of colliding again.
+ */
+@Component
+public class OptimisticRetry {
+
+  private final EntityManager entityManager;
+  private final int maxAttempts;
+  private final long backoffMillis;
+
+  /**
+   * Constructs the retrier.
+   *
+   * @param entityManager the entity manager whose persistence context is cleared between attempts
+   * @param maxAttempts   the maximum number of attempts per operation, including the first
+   * @param backoffMillis the upper bound of the sleep before the second attempt, in milliseconds
+   */
+  @Autowired
+  public OptimisticRetry(EntityManager entityManager,
+      @Value("${mealmatch.optimistic-retry.max-attempts:5}") int maxAttempts,
+      @Value("${mealmatch.optimistic-retry.backoff-millis:10}") long backoffMillis) {
+    if (maxAttempts < 1 || backoffMillis < 0) {
+      throw new IllegalArgumentException("Expected at least one attempt and a non-negative "
+          + "backoff.");
+    }
+    this.entityManager = entityManager;
+    this.maxAttempts = maxAttempts;
+    this.backoffMillis = backoffMillis;
+  }
+
+  /**
+   * Runs `operation`, running it again if it fails because of a conflicting write, up to the
+   * maximum number of attempts.
+   *
+   * @param operation the operation to run
+   * @param <T>       the type of the operation's result
+   * @return the result of the first attempt that does not conflict
+   * @throws OptimisticLockingFailureException if every attempt conflicts
+   */
+  public <T> T run(Supplier<T> operation) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return operation.get();
+      } catch (OptimisticLockingFailureException e) {
+        if (attempt >= maxAttempts || !backOff(attempt)) {
+          throw e;
+        }
+        entityManager.clear();
+      }
+    }
+  }
+
+  /**
+   * Sleeps for a random time of up to `backoffMillis` times 2 to the power of `attempt` - 1.
+   * Returns false if the thread was interrupted, in which case it should give up.
+   */
+  private boolean backOff(int attempt) {
+    long bound = backoffMillis << Math.min(attempt - 1, 20);
+    try {
+      Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
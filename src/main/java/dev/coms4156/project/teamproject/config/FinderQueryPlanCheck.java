@@ -0,0 +1,108 @@
+package dev.coms4156.project.teamproject.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks on startup that the client-scoped finders of the repositories are served by an index. On
+ * MySQL, the SQL each finder generates is run through EXPLAIN, and a warning is logged for every
+ * finder that has to scan a whole table because none of the table's indexes applies, e.g. after
+ * an index was dropped by hand or a finder was added without one. The check only reads query
+ * plans and never fails startup.
+ */
+@Component
+// The entity manager factory creates the tables and their indexes
+@DependsOn("entityManagerFactory")
+public class FinderQueryPlanCheck implements SmartInitializingSingleton {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FinderQueryPlanCheck.class);
+
+  // The SQL of each finder, with a placeholder value for every parameter
+  private static final List<Finder> FINDERS = List.of(
+      new Finder("FoodListingRepository.findByClient",
+          "SELECT * FROM food_listing WHERE client_id = 0"),
+      new Finder("FoodListingRepository.findViewsByClient",
+          "SELECT * FROM food_listing WHERE client_id = 0 AND listing_id > 0"
+              + " ORDER BY listing_id"),
+      new Finder("FoodListingRepository.findViewsByClientAndAccount",
+          "SELECT * FROM food_listing WHERE client_id = 0 AND account_id = 0"
+              + " AND listing_id > 0 ORDER BY listing_id"),
+      new Finder("FoodListingRepository.findByClientAndAccountAndListingId",
+          "SELECT * FROM food_listing WHERE client_id = 0 AND account_id = 0"
+              + " AND listing_id = 0"),
+      new Finder("FoodRequestRepository.findViewsByClientAndFoodListing",
+          "SELECT * FROM food_request WHERE client_id = 0 AND listing_id = 0"
+              + " AND request_id > 0 ORDER BY request_id"),
+      new Finder("FoodRequestRepository.findViewsByClientAndAccount",
+          "SELECT * FROM food_request WHERE client_id = 0 AND account_id = 0"
+              + " AND request_id > 0 ORDER BY request_id"),
+      new Finder("DonationRepository.findViewsByClientAndAccount",
+          "SELECT * FROM donation WHERE client_id = 0 AND account_id = 0"
+              + " AND donation_id > 0 ORDER BY donation_id"),
+      new Finder("DonationRepository.findViewsByClientAndAccountAndListingId",
+          "SELECT * FROM donation WHERE client_id = 0 AND account_id = 0 AND listing_id = 0"
+              + " AND donation_id > 0 ORDER BY donation_id"));
+
+  private final JdbcTemplate jdbcTemplate;
+
+  /**
+   * Constructs the check.
+   *
+   * @param jdbcTemplate the template to explain the finders' queries with
+   */
+  @Autowired
+  public FinderQueryPlanCheck(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Logs a warning for every finder whose query scans a whole table. Does nothing on databases
+   * other than MySQL, whose query plans are not comparable.
+   */
+  @Override
+  public void afterSingletonsInstantiated() {
+    String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+        connection.getMetaData().getDatabaseProductName());
+    if (!"MySQL".equals(database)) {
+      return;
+    }
+    for (String fullScan : findFullScans()) {
+      if (LOG.isWarnEnabled()) {
+        LOG.warn("{} scans a whole table, since no index applies to it. Add an index to the"
+            + " entity's @Table.", fullScan);
+      }
+    }
+  }
+
+  /**
+   * Explains the query of every finder and returns the finders that scan a table without being
+   * able to use any of its indexes. A finder that could use an index but is planned as a scan
+   * anyway, as MySQL does for tables with few rows, is not reported.
+   *
+   * @return the names of the finders that scan a whole table
+   */
+  public List<String> findFullScans() {
+    List<String> fullScans = new ArrayList<>();
+    for (Finder finder : FINDERS) {
+      for (Map<String, Object> step : jdbcTemplate.queryForList("EXPLAIN " + finder.sql())) {
+        if ("ALL".equals(step.get("type")) && step.get("possible_keys") == null) {
+          fullScans.add(finder.name());
+          break;
+        }
+      }
+    }
+    return fullScans;
+  }
+
+  private record Finder(String name, String sql) {
+  }
+}
@@ -0,0 +1,38 @@
+package dev.coms4156.project.teamproject.config;
+
+import dev.coms4156.project.teamproject.model.FoodListing;
+import dev.coms4156.project.teamproject.repository.FoodListingRepository;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Assigns grid cells to food listings that were saved before the `geo_cell` column existed, so
+ * that they show up in nearby searches. Runs once on startup and does nothing once every listing
+ * has a cell.
+ */
+@Component
+public class GeoCellBackfill implements ApplicationRunner {
+
+  @Autowired
+  private FoodListingRepository foodListingRepository;
+
+  /**
+   * Recomputes and saves the grid cell of every listing without one, one batch at a time.
+   *
+   * @param args the application arguments (unused)
+   */
+  @Override
+  public void run(ApplicationArguments args) {
+    List<FoodListing> listings = foodListingRepository.findTop1000ByGeoCellIsNull();
+    while (!listings.isEmpty()) {
+      for (FoodListing listing : listings) {
+        listing.refreshGeoCell();
+      }
+      foodListingRepository.saveAll(listings);
+      listings = foodListingRepository.findTop1000ByGeoCellIsNull();
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package dev.coms4156.project.teamproject.config;
+
+import dev.coms4156.project.teamproject.model.PooledIdGenerator;
+import java.util.List;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the ID sequences of the entities past the IDs already in their tables, so that IDs
+ * generated by {@link PooledIdGenerator} do not collide with rows inserted while IDs were still
+ * generated by the database. On MySQL, each sequence is a single-row table created empty by
+ * Hibernate; it is raised so that the first block it hands out starts after the largest ID in
+ * use. Runs once on startup, before the service accepts requests, and does nothing once the
+ * sequences are ahead of their tables.
+ */
+@Component
+// The entity manager factory creates the sequences
+@DependsOn("entityManagerFactory")
+public class IdSequenceAlignment implements SmartInitializingSingleton {
+
+  private static final List<Sequence> SEQUENCES = List.of(
+      new Sequence("client_profile_seq", "client_profile", "client_id"),
+      new Sequence("account_profile_seq", "account_profile", "account_id"),
+      new Sequence("food_listing_seq", "food_listing", "listing_id"),
+      new Sequence("food_request_seq", "food_request", "request_id"),
+      new Sequence("donation_seq", "donation", "donation_id"));
+
+  private final JdbcTemplate jdbcTemplate;
+  private final int allocationSize;
+
+  /**
+   * Constructs the alignment.
+   *
+   * @param jdbcTemplate   the template to update the sequences with
+   * @param allocationSize the number of IDs reserved per trip to a sequence
+   */
+  @Autowired
+  public IdSequenceAlignment(JdbcTemplate jdbcTemplate,
+      @Value("${spring.jpa.properties." + PooledIdGenerator.ALLOCATION_SIZE_SETTING + ":"
+          + PooledIdGenerator.DEFAULT_ALLOCATION_SIZE + "}") int allocationSize) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.allocationSize = allocationSize;
+  }
+
+  /**
+   * Raises every sequence that is behind its table. Databases with native sequences are left
+   * alone, since their sequences were never behind an auto-increment column of this service.
+   */
+  @Override
+  public void afterSingletonsInstantiated() {
+    String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+        connection.getMetaData().getDatabaseProductName());
+    if (!"MySQL".equals(database)) {
+      return;
+    }
+    for (Sequence sequence : SEQUENCES) {
+      // The pooled optimizer hands out the block of IDs ending at the value it reads
+      jdbcTemplate.update("UPDATE " + sequence.name() + " SET next_val = GREATEST(next_val,"
+          + " (SELECT COALESCE(MAX(" + sequence.idColumn() + "), 0) + ? FROM "
+          + sequence.table() + "))", allocationSize + 1);
+    }
+  }
+
+  private record Sequence(String name, String table, String idColumn) {
+  }
+}
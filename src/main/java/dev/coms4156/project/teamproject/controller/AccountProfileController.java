@@ -1,9 +1,9 @@
 package dev.coms4156.project.teamproject.controller;
 
+import dev.coms4156.project.teamproject.cache.ProfileCache;
 import dev.coms4156.project.teamproject.model.AccountProfile;
 import dev.coms4156.project.teamproject.model.ClientProfile;
 import dev.coms4156.project.teamproject.repository.AccountProfileRepository;
-import dev.coms4156.project.teamproject.repository.ClientProfileRepository;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -27,7 +27,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class AccountProfileController {
 
   @Autowired
-  private ClientProfileRepository clientProfileRepository;
+  private ProfileCache profileCache;
 
   @Autowired
   private AccountProfileRepository accountProfileRepository;
@@ -52,7 +52,7 @@ public class AccountProfileController {
       @RequestParam String phoneNumber,
       @RequestParam String name) {
 
-    Optional<ClientProfile> clientOptional = clientProfileRepository.findById(clientId);
+    Optional<ClientProfile> clientOptional = profileCache.findClient(clientId);
     if (!clientOptional.isPresent()) {
       return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
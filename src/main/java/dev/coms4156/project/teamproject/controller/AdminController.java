@@ -0,0 +1,77 @@
+package dev.coms4156.project.teamproject.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import dev.coms4156.project.teamproject.cache.ProfileCache;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller that provides API endpoints for operating the service.
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+  private final Statistics statistics;
+  private final ProfileCache profileCache;
+
+  /**
+   * Constructs an AdminController.
+   *
+   * @param entityManagerFactory the factory whose second-level cache is reported
+   * @param profileCache         the cache of clients and accounts
+   */
+  public AdminController(EntityManagerFactory entityManagerFactory, ProfileCache profileCache) {
+    this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    this.profileCache = profileCache;
+  }
+
+  /**
+   * Retrieves the hit, miss and put counts of each region of the second-level cache, and the hit
+   * and miss counts of the cache of clients and accounts, since startup. The second-level cache
+   * counts are only recorded if `hibernate.generate_statistics` is enabled.
+   *
+   * @return a ResponseEntity containing the counts of each `secondLevelCache` region and of the
+   *     `profileCache`, and HTTP status code 200
+   */
+  @GetMapping("/cacheStats")
+  public ResponseEntity<?> getCacheStats() {
+    Map<String, Object> regions = new TreeMap<>();
+    for (String region : statistics.getSecondLevelCacheRegionNames()) {
+      CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+      if (regionStatistics != null) {
+        Map<String, Object> counts = new HashMap<>();
+        counts.put("hits", regionStatistics.getHitCount());
+        counts.put("misses", regionStatistics.getMissCount());
+        counts.put("puts", regionStatistics.getPutCount());
+        regions.put(region, counts);
+      }
+    }
+
+    Map<String, Object> profiles = new HashMap<>();
+    profiles.put("clients", counts(profileCache.clientStats()));
+    profiles.put("accounts", counts(profileCache.accountStats()));
+
+    Map<String, Object> body = new HashMap<>();
+    body.put("secondLevelCache", regions);
+    body.put("profileCache", profiles);
+    return new ResponseEntity<>(body, HttpStatus.OK);
+  }
+
+  private static Map<String, Object> counts(CacheStats stats) {
+    Map<String, Object> counts = new HashMap<>();
+    counts.put("hits", stats.hitCount());
+    counts.put("misses", stats.missCount());
+    return counts;
+  }
+}
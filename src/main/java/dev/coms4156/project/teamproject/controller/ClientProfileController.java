@@ -1,5 +1,6 @@
 package dev.coms4156.project.teamproject.controller;
 
+import dev.coms4156.project.teamproject.cache.ProfileCache;
 import dev.coms4156.project.teamproject.model.ClientProfile;
 import dev.coms4156.project.teamproject.repository.ClientProfileRepository;
 import java.util.HashMap;
@@ -27,6 +28,9 @@ public class ClientProfileController {
   @Autowired
   private ClientProfileRepository clientProfileRepository;
 
+  @Autowired
+  private ProfileCache profileCache;
+
   /**
    * Creates a new client profile.
    *
@@ -52,7 +56,7 @@ public class ClientProfileController {
    */
   @GetMapping("/get")
   public ResponseEntity<?> getClientProfile(@RequestParam int clientId) {
-    Optional<ClientProfile> clientOptional = clientProfileRepository.findById(clientId);
+    Optional<ClientProfile> clientOptional = profileCache.findClient(clientId);
     if (!clientOptional.isPresent()) {
       Map<String, Object> body = new HashMap<>();
       body.put("error", "Client ID not found.");
@@ -0,0 +1,106 @@
+package dev.coms4156.project.teamproject.controller;
+
+import dev.coms4156.project.teamproject.cache.ProfileCache;
+import dev.coms4156.project.teamproject.model.AccountProfile;
+import dev.coms4156.project.teamproject.model.ClientProfile;
+import dev.coms4156.project.teamproject.model.DonationView;
+import dev.coms4156.project.teamproject.repository.DonationRepository;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller that provides API endpoints for the donation history of provider accounts.
+ *
+ * <p>Donations are recorded when a request is fulfilled with its `requestId` (see
+ * {@link FoodListingController#fulfillRequest}), and show up here shortly after, once they have
+ * been written in a batch. The history is best-effort: see {@link
+ * dev.coms4156.project.teamproject.persistence.DonationWriter} for the donations it may miss.
+ */
+@RestController
+@RequestMapping("/api/donations")
+public class DonationController {
+
+  private final DonationRepository donationRepository;
+  private final ProfileCache profileCache;
+
+  /**
+   * Constructs a DonationController with the necessary repositories.
+   *
+   * @param donationRepository the repository for reading Donation entities
+   * @param profileCache       the cache of clients and accounts
+   */
+  public DonationController(DonationRepository donationRepository, ProfileCache profileCache) {
+    this.donationRepository = donationRepository;
+    this.profileCache = profileCache;
+  }
+
+  /**
+   * Retrieves the donations made by the provider account with `accountId` in the client with
+   * `clientId` in the order they were recorded, optionally only those from the listing with
+   * `listingId`. If limit or afterId is given, the donations are returned one page at a time.
+   *
+   * @param clientId  the ID of the client
+   * @param accountId the ID of the provider account
+   * @param listingId an optional ID of a listing of the account
+   * @param limit     the number of donations per page, between 1 and 1000; defaults to 20 if only
+   *                  afterId is given
+   * @param afterId   the nextAfterId returned with the previous page
+   * @return a ResponseEntity containing the donations, or a page of them along with the
+   *     nextAfterId of the next page (null on the last page), and HTTP status code 200. If the
+   *     client or account is not found, returns an error message and HTTP status code 404, if the
+   *     account is not of type `AccountType.PROVIDER`, HTTP status code 401, and if limit is out of
+   *     range, HTTP status code 400.
+   */
+  @GetMapping("/get")
+  public ResponseEntity<?> getDonations(@RequestParam int clientId, @RequestParam int accountId,
+      @RequestParam(required = false) Integer listingId,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) Integer afterId) {
+    if (!KeysetPaging.hasValidLimit(limit)) {
+      return KeysetPaging.invalidLimit();
+    }
+
+    Optional<AccountProfile> accountOptional = profileCache.findAccount(clientId, accountId);
+    if (accountOptional.isEmpty()) {
+      Map<String, Object> body = new HashMap<>();
+      body.put("error", "Client ID or account ID not found.");
+      return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
+    }
+
+    AccountProfile account = accountOptional.get();
+    ClientProfile client = account.getClient();
+
+    // Only providers make donations
+    if (account.getAccountType() != AccountProfile.AccountType.PROVIDER) {
+      Map<String, Object> body = new HashMap<>();
+      body.put("error", "Expected account holder to be a PROVIDER.");
+      return new ResponseEntity<>(body, HttpStatus.UNAUTHORIZED);
+    }
+    Slice<DonationView> donations = listingId == null
+        ? donationRepository.findViewsByClientAndAccount(client, account,
+            KeysetPaging.after(afterId), KeysetPaging.pageable(limit, afterId))
+        : donationRepository.findViewsByClientAndAccountAndListingId(client, account, listingId,
+            KeysetPaging.after(afterId), KeysetPaging.pageable(limit, afterId));
+    // An account that has not donated yet is not an error
+    return KeysetPaging.respond(donations.map(DonationController::toBody), limit, afterId,
+        "donations", body -> (int) body.get("donation_id"), false);
+  }
+
+  private static Map<String, Object> toBody(DonationView donation) {
+    Map<String, Object> body = new HashMap<>();
+    body.put("donation_id", donation.donationId());
+    body.put("listing_id", donation.listingId());
+    body.put("request_id", donation.requestId());
+    body.put("quantity_picked_up", donation.quantityPickedUp());
+    body.put("pick_up_time", donation.pickUpTime());
+    return body;
+  }
+}
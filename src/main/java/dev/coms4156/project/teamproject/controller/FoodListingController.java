@@ -1,26 +1,59 @@
 package dev.coms4156.project.teamproject.controller;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import dev.coms4156.project.teamproject.cache.NearbySearchCache;
+import dev.coms4156.project.teamproject.cache.ProfileCache;
+import dev.coms4156.project.teamproject.concurrency.InventoryLanes;
+import dev.coms4156.project.teamproject.concurrency.OptimisticRetry;
+import dev.coms4156.project.teamproject.index.KdTree;
+import dev.coms4156.project.teamproject.index.ListingSpatialIndex;
 import dev.coms4156.project.teamproject.model.AccountProfile;
 import dev.coms4156.project.teamproject.model.ClientProfile;
+import dev.coms4156.project.teamproject.model.DistanceKernel;
 import dev.coms4156.project.teamproject.model.FoodListing;
 import dev.coms4156.project.teamproject.model.FoodRequest;
-import dev.coms4156.project.teamproject.model.Location;
-import dev.coms4156.project.teamproject.repository.AccountProfileRepository;
-import dev.coms4156.project.teamproject.repository.ClientProfileRepository;
+import dev.coms4156.project.teamproject.model.FulfillItem;
+import dev.coms4156.project.teamproject.model.FulfillResult;
+import dev.coms4156.project.teamproject.model.GeoGrid;
+import dev.coms4156.project.teamproject.model.ListingFilter;
+import dev.coms4156.project.teamproject.model.ListingItem;
+import dev.coms4156.project.teamproject.model.ListingView;
+import dev.coms4156.project.teamproject.model.NearbyCursor;
+import dev.coms4156.project.teamproject.model.RequestView;
+import dev.coms4156.project.teamproject.persistence.DonationWriter;
 import dev.coms4156.project.teamproject.repository.FoodListingRepository;
 import dev.coms4156.project.teamproject.repository.FoodRequestRepository;
+import jakarta.persistence.EntityManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Queue;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
@@ -31,14 +64,44 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 public class FoodListingController {
 
+  // Radius of the first search for the nearest listings, and the radius past which every listing
+  // is known to have been searched (half of the Earth's circumference)
+  private static final double NEAREST_INITIAL_RADIUS_KM = 5;
+  private static final double NEAREST_MAX_RADIUS_KM = Math.PI * 6378;
+  private static final int DEFAULT_PAGE_SIZE = 20;
+  private static final int MAX_BULK_FULFILL_ITEMS = 1000;
+  private static final int MAX_BULK_CREATE_LISTINGS = 100_000;
+  // Listings inserted between clears of the persistence context when creating many at once
+  private static final int BULK_CREATE_BATCH_SIZE = 500;
+  private static final ObjectReader LISTING_ITEM_READER = new ObjectMapper()
+      .readerFor(ListingItem.class)
+      .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+  private static final ListingFilter AVAILABLE_ONLY =
+      new ListingFilter(null, null, true, null, null);
+  private static final Comparator<ListingDistance> LISTING_DISTANCE_ORDER =
+      Comparator.comparingDouble(ListingDistance::distance)
+          .thenComparingInt(listingDistance -> listingDistance.listing().getListingId());
+
   @Autowired
   private FoodListingRepository foodListingRepository;
   @Autowired
-  private ClientProfileRepository clientProfileRepository;
-  @Autowired
-  private AccountProfileRepository accountProfileRepository;
+  private ProfileCache profileCache;
   @Autowired
   private FoodRequestRepository foodRequestRepository;
+  @Autowired
+  private ListingSpatialIndex listingSpatialIndex;
+  @Autowired
+  private NearbySearchCache nearbySearchCache;
+  @Autowired
+  private OptimisticRetry optimisticRetry;
+  @Autowired
+  private InventoryLanes inventoryLanes;
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+  @Autowired
+  private DonationWriter donationWriter;
+  @Autowired
+  private EntityManager entityManager;
 
   /**
    * API endpoint to create a new food listing under the account with `accountId` in the client with
@@ -62,20 +125,21 @@ public class FoodListingController {
       @RequestParam String foodType, @RequestParam int quantityListed,
       @RequestParam float latitude, @RequestParam float longitude) {
 
-    Optional<ClientProfile> clientOptional = clientProfileRepository.findById(clientId);
-    Optional<AccountProfile> accountOptional = accountProfileRepository.findById(accountId);
-    if (clientOptional.isEmpty() || accountOptional.isEmpty()) {
+    Optional<AccountProfile> accountOptional = profileCache.findAccount(clientId, accountId);
+    if (accountOptional.isEmpty()) {
       Map<String, Object> body = new HashMap<>();
       body.put("error", "Client ID or account ID not found.");
       return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
     }
 
-    ClientProfile client = clientOptional.get();
     AccountProfile account = accountOptional.get();
+    ClientProfile client = account.getClient();
     FoodListing foodListing = new FoodListing(client, account, foodType, quantityListed,
         LocalDateTime.now(), latitude, longitude);
 
     FoodListing savedFoodListing = foodListingRepository.save(foodListing);
+    listingSpatialIndex.update(client, savedFoodListing);
+    nearbySearchCache.invalidate(client, latitude, longitude);
     if (savedFoodListing.getFoodType().equals(foodType)
         && savedFoodListing.getQuantityListed() == quantityListed
         && savedFoodListing.getLatitude() == latitude
@@ -89,17 +153,177 @@ public class FoodListingController {
   }
 
   /**
-   * API endpoint to get all food listings in a client with `clientId`.
+   * API endpoint to create many food listings at once under the account with `accountId` in the
+   * client with `clientId`, e.g. a provider's end-of-day inventory. The body is either a JSON array
+   * of listings or newline-delimited JSON with one listing per line, each with a `foodType`, a
+   * positive `quantityListed`, a `latitude` and a `longitude`. The body is parsed as it is read
+   * and the listings are inserted in batches, so memory use does not grow with the number of
+   * listings. Either every listing is created or none is.
+   *
+   * @param clientId  ID of the client
+   * @param accountId ID of the account creating the listings
+   * @param body      the listings, at most 100000 of them
+   * @return If there is no account with `accountId` in the client with `clientId`, returns a
+   *     ResponseEntity with status code NOT_FOUND and a corresponding error message. If the body
+   *     is malformed or a listing is invalid, returns with status code BAD_REQUEST and an error
+   *     message naming the listing. Otherwise, returns with status code CREATED and the number of
+   *     listings created.
+   * @throws IOException if the body cannot be read or closed
+   */
+  @PostMapping("/createFoodListings")
+  public ResponseEntity<?> createFoodListings(@RequestParam int clientId,
+      @RequestParam int accountId, InputStream body) throws IOException {
+    Optional<AccountProfile> accountOptional = profileCache.findAccount(clientId, accountId);
+    if (accountOptional.isEmpty()) {
+      Map<String, Object> responseBody = new HashMap<>();
+      responseBody.put("error", "Client ID or account ID not found.");
+      return new ResponseEntity<>(responseBody, HttpStatus.NOT_FOUND);
+    }
+    AccountProfile account = accountOptional.get();
+    ClientProfile client = account.getClient();
+
+    BulkCreateOutcome outcome;
+    try (JsonParser parser = LISTING_ITEM_READER.createParser(body)) {
+      outcome = transactionTemplate.execute(status -> {
+        BulkCreateOutcome inserted = insertListings(client, account, parser);
+        if (inserted.error() != null) {
+          status.setRollbackOnly();
+        }
+        return inserted;
+      });
+    }
+    if (outcome == null || outcome.error() != null) {
+      Map<String, Object> responseBody = new HashMap<>();
+      responseBody.put("error", outcome == null ? "No listings created." : outcome.error());
+      return new ResponseEntity<>(responseBody, HttpStatus.BAD_REQUEST);
+    }
+
+    // Cheaper than updating the index and cache with each of possibly many listings
+    listingSpatialIndex.forget(client);
+    nearbySearchCache.invalidate(client);
+    Map<String, Object> responseBody = new HashMap<>();
+    responseBody.put("message", "Created " + outcome.created() + " food listings.");
+    responseBody.put("created", outcome.created());
+    return new ResponseEntity<>(responseBody, HttpStatus.CREATED);
+  }
+
+  /**
+   * Reads the listings from `parser` one at a time and saves them in batches, dropping each batch
+   * from the persistence context once it has been inserted. Stops at the first invalid listing,
+   * and rejects anything following the closing bracket of a JSON array, so that a corrupted or
+   * concatenated upload is not partly created.
+   */
+  private BulkCreateOutcome insertListings(ClientProfile client, AccountProfile account,
+      JsonParser parser) {
+    LocalDateTime now = LocalDateTime.now();
+    List<FoodListing> batch = new ArrayList<>(BULK_CREATE_BATCH_SIZE);
+    int created = 0;
+    try {
+      JsonToken token = parser.nextToken();
+      if (token == JsonToken.START_ARRAY) {
+        token = parser.nextToken();
+      }
+      while (token != null && token != JsonToken.END_ARRAY) {
+        if (created + batch.size() == MAX_BULK_CREATE_LISTINGS) {
+          return new BulkCreateOutcome(created, "Expected at most " + MAX_BULK_CREATE_LISTINGS
+              + " listings.");
+        }
+        ListingItem item = LISTING_ITEM_READER.readValue(parser);
+        String invalid = invalidListing(item);
+        if (invalid != null) {
+          return new BulkCreateOutcome(created, "Listing " + (created + batch.size() + 1)
+              + " is invalid: " + invalid);
+        }
+        batch.add(new FoodListing(client, account, item.foodType(), item.quantityListed(), now,
+            item.latitude(), item.longitude()));
+        if (batch.size() == BULK_CREATE_BATCH_SIZE) {
+          created += batch.size();
+          saveBatch(batch);
+        }
+        token = parser.nextToken();
+      }
+      if (token == JsonToken.END_ARRAY && !endsAfterArray(parser)) {
+        return new BulkCreateOutcome(created, "Unexpected content after listing "
+            + (created + batch.size()) + ".");
+      }
+    } catch (JsonProcessingException e) {
+      return new BulkCreateOutcome(created, "Listing " + (created + batch.size() + 1)
+          + " is malformed: " + e.getOriginalMessage());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    created += batch.size();
+    saveBatch(batch);
+    return new BulkCreateOutcome(created, null);
+  }
+
+  /**
+   * Returns whether nothing but whitespace follows the closing bracket `parser` is at.
+   */
+  private static boolean endsAfterArray(JsonParser parser) throws IOException {
+    try {
+      return parser.nextToken() == null;
+    } catch (JsonProcessingException e) {
+      return false;
+    }
+  }
+
+  private void saveBatch(List<FoodListing> batch) {
+    foodListingRepository.saveAll(batch);
+    foodListingRepository.flush();
+    entityManager.clear();
+    batch.clear();
+  }
+
+  private static String invalidListing(ListingItem item) {
+    if (item == null || item.foodType() == null || item.foodType().isBlank()) {
+      return "foodType is required.";
+    }
+    if (item.quantityListed() == null || item.quantityListed() <= 0) {
+      return "quantityListed must be positive.";
+    }
+    if (item.latitude() == null || item.longitude() == null) {
+      return "latitude and longitude are required.";
+    }
+    if (Math.abs(item.latitude()) > 90 || Math.abs(item.longitude()) > 180) {
+      return "latitude or longitude is out of range.";
+    }
+    return null;
+  }
+
+  private record BulkCreateOutcome(int created, String error) {
+  }
+
+  /**
+   * API endpoint to get all food listings in a client with `clientId`, optionally filtered by food
+   * type, quantity and pick-up window.
+   * If `limit` or `afterId` is given, the listings are returned one page at a time, sorted by ID.
    *
    * @param clientId ID of the client
+   * @param filter   Optional `foodType`, `minQuantity`, `availableOnly`, `pickupFrom` and
+   *                 `pickupTo` parameters; only the listings passing them are returned
+   * @param limit    An optional parameter for the number of listings per page, between 1 and
+   *                 1000. Defaults to 20 if only `afterId` is given.
+   * @param afterId  An optional parameter for the `nextAfterId` returned with the previous page.
    * @return If there is no client with `clientId`, returns a ResponseEntity with status code
-   *     NOT_FOUND and a corresponding error message. If there is at least one listing in the
-   *     specified client, returns with status code OK and a collection of such listings. Otherwise,
-   *     returns with status code NOT_FOUND.
+   *     NOT_FOUND and a corresponding error message. If `pickupFrom` is after `pickupTo` or
+   *     `limit` is out of range, returns with status code BAD_REQUEST. If there is at least one
+   *     listing in the specified client, returns with status code OK and a collection of such
+   *     listings, or a page of them along with the `nextAfterId` of the next page (null on the
+   *     last page). Otherwise, returns with status code NOT_FOUND.
    */
   @GetMapping("/getFoodListings")
-  public ResponseEntity<?> getFoodListings(@RequestParam int clientId) {
-    Optional<ClientProfile> clientOptional = clientProfileRepository.findById(clientId);
+  public ResponseEntity<?> getFoodListings(@RequestParam int clientId, ListingFilter filter,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) Integer afterId) {
+    if (!filter.hasValidPickupWindow()) {
+      return invalidPickupWindow();
+    }
+    if (!KeysetPaging.hasValidLimit(limit)) {
+      return KeysetPaging.invalidLimit();
+    }
+
+    Optional<ClientProfile> clientOptional = profileCache.findClient(clientId);
     if (clientOptional.isEmpty()) {
       Map<String, Object> body = new HashMap<>();
       body.put("error", "Client ID not found.");
@@ -107,17 +331,18 @@ public class FoodListingController {
     }
 
     ClientProfile client = clientOptional.get();
-    List<FoodListing> listings = foodListingRepository.findByClient(client);
-    if (!listings.isEmpty()) {
-      return ResponseEntity.ok().body(listings);
-    } else {
-      return ResponseEntity.notFound().build();
-    }
+    int after = KeysetPaging.after(afterId);
+    Pageable pageable = KeysetPaging.pageable(limit, afterId);
+    Slice<ListingView> listings = filter.isEmpty()
+        ? foodListingRepository.findViewsByClient(client, after, pageable)
+        : foodListingRepository.findViewsByClientMatching(client, filter, after, pageable);
+    return KeysetPaging.respond(listings, limit, afterId, "listings", ListingView::listingId);
   }
 
   /**
    * API endpoint for getting food listings in the client with `clientId` with pick-up locations
-   * within `maxDistance` of (`latitude`, `longitude`).
+   * within `maxDistance` of (`latitude`, `longitude`). If `pageSize` or `cursor` is given, the
+   * listings are returned one page at a time, sorted from closest to farthest.
    *
    * @param clientId    ID of client
    * @param latitude    Latitude of the query location
@@ -125,17 +350,46 @@ public class FoodListingController {
    * @param maxDistance An optional parameter for the maximum distance from the specified location
    *                    to consider when searching for food listings; expected to be greater than
    *                    0.
+   * @param filter      Optional `foodType`, `minQuantity`, `availableOnly`, `pickupFrom` and
+   *                    `pickupTo` parameters; only the listings passing them are returned
+   * @param pageSize    An optional parameter for the number of listings per page; expected to be
+   *                    greater than 0. Defaults to 20 if only `cursor` is given.
+   * @param cursor      An optional parameter for the `nextCursor` returned with the previous page.
    * @return If there is no client with `clientId`, returns a ResponseEntity with status code
-   *     NOT_FOUND and a corresponding error message. If there is at least one listing within the
-   *     specified distance of the specified location, returns with status code OK and a
-   *     collection of such listings. Otherwise, returns with status code NOT_FOUND.
+   *     NOT_FOUND and a corresponding error message. If `pageSize` is not positive, `cursor` is
+   *     invalid or `pickupFrom` is after `pickupTo`, returns with status code BAD_REQUEST. If
+   *     there is at least one listing within the specified distance of the specified location,
+   *     returns with status code OK and a collection of such listings, or a page of them along
+   *     with the cursor of the next page (null on the last page). Otherwise, returns with status
+   *     code NOT_FOUND.
    */
   @GetMapping("/getNearbyListings")
   public ResponseEntity<?> getNearbyListings(@RequestParam int clientId,
       @RequestParam float latitude, @RequestParam float longitude,
-      @RequestParam(required = false, defaultValue = "5") int maxDistance) {
+      @RequestParam(required = false, defaultValue = "5") int maxDistance,
+      ListingFilter filter,
+      @RequestParam(required = false) Integer pageSize,
+      @RequestParam(required = false) String cursor) {
 
-    Optional<ClientProfile> clientOptional = clientProfileRepository.findById(clientId);
+    if (!filter.hasValidPickupWindow()) {
+      return invalidPickupWindow();
+    }
+    if (pageSize != null && pageSize <= 0) {
+      Map<String, Object> body = new HashMap<>();
+      body.put("error", "Page size must be positive.");
+      return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+    Optional<NearbyCursor> after = Optional.empty();
+    if (cursor != null) {
+      after = NearbyCursor.decode(cursor);
+      if (after.isEmpty()) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", "Invalid cursor.");
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+      }
+    }
+
+    Optional<ClientProfile> clientOptional = profileCache.findClient(clientId);
     if (clientOptional.isEmpty()) {
       Map<String, Object> body = new HashMap<>();
       body.put("error", "Client ID not found.");
@@ -143,16 +397,40 @@ public class FoodListingController {
     }
 
     ClientProfile client = clientOptional.get();
-    List<FoodListing> allListings = foodListingRepository.findByClient(client);
+
+    if (pageSize != null || cursor != null) {
+      int size = pageSize != null ? pageSize : DEFAULT_PAGE_SIZE;
+      // Fetch one extra listing to know whether there is a next page
+      List<ListingDistance> page = findClosestListings(client, latitude, longitude, size + 1,
+          maxDistance, after.orElse(null), filter);
+      if (page.isEmpty() && after.isEmpty()) {
+        return ResponseEntity.notFound().build();
+      }
+      String nextCursor = null;
+      if (page.size() > size) {
+        page = page.subList(0, size);
+        ListingDistance last = page.get(size - 1);
+        nextCursor = new NearbyCursor(last.distance(), last.listing().getListingId()).encode();
+      }
+      List<FoodListing> listings = new ArrayList<>(page.size());
+      for (ListingDistance listingDistance : page) {
+        listings.add(listingDistance.listing());
+      }
+      Map<String, Object> body = new HashMap<>();
+      body.put("listings", listings);
+      body.put("nextCursor", nextCursor);
+      return ResponseEntity.ok().body(body);
+    }
+
+    List<FoodListing> candidateListings =
+        findCandidateListings(client, latitude, longitude, maxDistance, filter);
 
     // Then find listings within `maxDistance` of query location
+    double[] distances = distancesWithin(candidateListings, latitude, longitude, maxDistance);
     List<FoodListing> nearbyListings = new ArrayList<>();
-    Location queryLocation = new Location(latitude, longitude);
-
-    for (FoodListing listing : allListings) {
-      Location listingLocation = new Location(listing.getLatitude(), listing.getLongitude());
-      if (queryLocation.distance(listingLocation) <= maxDistance) {
-        nearbyListings.add(listing);
+    for (int i = 0; i < distances.length; i++) {
+      if (distances[i] <= maxDistance && filter.matches(candidateListings.get(i))) {
+        nearbyListings.add(candidateListings.get(i));
       }
     }
 
@@ -163,68 +441,131 @@ public class FoodListingController {
     }
   }
 
+  /**
+   * API endpoint for getting the `k` available food listings in the client with `clientId` whose
+   * pick-up locations are closest to (`latitude`, `longitude`), sorted from closest to farthest.
+   * The search starts with a small radius and widens it until `k` listings are found, keeping only
+   * the best `k` seen so far instead of sorting every match.
+   *
+   * @param clientId  ID of client
+   * @param latitude  Latitude of the query location
+   * @param longitude Longitude of the query location
+   * @param k         An optional parameter for the number of listings to return; expected to be
+   *                  greater than 0.
+   * @return If there is no client with `clientId`, returns a ResponseEntity with status code
+   *     NOT_FOUND and a corresponding error message. If `k` is not positive, returns with status
+   *     code BAD_REQUEST. If there is at least one available listing in the client, returns with
+   *     status code OK and the (up to) `k` closest such listings. Otherwise, returns with status
+   *     code NOT_FOUND.
+   */
+  @GetMapping("/getNearestListings")
+  public ResponseEntity<?> getNearestListings(@RequestParam int clientId,
+      @RequestParam float latitude, @RequestParam float longitude,
+      @RequestParam(required = false, defaultValue = "20") int k) {
+
+    if (k <= 0) {
+      Map<String, Object> body = new HashMap<>();
+      body.put("error", "Number of listings requested must be positive.");
+      return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    Optional<ClientProfile> clientOptional = profileCache.findClient(clientId);
+    if (clientOptional.isEmpty()) {
+      Map<String, Object> body = new HashMap<>();
+      body.put("error", "Client ID not found.");
+      return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
+    }
+
+    ClientProfile client = clientOptional.get();
+    List<ListingDistance> closest = findClosestListings(client, latitude, longitude, k,
+        NEAREST_MAX_RADIUS_KM, null, AVAILABLE_ONLY);
+    if (closest.isEmpty()) {
+      return ResponseEntity.notFound().build();
+    }
+    List<FoodListing> nearestListings = new ArrayList<>(closest.size());
+    for (ListingDistance listingDistance : closest) {
+      nearestListings.add(listingDistance.listing());
+    }
+    return ResponseEntity.ok().body(nearestListings);
+  }
+
   /**
    * API endpoint to get all food listings under an account with `accountId` in the client with
    * `clientId`.
+   * If `limit` or `afterId` is given, the listings are returned one page at a time, sorted by ID.
    *
    * @param clientId  ID of the client
    * @param accountId ID of the account trying to fetch all their listings
+   * @param limit     An optional parameter for the number of listings per page, between 1 and
+   *                  1000. Defaults to 20 if only `afterId` is given.
+   * @param afterId   An optional parameter for the `nextAfterId` returned with the previous page.
    * @return If there is no account with `accountId` in the client with `clientId`, returns a
-   *     ResponseEntity with status code NOT_FOUND. If the account with `accountId` is not of type
-   *     `AccountType.PROVIDER`, returns with status code UNAUTHORIZED. If there is at least one
-   *     listing under the specified account, returns with status code OK and a collection of such
-   *     listings. Otherwise, returns with status code NOT_FOUND.
+   *     ResponseEntity with status code NOT_FOUND. If `limit` is out of range, returns with status
+   *     code BAD_REQUEST. If there is at least one listing under the specified account, returns
+   *     with status code OK and a collection of such listings, or a page of them along with the
+   *     `nextAfterId` of the next page (null on the last page). Otherwise, returns with status
+   *     code NOT_FOUND.
    */
   @GetMapping("/getFoodListingsUnderAccount")
   public ResponseEntity<?> getFoodListingsUnderAccount(@RequestParam int clientId,
-      @RequestParam int accountId) {
+      @RequestParam int accountId, @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) Integer afterId) {
+    if (!KeysetPaging.hasValidLimit(limit)) {
+      return KeysetPaging.invalidLimit();
+    }
 
-    Optional<ClientProfile> clientOptional = clientProfileRepository.findById(clientId);
-    Optional<AccountProfile> accountOptional = accountProfileRepository.findById(accountId);
-    if (clientOptional.isEmpty() || accountOptional.isEmpty()) {
+    Optional<AccountProfile> accountOptional = profileCache.findAccount(clientId, accountId);
+    if (accountOptional.isEmpty()) {
       Map<String, Object> body = new HashMap<>();
       body.put("error", "Client ID or account ID not found.");
       return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
     }
 
-    ClientProfile client = clientOptional.get();
     AccountProfile account = accountOptional.get();
-    List<FoodListing> accountListings = foodListingRepository.findByClientAndAccount(client,
-        account);
-    if (!accountListings.isEmpty()) {
-      return ResponseEntity.ok().body(accountListings);
-    } else {
-      return ResponseEntity.notFound().build();
-    }
+    ClientProfile client = account.getClient();
+    Slice<ListingView> accountListings = foodListingRepository.findViewsByClientAndAccount(client,
+        account, KeysetPaging.after(afterId), KeysetPaging.pageable(limit, afterId));
+    return KeysetPaging.respond(accountListings, limit, afterId, "listings",
+        ListingView::listingId);
   }
 
   /**
    * API endpoint for fetching the requests made for a listing with `listingId` under a provider
    * account with `accountId` in the client with `clientId`.
+   * If `limit` or `afterId` is given, the requests are returned one page at a time, sorted by ID.
    *
    * @param clientId  ID of the client
    * @param accountId ID of the provider account trying to get the requests for a listing
    * @param listingId ID of the listing to find requests for
+   * @param limit     An optional parameter for the number of requests per page, between 1 and
+   *                  1000. Defaults to 20 if only `afterId` is given.
+   * @param afterId   An optional parameter for the `nextAfterId` returned with the previous page.
    * @return If there is no listing with `listingId` under an account with `accountId` in the client
    *     with `clientId`, returns a ResponseEntity with status code NOT_FOUND. If the account with
    *     `accountId` is not of type `AccountType.PROVIDER`, returns with status code UNAUTHORIZED.
-   *     If at least one request has been made for the specified listing, returns with status code
-   *     OK and a collection of such requests. Otherwise, returns with status code NOT_FOUND.
+   *     If `limit` is out of range, returns with status code BAD_REQUEST. If at least one request
+   *     has been made for the specified listing, returns with status code OK and a collection of
+   *     such requests, or a page of them along with the `nextAfterId` of the next page (null on
+   *     the last page). Otherwise, returns with status code NOT_FOUND.
    */
   @GetMapping("/getRequestsForListing")
   public ResponseEntity<?> getRequestsForListing(
-      @RequestParam int clientId, @RequestParam int accountId, @RequestParam int listingId) {
+      @RequestParam int clientId, @RequestParam int accountId, @RequestParam int listingId,
+      @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) Integer afterId) {
+    if (!KeysetPaging.hasValidLimit(limit)) {
+      return KeysetPaging.invalidLimit();
+    }
 
-    Optional<ClientProfile> clientOptional = clientProfileRepository.findById(clientId);
-    Optional<AccountProfile> accountOptional = accountProfileRepository.findById(accountId);
-    if (clientOptional.isEmpty() || accountOptional.isEmpty()) {
+    Optional<AccountProfile> accountOptional = profileCache.findAccount(clientId, accountId);
+    if (accountOptional.isEmpty()) {
       Map<String, Object> body = new HashMap<>();
       body.put("error", "Client ID or account ID not found.");
       return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
     }
 
-    ClientProfile client = clientOptional.get();
     AccountProfile account = accountOptional.get();
+    ClientProfile client = account.getClient();
 
     // Only a provider should be calling this endpoint
     if (account.getAccountType() != AccountProfile.AccountType.PROVIDER) {
@@ -247,14 +588,11 @@ public class FoodListingController {
 
     FoodListing listing = listingOptional.get();
     // Find requests for this listing under the same client
-    List<FoodRequest> requestsForListing =
-        foodRequestRepository.findByClientAndFoodListing(client, listing);
-
-    if (!requestsForListing.isEmpty()) {
-      return ResponseEntity.ok().body(requestsForListing);
-    } else {
-      return ResponseEntity.notFound().build();
-    }
+    Slice<RequestView> requestsForListing =
+        foodRequestRepository.findViewsByClientAndFoodListing(client, listing,
+            KeysetPaging.after(afterId), KeysetPaging.pageable(limit, afterId));
+    return KeysetPaging.respond(requestsForListing, limit, afterId, "requests",
+        RequestView::requestId);
   }
 
   /**
@@ -262,18 +600,21 @@ public class FoodListingController {
    * in the client with `clientId`. Updates the listing by decrementing `quantityListed` by
    * `quantityRequested`. If `quantityRequested` is not specified, its default value is 1. If the
    * current `quantityListed` is less than`quantityRequested`, returns a response with status code
-   * BAD_REQUEST.
+   * BAD_REQUEST. If `requestId` is specified, the pickup is recorded as a donation for the request
+   * with `requestId`, which must be a request for the listing.
    *
    * @param clientId  ID of the client
+   * @param requestId An optional ID of the request the food is picked up for
    * @return If there is no listing with `listingId` under an account with `accountId` in the client
-   *     with `clientId`, returns a ResponseEntity with status code NOT_FOUND. If the account with
-   *     `accountId` is not of type `AccountType.PROVIDER`, returns with status code UNAUTHORIZED.
-   *     If the request was fulfilled and the listing was updated, returns a ResponseEntity with
-   *     status code OK. Otherwise, returns with status code BAD_REQUEST.
+   *     with `clientId`, or no request with `requestId` for it, returns a ResponseEntity with
+   *     status code NOT_FOUND. If the account with `accountId` is not of type
+   *     `AccountType.PROVIDER`, returns with status code UNAUTHORIZED. If the request was
+   *     fulfilled and the listing was updated, returns a ResponseEntity with status code OK.
+   *     Otherwise, returns with status code BAD_REQUEST.
    */
   @PatchMapping("/fulfillRequest")
   public ResponseEntity<?> fulfillRequest(@RequestParam int clientId, @RequestParam int listingId,
-                                          @RequestParam int quantityRequested) {
+      @RequestParam int quantityRequested, @RequestParam(required = false) Integer requestId) {
     // Throw error if quantity requested is negative
     if (quantityRequested <= 0) {
       Map<String, Object> body = new HashMap<>();
@@ -282,7 +623,7 @@ public class FoodListingController {
     }
 
     // Fetch client and account data from database
-    Optional<ClientProfile> clientOptional = clientProfileRepository.findById(clientId);
+    Optional<ClientProfile> clientOptional = profileCache.findClient(clientId);
     if (clientOptional.isEmpty()) {
       Map<String, Object> body = new HashMap<>();
       body.put("error", "Client ID not found.");
@@ -291,34 +632,189 @@ public class FoodListingController {
 
     ClientProfile client = clientOptional.get();
 
-    // Find the listing that will satisfy a request
-    Optional<FoodListing> listingOptional =
-        foodListingRepository.findByClientAndListingId(client, listingId);
-    if (listingOptional.isEmpty()) {
-      Map<String, Object> body = new HashMap<>();
-      body.put("error", "Listing with ID " + listingId + " not found "
-          + "under client with ID " + clientId + ".");
-      return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
+    if (requestId != null) {
+      Optional<FoodRequest> requestOptional = foodRequestRepository.findById(requestId);
+      if (requestOptional.isEmpty()
+          || requestOptional.get().getClient().getClientId() != clientId
+          || requestOptional.get().getListing().getListingId() != listingId) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", "Request with ID " + requestId + " not found for listing with ID "
+            + listingId + ".");
+        return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
+      }
     }
 
-    // Do the actual update now that we found the correct listing
-    FoodListing listing = listingOptional.get();
-    int currQuantityListed = listing.getQuantityListed();
-    if (currQuantityListed < quantityRequested) {
-      Map<String, Object> body = new HashMap<>();
-      body.put("error", "Quantity listed (" + currQuantityListed + ") for listing with ID "
-          + listingId + " cannot satisfy quantity requested (" + quantityRequested + ").");
-      return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    // Contended listings are fulfilled on their inventory lane, which commits the fulfills of a
+    // listing in batches instead of one at a time
+    if (inventoryLanes.routesToLane(listingId)) {
+      InventoryLanes.Outcome outcome =
+          inventoryLanes.fulfill(client, listingId, quantityRequested);
+      switch (outcome.status()) {
+        case NOT_FOUND:
+          return listingNotFound(clientId, listingId);
+        case INSUFFICIENT_QUANTITY:
+          return insufficientQuantity(outcome.quantityListed(), listingId, quantityRequested);
+        default:
+          return fulfilled(clientId, listingId, quantityRequested, requestId);
+      }
     }
-    int newQuantityListed = currQuantityListed - quantityRequested;
-    listing.setQuantityListed(newQuantityListed);
-    foodListingRepository.save(listing);
 
+    try {
+      // Check the quantity listed and subtract from it in one statement, so that concurrent
+      // requests for the same listing cannot both be satisfied by the same stock
+      int updated = foodListingRepository.decrementQuantityListed(client, listingId,
+          quantityRequested);
+
+      // The listing is read after the update, so it reflects the new quantity listed
+      Optional<FoodListing> listingOptional =
+          foodListingRepository.findByClientAndListingId(client, listingId);
+      if (listingOptional.isEmpty()) {
+        return listingNotFound(clientId, listingId);
+      }
+
+      FoodListing listing = listingOptional.get();
+      if (updated == 0) {
+        return insufficientQuantity(listing.getQuantityListed(), listingId, quantityRequested);
+      }
+      listingSpatialIndex.update(client, listing);
+      nearbySearchCache.invalidate(client, listing.getLatitude(), listing.getLongitude());
+      return fulfilled(clientId, listingId, quantityRequested, requestId);
+    } finally {
+      inventoryLanes.finishDirect(listingId);
+    }
+  }
+
+  private static ResponseEntity<?> listingNotFound(int clientId, int listingId) {
+    Map<String, Object> body = new HashMap<>();
+    body.put("error", "Listing with ID " + listingId + " not found "
+        + "under client with ID " + clientId + ".");
+    return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
+  }
+
+  private static ResponseEntity<?> insufficientQuantity(int quantityListed, int listingId,
+      int quantityRequested) {
+    Map<String, Object> body = new HashMap<>();
+    body.put("error", "Quantity listed (" + quantityListed + ") for listing with ID "
+        + listingId + " cannot satisfy quantity requested (" + quantityRequested + ").");
+    return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+  }
+
+  private ResponseEntity<?> fulfilled(int clientId, int listingId, int quantityRequested,
+      Integer requestId) {
+    // Donations are written in batches in the background, so the pickup does not wait for them
+    if (requestId != null) {
+      donationWriter.record(clientId, listingId, requestId, quantityRequested);
+    }
     Map<String, Object> body = new HashMap<>();
     body.put("message", "Updated Successfully.");
     return new ResponseEntity<>(body, HttpStatus.OK);
   }
 
+  /**
+   * API endpoint for fulfilling many requests for listings in the client with `clientId` at once,
+   * e.g. every pick-up of a provider's shift. Each item's quantity is subtracted from its listing
+   * with the same conditional decrement as {@link #fulfillRequest}, and all of them are sent to
+   * the database as one batch. If `atomic` is true (the default), the items are fulfilled in one
+   * transaction, and none is if any of them cannot be. Otherwise, each item is fulfilled or not on
+   * its own. The items bypass the inventory lanes, so the lanes are told to read the quantity of
+   * each fulfilled listing again instead of serving it from memory.
+   *
+   * @param clientId ID of the client
+   * @param atomic   whether to fulfill all items or none
+   * @param items    the listings and quantities to fulfill, at most 1000 of them
+   * @return If there is no client with `clientId`, returns a ResponseEntity with status code
+   *     NOT_FOUND. If there are no items or too many, returns with status code BAD_REQUEST.
+   *     Otherwise, returns the outcome of each item, in order, with status code OK if every item
+   *     was fulfilled or `atomic` is false, and with status code BAD_REQUEST otherwise.
+   */
+  @PatchMapping("/fulfillRequests")
+  public ResponseEntity<?> fulfillRequests(@RequestParam int clientId,
+      @RequestParam(defaultValue = "true") boolean atomic,
+      @RequestBody List<FulfillItem> items) {
+    if (items == null || items.isEmpty() || items.size() > MAX_BULK_FULFILL_ITEMS) {
+      Map<String, Object> body = new HashMap<>();
+      body.put("error", "Expected between 1 and " + MAX_BULK_FULFILL_ITEMS + " items.");
+      return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+
+    Optional<ClientProfile> clientOptional = profileCache.findClient(clientId);
+    if (clientOptional.isEmpty()) {
+      Map<String, Object> body = new HashMap<>();
+      body.put("error", "Client ID not found.");
+      return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
+    }
+    ClientProfile client = clientOptional.get();
+
+    // Items with invalid quantities are never sent to the database
+    List<FulfillItem> valid = new ArrayList<>();
+    for (FulfillItem item : items) {
+      if (item.quantity() > 0) {
+        valid.add(item);
+      }
+    }
+    boolean allValid = valid.size() == items.size();
+    int[] counts;
+    if (!atomic) {
+      counts = foodListingRepository.decrementQuantitiesListed(client, valid);
+    } else if (allValid) {
+      counts = transactionTemplate.execute(status -> {
+        int[] applied = foodListingRepository.decrementQuantitiesListed(client, valid);
+        for (int count : applied) {
+          if (count == 0) {
+            status.setRollbackOnly();
+          }
+        }
+        return applied;
+      });
+    } else {
+      // Nothing is tried, since some item cannot be fulfilled anyway
+      counts = null;
+    }
+    boolean committed = !atomic;
+    if (counts != null && atomic) {
+      committed = Arrays.stream(counts).allMatch(count -> count > 0);
+    }
+
+    // The listings are read after the updates, so they reflect the new quantities listed
+    Map<Integer, FoodListing> listings = new HashMap<>();
+    for (FoodListing listing : foodListingRepository.findByClientAndListingIdIn(client,
+        items.stream().map(FulfillItem::listingId).distinct().toList())) {
+      listings.put(listing.getListingId(), listing);
+    }
+    List<FulfillResult> results = new ArrayList<>(items.size());
+    int next = 0;
+    for (FulfillItem item : items) {
+      FoodListing listing = listings.get(item.listingId());
+      Integer quantityListed = listing == null ? null : listing.getQuantityListed();
+      FulfillResult.Status status;
+      if (item.quantity() <= 0) {
+        status = FulfillResult.Status.INVALID_QUANTITY;
+      } else if (counts == null) {
+        status = FulfillResult.Status.ROLLED_BACK;
+      } else {
+        if (counts[next] == 0) {
+          status = listing == null ? FulfillResult.Status.NOT_FOUND
+              : FulfillResult.Status.INSUFFICIENT_QUANTITY;
+        } else {
+          status = committed ? FulfillResult.Status.FULFILLED : FulfillResult.Status.ROLLED_BACK;
+        }
+        if (status == FulfillResult.Status.FULFILLED) {
+          inventoryLanes.forget(item.listingId());
+        }
+        next++;
+      }
+      results.add(new FulfillResult(item.listingId(), item.quantity(), status, quantityListed));
+    }
+
+    if (committed) {
+      for (FoodListing listing : listings.values()) {
+        listingSpatialIndex.update(client, listing);
+        nearbySearchCache.invalidate(client, listing.getLatitude(), listing.getLongitude());
+      }
+    }
+    return new ResponseEntity<>(results, committed ? HttpStatus.OK : HttpStatus.BAD_REQUEST);
+  }
+
   /**
    * API endpoint for updating the food type, latitude, longitude, and/or quantity listed of a
    * listing with `listingId` under an account with `accountId` in the client with `clientId`.
@@ -334,8 +830,8 @@ public class FoodListingController {
    * @return If there is no listing with `listingId` under an account with `accountId` in the client
    *     with `clientId`, returns a ResponseEntity with status code NOT_FOUND. If the account with
    *     `accountId` is not of type `AccountType.PROVIDER`, returns with status code UNAUTHORIZED.
-   *     If the listing was successfully updated, returns with status code OK and a corresponding
-   *     message.
+   *     If the listing kept being updated concurrently, returns with status code CONFLICT. If the
+   *     listing was successfully updated, returns with status code OK and a corresponding message.
    */
   @PatchMapping("/updateFoodListing")
   public ResponseEntity<?> updateFoodListing(
@@ -347,16 +843,15 @@ public class FoodListingController {
   ) {
 
     // Fetch client and account data from database
-    Optional<ClientProfile> clientOptional = clientProfileRepository.findById(clientId);
-    Optional<AccountProfile> accountOptional = accountProfileRepository.findById(accountId);
-    if (clientOptional.isEmpty() || accountOptional.isEmpty()) {
+    Optional<AccountProfile> accountOptional = profileCache.findAccount(clientId, accountId);
+    if (accountOptional.isEmpty()) {
       Map<String, Object> body = new HashMap<>();
       body.put("error", "Client ID or account ID not found.");
       return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
     }
 
-    ClientProfile client = clientOptional.get();
     AccountProfile account = accountOptional.get();
+    ClientProfile client = account.getClient();
 
     // Only a provider should be calling this endpoint
     if (account.getAccountType() != AccountProfile.AccountType.PROVIDER) {
@@ -365,17 +860,40 @@ public class FoodListingController {
       return new ResponseEntity<>(body, HttpStatus.UNAUTHORIZED);
     }
 
+    // Re-read and re-apply the update if the listing was updated concurrently
+    try {
+      return optimisticRetry.run(() -> applyListingUpdate(client, account, listingId, newFoodType,
+          newLatitude, newLongitude, newQuantityListed));
+    } catch (OptimisticLockingFailureException e) {
+      Map<String, Object> body = new HashMap<>();
+      body.put("error", "Listing with ID " + listingId + " is being updated concurrently. "
+          + "Try again later.");
+      return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
+  }
+
+  /**
+   * Reads the listing with `listingId` under `account` in `client` and applies the update of
+   * {@link #updateFoodListing} to it. Throws an OptimisticLockingFailureException if the listing
+   * was updated concurrently after it was read.
+   */
+  private ResponseEntity<?> applyListingUpdate(ClientProfile client, AccountProfile account,
+      int listingId, String newFoodType, Float newLatitude, Float newLongitude,
+      Integer newQuantityListed) {
     // Find the specified listing
     Optional<FoodListing> listingOptional =
         foodListingRepository.findByClientAndAccountAndListingId(client, account, listingId);
     if (listingOptional.isEmpty()) {
       Map<String, Object> body = new HashMap<>();
       body.put("error", "Listing with ID " + listingId + " not found "
-          + "under client with ID " + clientId + " and account with ID " + accountId + ".");
+          + "under client with ID " + client.getClientId() + " and account with ID "
+          + account.getAccountId() + ".");
       return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
     }
 
     FoodListing listing = listingOptional.get();
+    final float oldLatitude = listing.getLatitude();
+    final float oldLongitude = listing.getLongitude();
     if (newFoodType != null) {
       listing.setFoodType(newFoodType);
     }
@@ -390,12 +908,190 @@ public class FoodListingController {
     }
 
     foodListingRepository.save(listing);
+    inventoryLanes.forget(listingId);
+    listingSpatialIndex.update(client, listing);
+    nearbySearchCache.invalidate(client, oldLatitude, oldLongitude);
+    nearbySearchCache.invalidate(client, listing.getLatitude(), listing.getLongitude());
     Map<String, Object> body = new HashMap<>();
     body.put("message", "Updated Successfully.");
     return new ResponseEntity<>(body, HttpStatus.OK);
   }
 
 
+  /**
+   * Fetches the listings in the client with `clientId` that may be within `radiusKm` of
+   * (`latitude`, `longitude`). Only the listings in grid cells overlapping the search circle
+   * (unless it covers too many cells) and inside its bounding box are fetched; callers still need
+   * to check the exact distance of each listing. Listings not passing `filter` are left out by
+   * the database query. If the spatial index is enabled, the candidates are looked up in it
+   * instead and only those passing `filter` are loaded. Otherwise, searches with small enough
+   * radii are served from the nearby search cache when possible.
+   */
+  private List<FoodListing> findCandidateListings(ClientProfile client, float latitude,
+      float longitude, double radiusKm, ListingFilter filter) {
+    if (listingSpatialIndex.isEnabled()) {
+      return findListingsMatching(client,
+          listingSpatialIndex.findCandidateIds(client, latitude, longitude, radiusKm), filter);
+    }
+    if (nearbySearchCache.covers(latitude, radiusKm)) {
+      return nearbySearchCache.getCandidates(client, latitude, longitude, radiusKm, filter,
+          (centerLatitude, centerLongitude, cacheRadiusKm) ->
+              findListingsNear(client, centerLatitude, centerLongitude, cacheRadiusKm, filter));
+    }
+    return findListingsNear(client, latitude, longitude, radiusKm, filter);
+  }
+
+  /**
+   * Fetches the listings in `client` with the given IDs that pass `filter`, in no particular order.
+   */
+  private List<FoodListing> findListingsMatching(ClientProfile client, List<Integer> listingIds,
+      ListingFilter filter) {
+    if (listingIds.isEmpty()) {
+      return List.of();
+    }
+    return foodListingRepository.findByClientAndListingIdInMatching(client, listingIds, filter);
+  }
+
+  /**
+   * Fetches the listings in `client` passing `filter` in the grid cells and bounding box of the
+   * circle of radius `radiusKm` around (`latitude`, `longitude`).
+   */
+  private List<FoodListing> findListingsNear(ClientProfile client, double latitude,
+      double longitude, double radiusKm, ListingFilter filter) {
+    Optional<List<Long>> cells = GeoGrid.cellsCovering(latitude, longitude, radiusKm);
+    GeoGrid.BoundingBox box = GeoGrid.boundingBox(latitude, longitude, radiusKm);
+    if (cells.isPresent()) {
+      return foodListingRepository.findInCellsAndBoundingBox(client, cells.get(),
+          box.minLatitude(), box.maxLatitude(), box.minLongitude(), box.maxLongitude(), filter);
+    }
+    return foodListingRepository.findInBoundingBox(client,
+        box.minLatitude(), box.maxLatitude(), box.minLongitude(), box.maxLongitude(), filter);
+  }
+
+  /**
+   * Finds the (up to) `count` listings in `client` closest to (`latitude`, `longitude`) within
+   * `maxRadiusKm` that pass `filter`, sorted from closest to farthest with ties broken by listing
+   * ID. If `after` is given, only listings after it in that order are considered. The search
+   * starts with a small radius and widens it until `count` listings are found, keeping only the
+   * best `count` seen so far in a heap instead of sorting every match. Every listing within the
+   * radius is still read, including the ones before `after`, so deep pages cost more than the
+   * first unless the spatial index is enabled.
+   */
+  private List<ListingDistance> findClosestListings(ClientProfile client, float latitude,
+      float longitude, int count, double maxRadiusKm, NearbyCursor after, ListingFilter filter) {
+    if (listingSpatialIndex.isEnabled()) {
+      return findClosestIndexedListings(client, latitude, longitude, count, maxRadiusKm, after,
+          filter);
+    }
+    // Max-heap holding the `count` closest listings seen so far, farthest on top
+    Queue<ListingDistance> closest = new PriorityQueue<>(count, LISTING_DISTANCE_ORDER.reversed());
+    double radius = Math.min(maxRadiusKm,
+        (after == null ? 0 : after.distance()) + NEAREST_INITIAL_RADIUS_KM);
+    while (true) {
+      closest.clear();
+      List<FoodListing> candidateListings =
+          findCandidateListings(client, latitude, longitude, radius, filter);
+      // Listings outside of the radius may not be the closest ones, since closer listings
+      // outside of the searched cells have not been fetched yet
+      double[] distances = distancesWithin(candidateListings, latitude, longitude, radius);
+      for (int i = 0; i < distances.length; i++) {
+        FoodListing listing = candidateListings.get(i);
+        double distance = distances[i];
+        if (distance > radius || !filter.matches(listing)
+            || after != null && !after.isBefore(distance, listing.getListingId())) {
+          continue;
+        }
+        ListingDistance candidate = new ListingDistance(listing, distance);
+        if (closest.size() < count) {
+          closest.add(candidate);
+        } else if (LISTING_DISTANCE_ORDER.compare(candidate, closest.peek()) < 0) {
+          closest.poll();
+          closest.add(candidate);
+        }
+      }
+      if (closest.size() == count || radius >= maxRadiusKm) {
+        break;
+      }
+      radius = Math.min(radius * 4, maxRadiusKm);
+    }
+
+    // Polling the max-heap yields the farthest listing first
+    List<ListingDistance> sorted = new ArrayList<>(closest.size());
+    while (!closest.isEmpty()) {
+      sorted.add(closest.poll());
+    }
+    Collections.reverse(sorted);
+    return sorted;
+  }
+
+  /**
+   * Does the work of {@link #findClosestListings} with the spatial index enabled. The index
+   * selects the closest listings after `after` without reading any listing, and those passing
+   * `filter` are loaded, `count` candidates at a time until `count` of them pass. Without a filter
+   * that rejects listings, a page therefore costs time proportional to its size.
+   */
+  private List<ListingDistance> findClosestIndexedListings(ClientProfile client, float latitude,
+      float longitude, int count, double maxRadiusKm, NearbyCursor after, ListingFilter filter) {
+    List<ListingDistance> closest = new ArrayList<>(count);
+    NearbyCursor position = after;
+    while (closest.size() < count) {
+      List<KdTree.Neighbor> neighbors = listingSpatialIndex.findNearest(client, latitude,
+          longitude, count, maxRadiusKm, position);
+      List<Integer> ids = new ArrayList<>(neighbors.size());
+      for (KdTree.Neighbor neighbor : neighbors) {
+        ids.add(neighbor.id());
+      }
+      Map<Integer, FoodListing> listings = new HashMap<>();
+      for (FoodListing listing : findListingsMatching(client, ids, filter)) {
+        listings.put(listing.getListingId(), listing);
+      }
+      for (KdTree.Neighbor neighbor : neighbors) {
+        FoodListing listing = listings.get(neighbor.id());
+        if (listing != null && closest.size() < count) {
+          closest.add(new ListingDistance(listing, neighbor.distance()));
+        }
+      }
+      if (neighbors.size() < count) {
+        break;
+      }
+      KdTree.Neighbor last = neighbors.get(neighbors.size() - 1);
+      position = new NearbyCursor(last.distance(), last.id());
+    }
+    return closest;
+  }
+
+  /**
+   * Computes the distance from (`latitude`, `longitude`) to each listing, using infinity for the
+   * listings farther than `radiusKm`.
+   */
+  private static double[] distancesWithin(List<FoodListing> listings, float latitude,
+      float longitude, double radiusKm) {
+    int count = listings.size();
+    float[] latitudes = new float[count];
+    float[] longitudes = new float[count];
+    for (int i = 0; i < count; i++) {
+      FoodListing listing = listings.get(i);
+      latitudes[i] = listing.getLatitude();
+      longitudes[i] = listing.getLongitude();
+    }
+    double[] distances = new double[count];
+    DistanceKernel.distancesWithin(latitude, longitude, latitudes, longitudes, count, radiusKm,
+        distances);
+    return distances;
+  }
+
+  private static ResponseEntity<?> invalidPickupWindow() {
+    Map<String, Object> body = new HashMap<>();
+    body.put("error", "Pick-up window cannot start after it ends.");
+    return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+  }
+
+  /**
+   * A food listing paired with its distance from a query location.
+   */
+  private record ListingDistance(FoodListing listing, double distance) {
+  }
+
   /**
    * Redirects to the homepage.
    *
@@ -1,22 +1,30 @@
 package dev.coms4156.project.teamproject.controller;
 
+import dev.coms4156.project.teamproject.cache.ProfileCache;
+import dev.coms4156.project.teamproject.concurrency.OptimisticRetry;
 import dev.coms4156.project.teamproject.model.AccountProfile;
 import dev.coms4156.project.teamproject.model.ClientProfile;
 import dev.coms4156.project.teamproject.model.FoodListing;
 import dev.coms4156.project.teamproject.model.FoodRequest;
-import dev.coms4156.project.teamproject.repository.AccountProfileRepository;
-import dev.coms4156.project.teamproject.repository.ClientProfileRepository;
+import dev.coms4156.project.teamproject.model.RequestItem;
+import dev.coms4156.project.teamproject.model.RequestView;
 import dev.coms4156.project.teamproject.repository.FoodListingRepository;
 import dev.coms4156.project.teamproject.repository.FoodRequestRepository;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -32,27 +40,29 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/foodRequests")
 public class FoodRequestController {
 
+  private static final int MAX_BATCH_CREATE_ITEMS = 1000;
+
   private final FoodRequestRepository foodRequestRepository;
-  private final ClientProfileRepository clientProfileRepository;
-  private final AccountProfileRepository accountProfileRepository;
+  private final ProfileCache profileCache;
   private final FoodListingRepository foodListingRepository;
+  private final OptimisticRetry optimisticRetry;
 
   /**
    * Constructs a FoodRequestController with the necessary repositories.
    *
-   * @param foodRequestRepository    the repository for managing FoodRequest entities
-   * @param clientProfileRepository  the repository for managing ClientProfile entities
-   * @param accountProfileRepository the repository for managing AccountProfile entities
-   * @param foodListingRepository    the repository for managing FoodListing entities
+   * @param foodRequestRepository the repository for managing FoodRequest entities
+   * @param profileCache          the cache of clients and accounts
+   * @param foodListingRepository the repository for managing FoodListing entities
+   * @param optimisticRetry       retries updates that conflict with concurrent ones
    */
   public FoodRequestController(FoodRequestRepository foodRequestRepository,
-      ClientProfileRepository clientProfileRepository,
-      AccountProfileRepository accountProfileRepository,
-      FoodListingRepository foodListingRepository) {
+      ProfileCache profileCache,
+      FoodListingRepository foodListingRepository,
+      OptimisticRetry optimisticRetry) {
     this.foodRequestRepository = foodRequestRepository;
-    this.clientProfileRepository = clientProfileRepository;
-    this.accountProfileRepository = accountProfileRepository;
+    this.profileCache = profileCache;
     this.foodListingRepository = foodListingRepository;
+    this.optimisticRetry = optimisticRetry;
   }
 
   /**
@@ -72,18 +82,17 @@ public class FoodRequestController {
       @RequestParam int listingId,
       @RequestParam int quantityRequested) {
 
-    Optional<ClientProfile> clientOptional = clientProfileRepository.findById(clientId);
-    Optional<AccountProfile> accountOptional = accountProfileRepository.findById(accountId);
-    Optional<FoodListing> listingOptional = foodListingRepository.findById(listingId);
-
-    if (!clientOptional.isPresent()
-        || !accountOptional.isPresent()
-        || !listingOptional.isPresent()) {
+    Optional<AccountProfile> accountOptional = profileCache.findAccount(clientId, accountId);
+    if (!accountOptional.isPresent()) {
       return new ResponseEntity<>(HttpStatus.NOT_FOUND);
     }
-
-    ClientProfile client = clientOptional.get();
     AccountProfile account = accountOptional.get();
+    ClientProfile client = account.getClient();
+    Optional<FoodListing> listingOptional =
+        foodListingRepository.findByClientAndListingId(client, listingId);
+    if (!listingOptional.isPresent()) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
     FoodListing foodListing = listingOptional.get();
 
     FoodRequest foodRequest = new FoodRequest(client, account, foodListing, quantityRequested);
@@ -92,6 +101,71 @@ public class FoodRequestController {
     return new ResponseEntity<>(foodRequest, HttpStatus.CREATED);
   }
 
+  /**
+   * Creates a FoodRequest for each of `items` on behalf of the account with `accountId` in the
+   * client with `clientId`, e.g. a shelter's requests for the day. The account and its client
+   * are looked up with one query and the listings with another, and the requests are inserted as
+   * one batch. Either every request is created or none is.
+   *
+   * @param clientId  the ID of the client making the requests
+   * @param accountId the ID of the account making the requests
+   * @param items     the listings and quantities to request, at most 1000 of them
+   * @return a ResponseEntity containing the created FoodRequests, in order, and HTTP status code
+   *     CREATED. If there is no account with `accountId` in the client with `clientId` or some
+   *     listing is not in the client, returns with status code NOT_FOUND and an error message. If
+   *     there are no items or too many, or some quantity is not positive, returns with status code
+   *     BAD_REQUEST and an error message.
+   */
+  @PostMapping("/batchCreate")
+  public ResponseEntity<?> createFoodRequests(
+      @RequestParam int clientId,
+      @RequestParam int accountId,
+      @RequestBody List<RequestItem> items) {
+    if (items == null || items.isEmpty() || items.size() > MAX_BATCH_CREATE_ITEMS) {
+      Map<String, Object> body = new HashMap<>();
+      body.put("error", "Expected between 1 and " + MAX_BATCH_CREATE_ITEMS + " items.");
+      return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+    }
+    Set<Integer> listingIds = new HashSet<>();
+    for (RequestItem item : items) {
+      if (item.quantityRequested() <= 0) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", "Quantity requested of listing with ID " + item.listingId()
+            + " must be positive.");
+        return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+      }
+      listingIds.add(item.listingId());
+    }
+
+    Optional<AccountProfile> accountOptional = profileCache.findAccount(clientId, accountId);
+    if (accountOptional.isEmpty()) {
+      Map<String, Object> body = new HashMap<>();
+      body.put("error", "Client ID or account ID not found.");
+      return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
+    }
+    AccountProfile account = accountOptional.get();
+    ClientProfile client = account.getClient();
+
+    Map<Integer, FoodListing> listings = new HashMap<>();
+    for (FoodListing listing : foodListingRepository.findByClientAndListingIdIn(client,
+        listingIds)) {
+      listings.put(listing.getListingId(), listing);
+    }
+    List<FoodRequest> foodRequests = new ArrayList<>(items.size());
+    for (RequestItem item : items) {
+      FoodListing foodListing = listings.get(item.listingId());
+      if (foodListing == null) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", "Listing with ID " + item.listingId() + " not found.");
+        return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
+      }
+      foodRequests.add(new FoodRequest(client, account, foodListing, item.quantityRequested()));
+    }
+    // Saved in one transaction, and with IDs from a pooled sequence inserted as one JDBC batch
+    foodRequestRepository.saveAll(foodRequests);
+
+    return new ResponseEntity<>(foodRequests, HttpStatus.CREATED);
+  }
 
   /**
    * Retrieves a FoodRequest by its requestId.
@@ -127,28 +201,40 @@ public class FoodRequestController {
   }
 
   /**
-   * TODO: Fill this in.
+   * Retrieves the FoodRequests made by the account with accountId in the client with clientId. If
+   * limit or afterId is given, the requests are returned one page at a time, sorted by ID.
+   *
+   * @param clientId  the ID of the client
+   * @param accountId the ID of the account that made the requests
+   * @param limit     the number of requests per page, between 1 and 1000; defaults to 20 if only
+   *                  afterId is given
+   * @param afterId   the nextAfterId returned with the previous page
+   * @return a ResponseEntity containing the requests, or a page of them along with the nextAfterId
+   *     of the next page (null on the last page), and HTTP status code OK. If the client or
+   *     account is not found or the account has made no requests, returns with status code
+   *     NOT_FOUND, and if limit is out of range, with status code BAD_REQUEST.
    */
   @GetMapping("/getUnderAccount")
-  public ResponseEntity<?> getFoodRequestsUnderAccount(@RequestParam int clientId, @RequestParam int accountId) {
+  public ResponseEntity<?> getFoodRequestsUnderAccount(@RequestParam int clientId,
+      @RequestParam int accountId, @RequestParam(required = false) Integer limit,
+      @RequestParam(required = false) Integer afterId) {
+    if (!KeysetPaging.hasValidLimit(limit)) {
+      return KeysetPaging.invalidLimit();
+    }
 
-    Optional<ClientProfile> clientOptional = clientProfileRepository.findById(clientId);
-    Optional<AccountProfile> accountOptional = accountProfileRepository.findById(accountId);
-    if (clientOptional.isEmpty() || accountOptional.isEmpty()) {
+    Optional<AccountProfile> accountOptional = profileCache.findAccount(clientId, accountId);
+    if (accountOptional.isEmpty()) {
       Map<String, Object> body = new HashMap<>();
       body.put("error", "Client ID or account ID not found.");
       return new ResponseEntity<>(body, HttpStatus.NOT_FOUND);
     }
 
-    ClientProfile client = clientOptional.get();
     AccountProfile account = accountOptional.get();
-    List<FoodRequest> accountListings = foodRequestRepository.findByClientAndAccount(client,
-        account);
-    if (!accountListings.isEmpty()) {
-      return ResponseEntity.ok().body(accountListings);
-    } else {
-      return ResponseEntity.notFound().build();
-    }
+    ClientProfile client = account.getClient();
+    Slice<RequestView> accountRequests = foodRequestRepository.findViewsByClientAndAccount(client,
+        account, KeysetPaging.after(afterId), KeysetPaging.pageable(limit, afterId));
+    return KeysetPaging.respond(accountRequests, limit, afterId, "requests",
+        RequestView::requestId);
   }
 
   /**
@@ -157,23 +243,33 @@ public class FoodRequestController {
    * @param requestId         the ID of the food request to update
    * @param quantityRequested the new quantity of food requested
    * @return ResponseEntity containing a success message and HTTP status code, or an error message
-   *     and HTTP status code if the request ID was not found
+   *     and HTTP status code if the request ID was not found or the request kept being updated
+   *     concurrently
    */
   @PutMapping("/update")
   public ResponseEntity<?> updateFoodRequest(
       @RequestParam int requestId,
       @RequestParam int quantityRequested) {
 
-    Optional<FoodRequest> foodRequestOptional = foodRequestRepository.findById(requestId);
-    if (!foodRequestOptional.isPresent()) {
-      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-    }
+    // Re-read and re-apply the update if the request was updated concurrently
+    try {
+      return optimisticRetry.run(() -> {
+        Optional<FoodRequest> foodRequestOptional = foodRequestRepository.findById(requestId);
+        if (!foodRequestOptional.isPresent()) {
+          return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
 
-    FoodRequest foodRequest = foodRequestOptional.get();
-    foodRequest.setQuantityRequested(quantityRequested);
-    foodRequestRepository.save(foodRequest);
-    Map<String, Object> body = new HashMap<>();
-    body.put("message", "Updated Successfully.");
-    return new ResponseEntity<>(body, HttpStatus.OK);
+        FoodRequest foodRequest = foodRequestOptional.get();
+        foodRequest.setQuantityRequested(quantityRequested);
+        foodRequestRepository.save(foodRequest);
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", "Updated Successfully.");
+        return new ResponseEntity<>(body, HttpStatus.OK);
+      });
+    } catch (OptimisticLockingFailureException e) {
+      Map<String, Object> body = new HashMap<>();
+      body.put("error", "Food request is being updated concurrently. Try again later.");
+      return new ResponseEntity<>(body, HttpStatus.CONFLICT);
+    }
   }
 }
@@ -0,0 +1,104 @@
+package dev.coms4156.project.teamproject.controller;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Keyset pagination of the endpoints that list listings, requests or donations. A page is
+ * requested with a `limit` and/or the `afterId` of the last item of the previous page, and holds
+ * the items with the next larger IDs, in order. The database reads each page from the position of
+ * `afterId` in an index on (client_id, ..., id), so deep pages are as fast as the first and a page
+ * never holds more than `limit` items. Without either parameter, the items are returned as a
+ * plain list, which is deprecated: to bound the memory of each request, calls matching more than
+ * {@link #MAX_UNPAGED} items are rejected and have to page instead.
+ */
+final class KeysetPaging {
+
+  static final int DEFAULT_LIMIT = 20;
+  static final int MAX_LIMIT = 1000;
+  static final int MAX_UNPAGED = 10000;
+
+  private KeysetPaging() {
+  }
+
+  /**
+   * Returns whether a page was requested rather than every item.
+   */
+  static boolean isPaged(Integer limit, Integer afterId) {
+    return limit != null || afterId != null;
+  }
+
+  static boolean hasValidLimit(Integer limit) {
+    return limit == null || limit > 0 && limit <= MAX_LIMIT;
+  }
+
+  static ResponseEntity<?> invalidLimit() {
+    Map<String, Object> body = new HashMap<>();
+    body.put("error", "Limit must be between 1 and " + MAX_LIMIT + ".");
+    return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+  }
+
+  private static ResponseEntity<?> tooManyUnpaged() {
+    Map<String, Object> body = new HashMap<>();
+    body.put("error", "More than " + MAX_UNPAGED
+        + " items match; pass limit and/or afterId to get them one page at a time.");
+    return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+  }
+
+  /**
+   * Returns the ID after which the page starts. IDs are positive, so the first page starts after
+   * 0.
+   */
+  static int after(Integer afterId) {
+    return afterId != null ? afterId : 0;
+  }
+
+  static Pageable pageable(Integer limit, Integer afterId) {
+    if (!isPaged(limit, afterId)) {
+      return PageRequest.of(0, MAX_UNPAGED);
+    }
+    return PageRequest.of(0, limit != null ? limit : DEFAULT_LIMIT);
+  }
+
+  /**
+   * Builds the response of a list endpoint. A page is returned along with the `nextAfterId` to
+   * request the next page with, which is null on the last page. Otherwise, the items are returned
+   * as a list, or BAD_REQUEST if there are more than {@link #MAX_UNPAGED} of them (the slice
+   * having been read with {@link #pageable}), so that no client silently gets a partial list.
+   * Returns NOT_FOUND if there are no items at all.
+   */
+  static <T> ResponseEntity<?> respond(Slice<T> slice, Integer limit, Integer afterId,
+      String itemsKey, ToIntFunction<T> id) {
+    return respond(slice, limit, afterId, itemsKey, id, true);
+  }
+
+  /**
+   * Builds the response of a list endpoint like {@link #respond(Slice, Integer, Integer, String,
+   * ToIntFunction)}, but with no items at all returns OK unless `notFoundIfEmpty`.
+   */
+  static <T> ResponseEntity<?> respond(Slice<T> slice, Integer limit, Integer afterId,
+      String itemsKey, ToIntFunction<T> id, boolean notFoundIfEmpty) {
+    List<T> items = slice.getContent();
+    if (!isPaged(limit, afterId)) {
+      if (slice.hasNext()) {
+        return tooManyUnpaged();
+      }
+      return items.isEmpty() && notFoundIfEmpty
+          ? ResponseEntity.notFound().build() : ResponseEntity.ok().body(items);
+    }
+    if (items.isEmpty() && afterId == null && notFoundIfEmpty) {
+      return ResponseEntity.notFound().build();
+    }
+    Map<String, Object> body = new HashMap<>();
+    body.put(itemsKey, items);
+    body.put("nextAfterId", slice.hasNext() ? id.applyAsInt(items.get(items.size() - 1)) : null);
+    return ResponseEntity.ok().body(body);
+  }
+}
@@ -0,0 +1,226 @@
+package dev.coms4156.project.teamproject.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingRequestWrapper;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+/**
+ * Makes the endpoints that create listings and requests or fulfill requests idempotent for
+ * clients that send an `Idempotency-Key` header. The response to the first request with a key is
+ * recorded in the {@link IdempotencyStore}, and later requests to the same endpoint with the same
+ * key (e.g. retries after a dropped connection) get that response back without being processed
+ * again. Replayed responses carry an `Idempotent-Replayed: true` header.
+ *
+ * <p>A key reused for a request with different parameters or body is rejected with status code
+ * UNPROCESSABLE_ENTITY, and a request whose key is still being processed with status code
+ * CONFLICT. Responses with a 5xx status code are not recorded, so that those requests can be
+ * retried. Requests without the header are processed as usual.
+ *
+ * <p>While a request is processed, the lease on its key is renewed three times per lease, so that
+ * a retry never takes over the key of a slow request (e.g. a large bulk upload) that is still
+ * running. Only a request whose instance stopped loses its key once the lease runs out.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+  /**
+   * The header carrying the idempotency key.
+   */
+  public static final String HEADER = "Idempotency-Key";
+
+  /**
+   * The header set on replayed responses.
+   */
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+  // Leaves room for the endpoint in the stored key
+  private static final int MAX_KEY_LENGTH = 200;
+  private static final Set<String> ENDPOINTS = Set.of(
+      "POST /createFoodListing",
+      "POST /createFoodListings",
+      "POST /api/foodRequests/create",
+      "POST /api/foodRequests/batchCreate",
+      "PATCH /fulfillRequest",
+      "PATCH /fulfillRequests");
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private static final Logger LOG = LoggerFactory.getLogger(IdempotencyFilter.class);
+
+  private final IdempotencyStore idempotencyStore;
+  private final long renewMillis;
+  private final ScheduledExecutorService renewer;
+
+  /**
+   * Constructs the filter and starts the thread renewing leases.
+   *
+   * @param idempotencyStore the store recording the responses
+   * @param leaseSeconds     how long the store holds a key for a request that has not completed,
+   *                         in seconds
+   */
+  @Autowired
+  public IdempotencyFilter(IdempotencyStore idempotencyStore,
+      @Value("${mealmatch.idempotency.lease-seconds:60}") long leaseSeconds) {
+    if (leaseSeconds < 1) {
+      throw new IllegalArgumentException("Expected a lease of at least one second.");
+    }
+    this.idempotencyStore = idempotencyStore;
+    this.renewMillis = TimeUnit.SECONDS.toMillis(leaseSeconds) / 3;
+    this.renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "idempotency-lease-renewer");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Stops the thread renewing leases.
+   */
+  @PreDestroy
+  public void close() {
+    renewer.shutdownNow();
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return request.getHeader(HEADER) == null || !ENDPOINTS.contains(endpoint(request));
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    String key = request.getHeader(HEADER);
+    if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+      writeError(response, HttpStatus.BAD_REQUEST,
+          HEADER + " must have between 1 and " + MAX_KEY_LENGTH + " characters.");
+      return;
+    }
+
+    String storeKey = endpoint(request) + " " + key;
+    IdempotencyStore.Reservation reservation = idempotencyStore.reserve(storeKey);
+    switch (reservation.state()) {
+      case IN_PROGRESS:
+        writeError(response, HttpStatus.CONFLICT,
+            "A request with this " + HEADER + " is still being processed.");
+        break;
+      case COMPLETED:
+        replay(request, response, reservation.response());
+        break;
+      default:
+        process(request, response, filterChain, storeKey);
+        break;
+    }
+  }
+
+  private void process(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain, String storeKey) throws ServletException, IOException {
+    ContentCachingRequestWrapper cachingRequest = new ContentCachingRequestWrapper(request);
+    ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+    boolean recorded = false;
+    ScheduledFuture<?> renewal = renewer.scheduleWithFixedDelay(() -> renewQuietly(storeKey),
+        renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+    try {
+      filterChain.doFilter(cachingRequest, cachingResponse);
+      if (cachingResponse.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+        idempotencyStore.complete(storeKey, new IdempotencyStore.StoredResponse(
+            cachingResponse.getStatus(), cachingResponse.getContentType(),
+            cachingResponse.getContentAsByteArray(),
+            fingerprint(cachingRequest, cachingRequest.getContentAsByteArray())));
+        recorded = true;
+      }
+    } finally {
+      renewal.cancel(false);
+      if (!recorded) {
+        idempotencyStore.release(storeKey);
+      }
+      cachingResponse.copyBodyToResponse();
+    }
+  }
+
+  private void renewQuietly(String storeKey) {
+    try {
+      idempotencyStore.renew(storeKey);
+    } catch (RuntimeException e) {
+      // Keeps the renewals going; the lease only runs out if they keep failing
+      LOG.warn("Could not renew the lease on an idempotency key.", e);
+    }
+  }
+
+  private void replay(HttpServletRequest request, HttpServletResponse response,
+      IdempotencyStore.StoredResponse stored) throws IOException {
+    byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+    if (!fingerprint(request, body).equals(stored.fingerprint())) {
+      writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+          HEADER + " was already used for a different request.");
+      return;
+    }
+    response.setStatus(stored.status());
+    if (stored.contentType() != null) {
+      response.setContentType(stored.contentType());
+    }
+    response.setHeader(REPLAYED_HEADER, "true");
+    response.getOutputStream().write(stored.body());
+  }
+
+  private static String endpoint(HttpServletRequest request) {
+    return request.getMethod() + " "
+        + request.getRequestURI().substring(request.getContextPath().length());
+  }
+
+  /**
+   * Hashes the endpoint, parameters and body of a request. The body of a form is left out, since
+   * it is already part of the parameters.
+   */
+  private static String fingerprint(HttpServletRequest request, byte[] body) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    digest.update(endpoint(request).getBytes(StandardCharsets.UTF_8));
+    for (Map.Entry<String, String[]> parameter
+        : new TreeMap<>(request.getParameterMap()).entrySet()) {
+      digest.update(("\n" + parameter.getKey() + "=" + String.join(",", parameter.getValue()))
+          .getBytes(StandardCharsets.UTF_8));
+    }
+    String contentType = request.getContentType();
+    if (contentType == null
+        || !contentType.startsWith(MediaType.APPLICATION_FORM_URLENCODED_VALUE)) {
+      digest.update((byte) 0);
+      digest.update(body);
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  private static void writeError(HttpServletResponse response, HttpStatus status, String error)
+      throws IOException {
+    response.setStatus(status.value());
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    OBJECT_MAPPER.writeValue(response.getOutputStream(), Map.of("error", error));
+  }
+}
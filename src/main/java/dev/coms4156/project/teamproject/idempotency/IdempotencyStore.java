@@ -0,0 +1,78 @@
+package dev.coms4156.project.teamproject.idempotency;
+
+/**
+ * Remembers the responses to requests made with an idempotency key, so that a retried request
+ * gets the original response instead of being processed again. Keys are forgotten after a while.
+ *
+ * <p>A key reserved by a request that never completes, e.g. because the service was stopped while
+ * processing it, is only held for a short lease. After that, a retry reserves the key again. The
+ * lease of a request still being processed is renewed with {@link #renew}, so a slow request
+ * keeps its key however long it takes.
+ */
+public interface IdempotencyStore {
+
+  /**
+   * Reserves `key` for a request about to be processed, unless it is already known and either
+   * completed or reserved less than a lease ago.
+   *
+   * @param key the idempotency key, scoped to the endpoint
+   * @return {@link Reservation#RESERVED} if the caller should process the request, and otherwise
+   *     the state of the request that reserved the key first
+   */
+  Reservation reserve(String key);
+
+  /**
+   * Records the response to the request that reserved `key`.
+   *
+   * @param key      the idempotency key
+   * @param response the response to replay to later requests with the same key
+   */
+  void complete(String key, StoredResponse response);
+
+  /**
+   * Starts a new lease on `key` if it is still reserved by a request that has not completed.
+   *
+   * @param key the idempotency key
+   */
+  void renew(String key);
+
+  /**
+   * Forgets `key`, e.g. because the request that reserved it failed and may be retried.
+   *
+   * @param key the idempotency key
+   */
+  void release(String key);
+
+  /**
+   * A response to replay.
+   *
+   * @param status      the HTTP status code
+   * @param contentType the content type, or null if there is no body
+   * @param body        the body
+   * @param fingerprint a hash of the request, to tell a retry from another request reusing the key
+   */
+  record StoredResponse(int status, String contentType, byte[] body, String fingerprint) {
+  }
+
+  /**
+   * The outcome of {@link #reserve}.
+   *
+   * @param state    whether the caller reserved the key, or the state of the first request with it
+   * @param response the response to the first request if it has completed, and null otherwise
+   */
+  record Reservation(State state, StoredResponse response) {
+
+    /** The caller reserved the key. */
+    public static final Reservation RESERVED = new Reservation(State.RESERVED, null);
+
+    /** The first request with the key is still being processed. */
+    public static final Reservation IN_PROGRESS = new Reservation(State.IN_PROGRESS, null);
+
+    /**
+     * Whether the caller reserved a key, or the state of the first request with it.
+     */
+    public enum State {
+      RESERVED, IN_PROGRESS, COMPLETED
+    }
+  }
+}
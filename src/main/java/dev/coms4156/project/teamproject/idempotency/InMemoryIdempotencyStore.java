@@ -0,0 +1,83 @@
+package dev.coms4156.project.teamproject.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link IdempotencyStore} keeping the keys in memory, bounded in number and expiring a while
+ * after they were last written. Retries that reach another instance of the service are not
+ * recognized, so with several instances `mealmatch.idempotency.store` should be set to
+ * `database`.
+ */
+@Component
+@ConditionalOnProperty(name = "mealmatch.idempotency.store", havingValue = "memory",
+    matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+  private final Cache<String, Entry> entries;
+  private final long leaseNanos;
+
+  /**
+   * Constructs the store.
+   *
+   * @param maxKeys      the maximum number of keys remembered
+   * @param ttlSeconds   how long a key is remembered after it was last written, in seconds
+   * @param leaseSeconds how long a key is held for a request that has not completed, in seconds
+   */
+  @Autowired
+  public InMemoryIdempotencyStore(
+      @Value("${mealmatch.idempotency.max-keys:100000}") long maxKeys,
+      @Value("${mealmatch.idempotency.ttl-seconds:86400}") long ttlSeconds,
+      @Value("${mealmatch.idempotency.lease-seconds:60}") long leaseSeconds) {
+    this.entries = Caffeine.newBuilder()
+        .maximumSize(maxKeys)
+        .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+        .build();
+    this.leaseNanos = Duration.ofSeconds(leaseSeconds).toNanos();
+  }
+
+  @Override
+  public Reservation reserve(String key) {
+    long now = System.nanoTime();
+    boolean[] reserved = new boolean[1];
+    Entry current = entries.asMap().compute(key, (unused, existing) -> {
+      reserved[0] = existing == null
+          || existing.response() == null && now - existing.reservedAt() >= leaseNanos;
+      return reserved[0] ? new Entry(null, now) : existing;
+    });
+    if (reserved[0]) {
+      return Reservation.RESERVED;
+    }
+    return current.response() == null ? Reservation.IN_PROGRESS
+        : new Reservation(Reservation.State.COMPLETED, current.response());
+  }
+
+  @Override
+  public void complete(String key, StoredResponse response) {
+    entries.put(key, new Entry(response, System.nanoTime()));
+  }
+
+  @Override
+  public void renew(String key) {
+    long now = System.nanoTime();
+    entries.asMap().computeIfPresent(key, (unused, existing) ->
+        existing.response() == null ? new Entry(null, now) : existing);
+  }
+
+  @Override
+  public void release(String key) {
+    entries.invalidate(key);
+  }
+
+  /**
+   * The response to the request with a key, or null while it is in progress, and when the key was
+   * last reserved or completed, in {@link System#nanoTime} units.
+   */
+  private record Entry(StoredResponse response, long reservedAt) {
+  }
+}
@@ -0,0 +1,105 @@
+package dev.coms4156.project.teamproject.idempotency;
+
+import dev.coms4156.project.teamproject.model.IdempotencyRecord;
+import dev.coms4156.project.teamproject.repository.IdempotencyRecordRepository;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link IdempotencyStore} keeping the keys in the `idempotency_record` table, so that every
+ * instance of the service recognizes retries. Keys expire a while after they are reserved; expired
+ * records are deleted at most once a minute, as keys are reserved. A record without a response is
+ * taken over by the first retry once its lease has expired.
+ */
+@Component
+@ConditionalOnProperty(name = "mealmatch.idempotency.store", havingValue = "database")
+public class JpaIdempotencyStore implements IdempotencyStore {
+
+  private static final long PURGE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  private final IdempotencyRecordRepository idempotencyRecordRepository;
+  private final Duration ttl;
+  private final Duration lease;
+  private final AtomicLong lastPurge = new AtomicLong(System.nanoTime() - PURGE_INTERVAL_NANOS);
+
+  /**
+   * Constructs the store.
+   *
+   * @param idempotencyRecordRepository the repository the keys are kept in
+   * @param ttlSeconds                  how long a key is remembered after it is reserved, in
+   *                                    seconds
+   * @param leaseSeconds                how long a key is held for a request that has not
+   *                                    completed, in seconds
+   */
+  @Autowired
+  public JpaIdempotencyStore(IdempotencyRecordRepository idempotencyRecordRepository,
+      @Value("${mealmatch.idempotency.ttl-seconds:86400}") long ttlSeconds,
+      @Value("${mealmatch.idempotency.lease-seconds:60}") long leaseSeconds) {
+    this.idempotencyRecordRepository = idempotencyRecordRepository;
+    this.ttl = Duration.ofSeconds(ttlSeconds);
+    this.lease = Duration.ofSeconds(leaseSeconds);
+  }
+
+  @Override
+  public Reservation reserve(String key) {
+    LocalDateTime now = LocalDateTime.now();
+    purgeExpired(now);
+    Optional<IdempotencyRecord> existing = idempotencyRecordRepository.findById(key);
+    if (existing.isPresent()) {
+      IdempotencyRecord record = existing.get();
+      if (!record.getCreatedAt().isBefore(now.minus(ttl))) {
+        if (record.getStatus() != null) {
+          return new Reservation(Reservation.State.COMPLETED, new StoredResponse(
+              record.getStatus(), record.getContentType(), record.getBody(),
+              record.getFingerprint()));
+        }
+        // Only one of the retries racing for an expired lease takes it over
+        return idempotencyRecordRepository.takeOverReservation(key, now.minus(lease), now) == 1
+            ? Reservation.RESERVED : Reservation.IN_PROGRESS;
+      }
+      idempotencyRecordRepository.delete(record);
+    }
+    try {
+      idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord(key, now));
+      return Reservation.RESERVED;
+    } catch (DataIntegrityViolationException e) {
+      // Another request reserved the key in between
+      return Reservation.IN_PROGRESS;
+    }
+  }
+
+  @Override
+  public void complete(String key, StoredResponse response) {
+    idempotencyRecordRepository.findById(key).ifPresent(record -> {
+      record.complete(response.status(), response.contentType(), response.body(),
+          response.fingerprint());
+      idempotencyRecordRepository.save(record);
+    });
+  }
+
+  @Override
+  public void renew(String key) {
+    idempotencyRecordRepository.renewReservation(key, LocalDateTime.now());
+  }
+
+  @Override
+  public void release(String key) {
+    idempotencyRecordRepository.deleteById(key);
+  }
+
+  private void purgeExpired(LocalDateTime now) {
+    long last = lastPurge.get();
+    long nanos = System.nanoTime();
+    if (nanos - last >= PURGE_INTERVAL_NANOS && lastPurge.compareAndSet(last, nanos)) {
+      idempotencyRecordRepository.deleteCreatedBefore(now.minus(ttl));
+    }
+  }
+}
@@ -0,0 +1,531 @@
+package dev.coms4156.project.teamproject.index;
+
+import dev.coms4156.project.teamproject.model.DistanceKernel;
+import dev.coms4156.project.teamproject.model.Location;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+/**
+ * Two-dimensional KD-tree of locations keyed by ID. Levels alternate between splitting on latitude
+ * (even depths) and on longitude (odd depths); each node's left subtree holds the locations with a
+ * smaller coordinate on its splitting axis and its right subtree the rest. Locations sharing a
+ * coordinate are told apart by ID, so that many listings at the same spot still split evenly.
+ *
+ * <p>The tree is maintained incrementally. Removed locations are only marked as removed until they
+ * outnumber the live ones, at which point the whole tree is rebuilt. An insert that lands too deep
+ * rebuilds the smallest unbalanced subtree on its path (as in a scapegoat tree), so lookups stay
+ * logarithmic no matter the order locations arrive in. Traversals use an explicit stack rather
+ * than recursion. This class is not thread-safe.
+ */
+public class KdTree {
+
+  // A subtree is unbalanced once one of its children holds more than this fraction of it
+  private static final double BALANCE = 0.7;
+  private static final double RADIANS_PER_DEGREE = Math.PI / 180;
+  // Relative slack on the distance bounds of a subtree, so that rounding never skips a location
+  private static final double BOUND_SLACK = 1e-9;
+  private static final Comparator<Neighbor> NEIGHBOR_ORDER =
+      Comparator.comparingDouble(Neighbor::distance).thenComparingInt(Neighbor::id);
+
+  private final Map<Integer, Node> nodes = new HashMap<>();
+  private Node root;
+  private int removedCount;
+
+  /**
+   * Returns the number of locations in the tree.
+   *
+   * @return the number of locations
+   */
+  public int size() {
+    return nodes.size();
+  }
+
+  /**
+   * Returns whether the tree has a location with the given ID.
+   *
+   * @param id the ID of the location
+   * @return whether the location is in the tree
+   */
+  public boolean contains(int id) {
+    return nodes.containsKey(id);
+  }
+
+  /**
+   * Inserts the location with the given ID, or moves it if it is already in the tree.
+   *
+   * @param id        the ID of the location
+   * @param latitude  the latitude of the location
+   * @param longitude the longitude of the location
+   */
+  public void put(int id, float latitude, float longitude) {
+    Node existing = nodes.get(id);
+    if (existing != null) {
+      if (existing.latitude == latitude && existing.longitude == longitude) {
+        return;
+      }
+      existing.removed = true;
+      removedCount++;
+    }
+
+    Node node = new Node(id, latitude, longitude);
+    nodes.put(id, node);
+    if (root == null) {
+      root = node;
+      return;
+    }
+
+    List<Node> path = new ArrayList<>();
+    Node parent = root;
+    while (true) {
+      path.add(parent);
+      parent.size++;
+      boolean left = compare(node, parent, path.size() - 1) < 0;
+      Node child = left ? parent.left : parent.right;
+      if (child == null) {
+        if (left) {
+          parent.left = node;
+        } else {
+          parent.right = node;
+        }
+        break;
+      }
+      parent = child;
+    }
+
+    if (path.size() > maxDepth()) {
+      rebalance(path, node);
+    }
+  }
+
+  /**
+   * Removes the location with the given ID, if it is in the tree.
+   *
+   * @param id the ID of the location
+   * @return whether the location was in the tree
+   */
+  public boolean remove(int id) {
+    Node node = nodes.remove(id);
+    if (node == null) {
+      return false;
+    }
+    node.removed = true;
+    removedCount++;
+    if (removedCount > nodes.size()) {
+      root = build(new ArrayList<>(nodes.values()), 0);
+      removedCount = 0;
+    }
+    return true;
+  }
+
+  /**
+   * Returns the IDs of every location inside the given box, edges included.
+   *
+   * @param minLatitude  the southern edge of the box
+   * @param maxLatitude  the northern edge of the box
+   * @param minLongitude the western edge of the box
+   * @param maxLongitude the eastern edge of the box
+   * @return the IDs of the locations inside the box, in no particular order
+   */
+  public List<Integer> findInBox(float minLatitude, float maxLatitude,
+      float minLongitude, float maxLongitude) {
+    List<Integer> ids = new ArrayList<>();
+    Deque<Visit> stack = new ArrayDeque<>();
+    if (root != null) {
+      stack.push(new Visit(root, 0));
+    }
+    while (!stack.isEmpty()) {
+      Visit visit = stack.pop();
+      Node node = visit.node();
+      if (!node.removed
+          && node.latitude >= minLatitude && node.latitude <= maxLatitude
+          && node.longitude >= minLongitude && node.longitude <= maxLongitude) {
+        ids.add(node.id);
+      }
+      // Both children can hold locations on the split itself, told apart from it by ID
+      float split = coordinate(node, visit.depth());
+      float min = visit.depth() % 2 == 0 ? minLatitude : minLongitude;
+      float max = visit.depth() % 2 == 0 ? maxLatitude : maxLongitude;
+      if (node.left != null && min <= split) {
+        stack.push(new Visit(node.left, visit.depth() + 1));
+      }
+      if (node.right != null && max >= split) {
+        stack.push(new Visit(node.right, visit.depth() + 1));
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Returns the (up to) `count` locations closest to (`latitude`, `longitude`) within
+   * `maxDistanceKm` that come after the position (`afterDistanceKm`, `afterId`) in order of
+   * distance and then ID, sorted in that order. Distances are computed like
+   * {@link DistanceKernel#distancesWithin}.
+   *
+   * <p>Subtrees lying entirely closer than the position, or farther than the `count`th closest
+   * location found so far, are skipped, so the search only visits the part of the tree around the
+   * ring between the position and the farthest location returned, however deep the position is.
+   *
+   * @param latitude        the latitude of the query location
+   * @param longitude       the longitude of the query location
+   * @param count           the maximum number of locations to return
+   * @param maxDistanceKm   the maximum distance of the locations in kilometers
+   * @param afterDistanceKm the distance of the position in kilometers, or a negative value to
+   *                        start from the closest location
+   * @param afterId         the ID of the location at the position
+   * @return the closest locations after the position and their distances, closest first
+   */
+  public List<Neighbor> findNearest(float latitude, float longitude, int count,
+      double maxDistanceKm, double afterDistanceKm, int afterId) {
+    NearestSearch search =
+        new NearestSearch(latitude, longitude, count, maxDistanceKm, afterDistanceKm, afterId);
+    search.search(root);
+    return search.sorted();
+  }
+
+  /**
+   * Rebuilds the lowest unbalanced subtree on the path to a newly inserted node.
+   */
+  private void rebalance(List<Node> path, Node inserted) {
+    Node child = inserted;
+    for (int depth = path.size() - 1; depth >= 0; depth--) {
+      Node ancestor = path.get(depth);
+      if (child.size > BALANCE * ancestor.size) {
+        List<Node> live = new ArrayList<>(ancestor.size);
+        int removed = collect(ancestor, live);
+        removedCount -= removed;
+        Node rebuilt = build(live, depth);
+        for (int i = 0; i < depth; i++) {
+          path.get(i).size -= removed;
+        }
+        if (depth == 0) {
+          root = rebuilt;
+        } else {
+          Node parent = path.get(depth - 1);
+          if (ancestor.equals(parent.left)) {
+            parent.left = rebuilt;
+          } else {
+            parent.right = rebuilt;
+          }
+        }
+        return;
+      }
+      child = ancestor;
+    }
+  }
+
+  /**
+   * Adds the live nodes of a subtree to `live` and returns how many removed nodes it had.
+   */
+  private static int collect(Node subtree, List<Node> live) {
+    int removed = 0;
+    Deque<Node> stack = new ArrayDeque<>();
+    stack.push(subtree);
+    while (!stack.isEmpty()) {
+      Node node = stack.pop();
+      if (node.removed) {
+        removed++;
+      } else {
+        live.add(node);
+      }
+      if (node.left != null) {
+        stack.push(node.left);
+      }
+      if (node.right != null) {
+        stack.push(node.right);
+      }
+    }
+    return removed;
+  }
+
+  /**
+   * Builds a balanced subtree rooted at `depth` out of the given nodes, splitting at the median.
+   */
+  private static Node build(List<Node> subtree, int depth) {
+    Node[] sorted = subtree.toArray(new Node[0]);
+    Node built = null;
+    Deque<Range> stack = new ArrayDeque<>();
+    stack.push(new Range(0, sorted.length, depth, null, false));
+    while (!stack.isEmpty()) {
+      Range range = stack.pop();
+      if (range.from() == range.to()) {
+        continue;
+      }
+      int rangeDepth = range.depth();
+      Arrays.sort(sorted, range.from(), range.to(), (a, b) -> compare(a, b, rangeDepth));
+      int median = (range.from() + range.to()) >>> 1;
+      Node node = sorted[median];
+      node.left = null;
+      node.right = null;
+      node.size = range.to() - range.from();
+      if (range.parent() == null) {
+        built = node;
+      } else if (range.left()) {
+        range.parent().left = node;
+      } else {
+        range.parent().right = node;
+      }
+      stack.push(new Range(range.from(), median, rangeDepth + 1, node, true));
+      stack.push(new Range(median + 1, range.to(), rangeDepth + 1, node, false));
+    }
+    return built;
+  }
+
+  private int maxDepth() {
+    int total = nodes.size() + removedCount;
+    return (int) (Math.log(total) / Math.log(1 / BALANCE)) + 1;
+  }
+
+  private static float coordinate(Node node, int depth) {
+    return depth % 2 == 0 ? node.latitude : node.longitude;
+  }
+
+  /**
+   * Orders two nodes by their coordinate on the splitting axis of `depth`, then by ID.
+   */
+  private static int compare(Node a, Node b, int depth) {
+    int byCoordinate = Float.compare(coordinate(a, depth), coordinate(b, depth));
+    return byCoordinate != 0 ? byCoordinate : Integer.compare(a.id, b.id);
+  }
+
+  /**
+   * A subtree still to be searched by {@link #findInBox}.
+   */
+  private record Visit(Node node, int depth) {
+  }
+
+  /**
+   * The slice `[from, to)` of the nodes being built into the `left` or right child of `parent`
+   * (the root of the rebuilt subtree when `parent` is null).
+   */
+  private record Range(int from, int to, int depth, Node parent, boolean left) {
+  }
+
+  /**
+   * A subtree still to be searched by {@link #findNearest}, whose locations are all inside the
+   * given box.
+   */
+  private record Region(Node node, int depth, double minLatitude, double maxLatitude,
+      double minLongitude, double maxLongitude) {
+  }
+
+  /**
+   * A location found by {@link #findNearest}.
+   *
+   * @param id       the ID of the location
+   * @param distance the distance of the location from the query location, in kilometers
+   */
+  public record Neighbor(int id, double distance) {
+  }
+
+  /**
+   * The state of one {@link #findNearest} search: the query, and a max-heap of the closest
+   * locations found so far, farthest on top.
+   */
+  private static final class NearestSearch {
+
+    private final double latitude;
+    private final double longitude;
+    private final double cosLatitude;
+    private final int count;
+    private final double maxDistanceKm;
+    private final double afterDistanceKm;
+    private final int afterId;
+    private final Queue<Neighbor> closest;
+
+    private NearestSearch(float latitude, float longitude, int count, double maxDistanceKm,
+        double afterDistanceKm, int afterId) {
+      this.latitude = latitude;
+      this.longitude = longitude;
+      this.cosLatitude = Math.cos(latitude * RADIANS_PER_DEGREE);
+      this.count = count;
+      this.maxDistanceKm = maxDistanceKm;
+      this.afterDistanceKm = afterDistanceKm;
+      this.afterId = afterId;
+      this.closest = new PriorityQueue<>(count + 1, NEIGHBOR_ORDER.reversed());
+    }
+
+    /**
+     * Searches the tree rooted at `root`, nearest subtrees first.
+     */
+    private void search(Node root) {
+      Deque<Region> stack = new ArrayDeque<>();
+      if (root != null) {
+        stack.push(new Region(root, 0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+      }
+      while (!stack.isEmpty()) {
+        Region region = stack.pop();
+        double limit = closest.size() < count ? maxDistanceKm : closest.peek().distance();
+        double minLatitude = region.minLatitude();
+        double maxLatitude = region.maxLatitude();
+        double minLongitude = region.minLongitude();
+        double maxLongitude = region.maxLongitude();
+        if (minDistance(minLatitude, maxLatitude, minLongitude, maxLongitude) * (1 - BOUND_SLACK)
+            > limit
+            || maxDistance(minLatitude, maxLatitude, minLongitude, maxLongitude)
+            * (1 + BOUND_SLACK) < afterDistanceKm) {
+          continue;
+        }
+        Node node = region.node();
+        if (!node.removed) {
+          consider(node);
+        }
+
+        // Left holds the smaller coordinates on the node's axis; the query's side is pushed last
+        // so that it is searched first
+        int depth = region.depth();
+        double split = coordinate(node, depth);
+        boolean onLatitude = depth % 2 == 0;
+        boolean leftFirst = (onLatitude ? latitude : longitude) < split;
+        for (int i = 0; i < 2; i++) {
+          boolean left = leftFirst != (i == 0);
+          Node child = left ? node.left : node.right;
+          if (child == null) {
+            continue;
+          }
+          if (onLatitude) {
+            stack.push(new Region(child, depth + 1, left ? minLatitude : split,
+                left ? split : maxLatitude, minLongitude, maxLongitude));
+          } else {
+            stack.push(new Region(child, depth + 1, minLatitude, maxLatitude,
+                left ? minLongitude : split, left ? split : maxLongitude));
+          }
+        }
+      }
+    }
+
+    private void consider(Node node) {
+      double distance =
+          DistanceKernel.distance(latitude, longitude, cosLatitude, node.latitude, node.longitude);
+      if (distance > maxDistanceKm
+          || distance < afterDistanceKm || distance == afterDistanceKm && node.id <= afterId) {
+        return;
+      }
+      Neighbor neighbor = new Neighbor(node.id, distance);
+      if (closest.size() < count) {
+        closest.add(neighbor);
+      } else if (NEIGHBOR_ORDER.compare(neighbor, closest.peek()) < 0) {
+        closest.poll();
+        closest.add(neighbor);
+      }
+    }
+
+    private List<Neighbor> sorted() {
+      // Polling the max-heap yields the farthest location first
+      List<Neighbor> sorted = new ArrayList<>(closest.size());
+      while (!closest.isEmpty()) {
+        sorted.add(closest.poll());
+      }
+      Collections.reverse(sorted);
+      return sorted;
+    }
+
+    /**
+     * Returns a lower bound on the distance to any location in the box. Any two locations are at
+     * least as far apart as their difference in latitude, and the longitude term of the Haversine
+     * formula is at least its value for the smallest cosine of a latitude in the box.
+     */
+    private double minDistance(double minLatitude, double maxLatitude, double minLongitude,
+        double maxLongitude) {
+      double latitudeGap = Math.max(Math.max(minLatitude - latitude, latitude - maxLatitude), 0);
+      double longitudeGap = longitudeGap(minLongitude, maxLongitude);
+      double minCos = Math.min(cos(minLatitude), cos(maxLatitude));
+      return arc(haversine(latitudeGap) + cosLatitude * minCos * haversine(longitudeGap));
+    }
+
+    /**
+     * Returns an upper bound on the distance to any location in the box, taking the largest
+     * difference in latitude, cosine of a latitude and difference in longitude in the box apart.
+     */
+    private double maxDistance(double minLatitude, double maxLatitude, double minLongitude,
+        double maxLongitude) {
+      double latitudeSpan = Math.max(Math.abs(latitude - clampLatitude(minLatitude)),
+          Math.abs(latitude - clampLatitude(maxLatitude)));
+      double maxCos = minLatitude <= 0 && maxLatitude >= 0
+          ? 1 : Math.max(cos(minLatitude), cos(maxLatitude));
+      double longitudeSpan;
+      if (maxLongitude - minLongitude >= 360
+          || longitudeGapFrom(longitude + 180, minLongitude, maxLongitude) == 0) {
+        longitudeSpan = 180;
+      } else {
+        // Without the antipodal longitude inside, the farthest longitude is an edge
+        longitudeSpan = Math.max(longitudeDifference(minLongitude),
+            longitudeDifference(maxLongitude));
+      }
+      return arc(haversine(latitudeSpan) + cosLatitude * maxCos * haversine(longitudeSpan));
+    }
+
+    private double longitudeGap(double minLongitude, double maxLongitude) {
+      return longitudeGapFrom(longitude, minLongitude, maxLongitude);
+    }
+
+    /**
+     * Returns the smallest difference in longitude, in [0, 180], between `from` and the range.
+     */
+    private static double longitudeGapFrom(double from, double minLongitude,
+        double maxLongitude) {
+      if (maxLongitude - minLongitude >= 360) {
+        return 0;
+      }
+      // The first longitude equivalent to `from` at or after the start of the range
+      double shifted = minLongitude + mod360(from - minLongitude);
+      if (shifted <= maxLongitude) {
+        return 0;
+      }
+      return Math.min(shifted - maxLongitude, minLongitude + 360 - shifted);
+    }
+
+    private double longitudeDifference(double other) {
+      double difference = mod360(other - longitude);
+      return Math.min(difference, 360 - difference);
+    }
+
+    private static double mod360(double degrees) {
+      double mod = degrees % 360;
+      return mod < 0 ? mod + 360 : mod;
+    }
+
+    private static double clampLatitude(double latitude) {
+      return Math.max(-90, Math.min(90, latitude));
+    }
+
+    private static double cos(double latitude) {
+      return Math.cos(clampLatitude(latitude) * RADIANS_PER_DEGREE);
+    }
+
+    private static double haversine(double degrees) {
+      double sinHalf = Math.sin(degrees * RADIANS_PER_DEGREE / 2);
+      return sinHalf * sinHalf;
+    }
+
+    private static double arc(double haversine) {
+      return Location.EARTH_RADIUS_KM * 2 * Math.asin(Math.sqrt(Math.min(haversine, 1)));
+    }
+  }
+
+  private static final class Node {
+    private final int id;
+    private final float latitude;
+    private final float longitude;
+    private Node left;
+    private Node right;
+    // Number of nodes in this subtree, removed ones included
+    private int size = 1;
+    private boolean removed;
+
+    private Node(int id, float latitude, float longitude) {
+      this.id = id;
+      this.latitude = latitude;
+      this.longitude = longitude;
+    }
+  }
+}
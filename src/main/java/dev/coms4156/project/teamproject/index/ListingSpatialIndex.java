@@ -0,0 +1,146 @@
+package dev.coms4156.project.teamproject.index;
+
+import dev.coms4156.project.teamproject.model.ClientProfile;
+import dev.coms4156.project.teamproject.model.FoodListing;
+import dev.coms4156.project.teamproject.model.GeoGrid;
+import dev.coms4156.project.teamproject.model.NearbyCursor;
+import dev.coms4156.project.teamproject.repository.FoodListingRepository;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory spatial index of the food listings of each client, with one {@link KdTree} per client.
+ * A client's tree is loaded from the database the first time it is searched and is then kept up to
+ * date by the controllers as listings are created and moved. The index only knows where listings
+ * are: depleted listings stay in it, and callers apply their filters (such as `availableOnly`) to
+ * the listings they load, so that searches return the same listings with the index on or off.
+ *
+ * <p>The index only sees the changes made through this instance of the service, so it is disabled
+ * unless `mealmatch.spatial-index.enabled` is set to true. Only enable it when a single instance
+ * serves all writes.
+ */
+@Component
+public class ListingSpatialIndex {
+
+  private final FoodListingRepository foodListingRepository;
+  private final boolean enabled;
+  private final Map<Integer, KdTree> trees = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs the index.
+   *
+   * @param foodListingRepository the repository to load each client's listings from
+   * @param enabled               whether the index should be used at all
+   */
+  @Autowired
+  public ListingSpatialIndex(FoodListingRepository foodListingRepository,
+      @Value("${mealmatch.spatial-index.enabled:false}") boolean enabled) {
+    this.foodListingRepository = foodListingRepository;
+    this.enabled = enabled;
+  }
+
+  /**
+   * Returns whether the index is enabled.
+   *
+   * @return whether the index is enabled
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the IDs of the listings in `client` whose pick-up locations may be within
+   * `radiusKm` of (`latitude`, `longitude`), i.e. that are inside the bounding box of the search
+   * circle. Callers still need to check the exact distance of each listing.
+   *
+   * @param client    the client to search in
+   * @param latitude  the latitude of the query location
+   * @param longitude the longitude of the query location
+   * @param radiusKm  the search radius in kilometers
+   * @return the IDs of the candidate listings
+   */
+  public List<Integer> findCandidateIds(ClientProfile client, float latitude, float longitude,
+      double radiusKm) {
+    GeoGrid.BoundingBox box = GeoGrid.boundingBox(latitude, longitude, radiusKm);
+    KdTree tree = trees.computeIfAbsent(client.getClientId(), clientId -> load(client));
+    synchronized (tree) {
+      return tree.findInBox(box.minLatitude(), box.maxLatitude(),
+          box.minLongitude(), box.maxLongitude());
+    }
+  }
+
+  /**
+   * Returns the (up to) `count` listings in `client` closest to (`latitude`,
+   * `longitude`) within `maxRadiusKm`, sorted from closest to farthest with ties broken by listing
+   * ID. If `after` is given, only listings after it in that order are returned. Only the part of
+   * the tree around the returned listings is searched, so deep positions are about as fast as the
+   * first.
+   *
+   * @param client      the client to search in
+   * @param latitude    the latitude of the query location
+   * @param longitude   the longitude of the query location
+   * @param count       the maximum number of listings to return
+   * @param maxRadiusKm the search radius in kilometers
+   * @param after       the position to start after, or null to start from the closest listing
+   * @return the IDs and distances of the listings, closest first
+   */
+  public List<KdTree.Neighbor> findNearest(ClientProfile client, float latitude, float longitude,
+      int count, double maxRadiusKm, NearbyCursor after) {
+    KdTree tree = trees.computeIfAbsent(client.getClientId(), clientId -> load(client));
+    synchronized (tree) {
+      return after == null
+          ? tree.findNearest(latitude, longitude, count, maxRadiusKm, -1, 0)
+          : tree.findNearest(latitude, longitude, count, maxRadiusKm, after.distance(),
+              after.listingId());
+    }
+  }
+
+  /**
+   * Brings the index up to date with a listing that was just saved, adding it or moving it to its
+   * pick-up location. Does nothing if the listing's client has not been loaded yet, since its
+   * listings will be read from the database when it is.
+   *
+   * @param client  the client the listing is in
+   * @param listing the listing that was saved
+   */
+  public void update(ClientProfile client, FoodListing listing) {
+    if (!enabled) {
+      return;
+    }
+    trees.computeIfPresent(client.getClientId(), (clientId, tree) -> {
+      synchronized (tree) {
+        tree.put(listing.getListingId(), listing.getLatitude(), listing.getLongitude());
+      }
+      return tree;
+    });
+  }
+
+  /**
+   * Drops the tree of `client`, so that it is reloaded from the database on its next search.
+   * Cheaper than updating the tree with each listing after writing many listings at once.
+   *
+   * @param client the client whose listings were written
+   */
+  public void forget(ClientProfile client) {
+    trees.remove(client.getClientId());
+  }
+
+  /**
+   * Drops every loaded tree, so that each client is reloaded from the database on its next search.
+   */
+  public void clear() {
+    trees.clear();
+  }
+
+  private KdTree load(ClientProfile client) {
+    KdTree tree = new KdTree();
+    for (FoodListing listing : foodListingRepository.findByClient(client)) {
+      tree.put(listing.getListingId(), listing.getLatitude(), listing.getLongitude());
+    }
+    return tree;
+  }
+}
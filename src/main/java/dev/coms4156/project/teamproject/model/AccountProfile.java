@@ -1,24 +1,35 @@
 package dev.coms4156.project.teamproject.model;
 
+import static org.hibernate.id.enhanced.SequenceStyleGenerator.SEQUENCE_PARAM;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import java.io.Serializable;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 /**
  * Represents an account profile for users of the service. An account can either be a provider
- * profile or a recipient profile.
+ * profile or a recipient profile. Accounts are held in the second-level cache, so that the
+ * accounts of requests, listings and donations are loaded without querying the database.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "account_profile")
 public class AccountProfile implements Serializable {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(generator = "account_profile_id")
+  @GenericGenerator(name = "account_profile_id", type = PooledIdGenerator.class,
+      parameters = @Parameter(name = SEQUENCE_PARAM, value = "account_profile_seq"))
   @Column(name = "account_id", updatable = false, nullable = false)
   private int accountId;
 
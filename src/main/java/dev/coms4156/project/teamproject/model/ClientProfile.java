@@ -1,20 +1,33 @@
 package dev.coms4156.project.teamproject.model;
 
+import static org.hibernate.id.enhanced.SequenceStyleGenerator.SEQUENCE_PARAM;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import java.io.Serializable;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 /**
- * Represents a Client Profile (clients of the service).
+ * Represents a Client Profile (clients of the service). Clients are held in the second-level
+ * cache, so that the clients of accounts, listings and requests are loaded without querying the
+ * database.
  */
 @Entity
+@Cacheable
+// Not READ_ONLY, which fails when a client is loaded in the transaction that created it
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "client_profile")
 public class ClientProfile implements Serializable {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(generator = "client_profile_id")
+  @GenericGenerator(name = "client_profile_id", type = PooledIdGenerator.class,
+      parameters = @Parameter(name = SEQUENCE_PARAM, value = "client_profile_seq"))
   @Column(name = "client_id", updatable = false, nullable = false)
   public int clientId;
 
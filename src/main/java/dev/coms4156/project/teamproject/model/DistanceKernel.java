@@ -0,0 +1,107 @@
+package dev.coms4156.project.teamproject.model;
+
+/**
+ * Computes the distances from one query location to many locations at once. The locations are
+ * passed as parallel arrays of latitudes and longitudes (in degrees) rather than as objects, so
+ * the loops below touch only primitive arrays and allocate nothing per location.
+ *
+ * <p>Every value that depends only on the query is computed once up front. A first, branch-free
+ * pass computes an equirectangular lower bound on each distance; only locations whose bound is
+ * within the maximum distance go through the exact Haversine formula in the second pass.
+ */
+public final class DistanceKernel {
+
+  private static final double RADIANS_PER_DEGREE = Math.PI / 180;
+
+  private DistanceKernel() {
+  }
+
+  /**
+   * Computes the distance from (`queryLatitude`, `queryLongitude`) to each of the first `count`
+   * locations, as long as it is at most `maxDistanceKm`. Distances are the same as those computed
+   * by {@link Location#distance(Location)}. Longitudes are expected to be within [-360, 360].
+   *
+   * @param queryLatitude  the latitude of the query location
+   * @param queryLongitude the longitude of the query location
+   * @param latitudes      the latitudes of the locations
+   * @param longitudes     the longitudes of the locations
+   * @param count          the number of locations to compute distances for
+   * @param maxDistanceKm  the maximum distance of interest in kilometers
+   * @param distances      receives the distance in kilometers to each location, or
+   *                       {@link Double#POSITIVE_INFINITY} if it is farther than `maxDistanceKm`
+   * @return the number of locations within `maxDistanceKm`
+   */
+  public static int distancesWithin(double queryLatitude, double queryLongitude,
+      float[] latitudes, float[] longitudes, int count, double maxDistanceKm,
+      double[] distances) {
+    double maxAngle = Math.max(maxDistanceKm, 0) / Location.EARTH_RADIUS_KM;
+    double cosQueryLat = Math.cos(queryLatitude * RADIANS_PER_DEGREE);
+
+    // Any location within `maxAngle` has a latitude in this band, and a longitude no further
+    // than `maxDeltaLong` from the query's
+    double minLat = Math.max(queryLatitude * RADIANS_PER_DEGREE - maxAngle, -Math.PI / 2);
+    double maxLat = Math.min(queryLatitude * RADIANS_PER_DEGREE + maxAngle, Math.PI / 2);
+    double cosMinInBand = Math.min(Math.cos(minLat), Math.cos(maxLat));
+    double sinHalfMaxAngle = Math.sin(Math.min(maxAngle, Math.PI) / 2);
+    double maxDeltaLong = sinHalfMaxAngle >= cosMinInBand
+        ? Math.PI : 2 * Math.asin(sinHalfMaxAngle / cosMinInBand);
+
+    // Since sin(x) / x shrinks as x grows, scaling each angle by sin(m / 2) / (m / 2) for the
+    // largest angle m that can pass makes the equirectangular distance a lower bound on the
+    // Haversine distance
+    double largestAngle = Math.max(Math.min(maxAngle, Math.PI), maxDeltaLong);
+    double shrink = largestAngle == 0 ? 1 : Math.sin(largestAngle / 2) / (largestAngle / 2);
+    double latScale = shrink * RADIANS_PER_DEGREE;
+    double longScale = shrink * cosMinInBand * RADIANS_PER_DEGREE;
+    // Leave a little room for rounding so that locations right at the edge are not rejected
+    double maxAngleSquared = maxAngle * maxAngle * (1 + 1e-9);
+
+    // First pass: lower bound on the squared angular distance, without branches
+    for (int i = 0; i < count; i++) {
+      double deltaLat = (latitudes[i] - queryLatitude) * latScale;
+      double deltaLong = Math.abs(longitudes[i] - queryLongitude);
+      deltaLong = Math.min(deltaLong, Math.abs(360 - deltaLong)) * longScale;
+      distances[i] = deltaLat * deltaLat + deltaLong * deltaLong;
+    }
+
+    // Second pass: exact distance for the locations that survived the first pass
+    int within = 0;
+    for (int i = 0; i < count; i++) {
+      if (distances[i] > maxAngleSquared) {
+        distances[i] = Double.POSITIVE_INFINITY;
+        continue;
+      }
+      double distance =
+          distance(queryLatitude, queryLongitude, cosQueryLat, latitudes[i], longitudes[i]);
+      if (distance <= maxDistanceKm) {
+        distances[i] = distance;
+        within++;
+      } else {
+        distances[i] = Double.POSITIVE_INFINITY;
+      }
+    }
+    return within;
+  }
+
+  /**
+   * Computes the distance from (`queryLatitude`, `queryLongitude`) to (`latitude`, `longitude`),
+   * exactly as {@link #distancesWithin} does for the locations in range.
+   *
+   * @param queryLatitude  the latitude of the query location
+   * @param queryLongitude the longitude of the query location
+   * @param cosQueryLat    the cosine of the query's latitude in radians, computed once per query
+   * @param latitude       the latitude of the location
+   * @param longitude      the longitude of the location
+   * @return the distance in kilometers
+   */
+  public static double distance(double queryLatitude, double queryLongitude, double cosQueryLat,
+      float latitude, float longitude) {
+    // Same formula as Location#distance, so both agree on which locations are in range
+    double sinHalfDeltaLat = Math.sin((queryLatitude - latitude) * RADIANS_PER_DEGREE / 2);
+    double sinHalfDeltaLong = Math.sin((queryLongitude - longitude) * RADIANS_PER_DEGREE / 2);
+    double a = sinHalfDeltaLat * sinHalfDeltaLat
+        + cosQueryLat * Math.cos(latitude * RADIANS_PER_DEGREE)
+        * sinHalfDeltaLong * sinHalfDeltaLong;
+    return Location.EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+  }
+}
@@ -1,28 +1,41 @@
 package dev.coms4156.project.teamproject.model;
 
+import static org.hibernate.id.enhanced.SequenceStyleGenerator.SEQUENCE_PARAM;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 /**
  * Represents a donation.
  */
 @Entity
+@Table(name = "donation", indexes = {
+    @Index(name = "idx_donation_client_account_id",
+        columnList = "client_id, account_id, donation_id"),
+    @Index(name = "idx_donation_client_account_listing_id",
+        columnList = "client_id, account_id, listing_id, donation_id")
+})
 public class Donation implements Serializable {
 
   @Serial
   private static final long serialVersionUID = 234567L;
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(generator = "donation_id")
+  @GenericGenerator(name = "donation_id", type = PooledIdGenerator.class,
+      parameters = @Parameter(name = SEQUENCE_PARAM, value = "donation_seq"))
   @Column(name = "donation_id", unique = true)
   private int donationId;
 
@@ -45,6 +58,15 @@ public class Donation implements Serializable {
   private int quantityPickedUp;
   private LocalDateTime pickUpTime;
 
+  /**
+   * Default constructor for the Donation class. This constructor is required by JPA for object
+   * instantiation. We suppress the warning since the PMD default ruleset does not comply with
+   * this.
+   */
+  @SuppressWarnings("PMD.UncommentedEmptyConstructor")
+  public Donation() {
+  }
+
   /**
    * Creates a new donation object with the given params.
    *
@@ -83,6 +105,15 @@ public class Donation implements Serializable {
     return foodListing;
   }
 
+  /**
+   * Gets the food request the donation was picked up for.
+   *
+   * @return The food request.
+   */
+  public FoodRequest getFoodRequest() {
+    return foodRequest;
+  }
+
   /**
    * Gets the quantity picked up.
    *
@@ -0,0 +1,18 @@
+package dev.coms4156.project.teamproject.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * The fields of a {@link Donation} returned by the donation history, selected directly by the
+ * repository queries. The listing and request of the donation are given by their IDs, so neither
+ * is read.
+ *
+ * @param donationId       the ID of the donation
+ * @param listingId        the ID of the listing the food was picked up from
+ * @param requestId        the ID of the request the food was picked up for
+ * @param quantityPickedUp the quantity picked up
+ * @param pickUpTime       the time the food was picked up
+ */
+public record DonationView(int donationId, int listingId, int requestId, int quantityPickedUp,
+    LocalDateTime pickUpTime) {
+}
@@ -1,20 +1,26 @@
 package dev.coms4156.project.teamproject.model;
 
+import static org.hibernate.id.enhanced.SequenceStyleGenerator.SEQUENCE_PARAM;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Access;
 import jakarta.persistence.AccessType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.Objects;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 
 /**
@@ -22,14 +28,25 @@ import java.util.Objects;
  */
 @Entity
 @Access(AccessType.FIELD)
-@Table(name = "food_listing")
+@Table(name = "food_listing", indexes = {
+    @Index(name = "idx_food_listing_client_cell", columnList = "client_id, geo_cell"),
+    @Index(name = "idx_food_listing_client_lat_long",
+        columnList = "client_id, latitude, longitude"),
+    @Index(name = "idx_food_listing_client_quantity_type",
+        columnList = "client_id, quantity, food_type"),
+    @Index(name = "idx_food_listing_client_pickup", columnList = "client_id, earliest_pickup"),
+    @Index(name = "idx_food_listing_client_account", columnList = "client_id, account_id"),
+    @Index(name = "idx_food_listing_client_id", columnList = "client_id, listing_id")
+})
 public class FoodListing implements Serializable {
 
   @Serial
   private static final long serialVersionUID = 123456L;
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(generator = "food_listing_id")
+  @GenericGenerator(name = "food_listing_id", type = PooledIdGenerator.class,
+      parameters = @Parameter(name = SEQUENCE_PARAM, value = "food_listing_seq"))
   @Column(name = "listing_id", unique = true)
   private int listingId;
 
@@ -56,6 +73,13 @@ public class FoodListing implements Serializable {
   @Column(name = "longitude")
   private float longitude;
 
+  @Column(name = "geo_cell")
+  private Long geoCell;
+
+  @Version
+  @Column(name = "version")
+  private long version;
+
   /**
    * Default constructor for the FoodListing class. This constructor is required by JPA for object
    * instantiation. We suppress the warning since the PMD default ruleset does not comply with
@@ -86,6 +110,7 @@ public class FoodListing implements Serializable {
     this.earliestPickUpTime = earliestPickUpTime;
     this.latitude = latitude;
     this.longitude = longitude;
+    this.geoCell = GeoGrid.cellOf(latitude, longitude);
   }
 
   /**
@@ -158,6 +183,7 @@ public class FoodListing implements Serializable {
    */
   public void setLatitude(float latitude) {
     this.latitude = latitude;
+    this.geoCell = GeoGrid.cellOf(this.latitude, this.longitude);
   }
 
   /**
@@ -176,6 +202,36 @@ public class FoodListing implements Serializable {
    */
   public void setLongitude(float longitude) {
     this.longitude = longitude;
+    this.geoCell = GeoGrid.cellOf(this.latitude, this.longitude);
+  }
+
+  /**
+   * Gets the ID of the grid cell containing the pick-up location.
+   *
+   * @return The ID of the grid cell, or null if it has not been computed yet.
+   */
+  @JsonIgnore
+  public Long getGeoCell() {
+    return this.geoCell;
+  }
+
+  /**
+   * Returns the version of this listing, incremented by every update and used to detect conflicting
+   * concurrent updates.
+   *
+   * @return the version
+   */
+  @JsonIgnore
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Recomputes the grid cell from the current latitude and longitude. Listings saved before the
+   * grid cell column existed have no cell until this is called.
+   */
+  public void refreshGeoCell() {
+    this.geoCell = GeoGrid.cellOf(this.latitude, this.longitude);
   }
 
   /**
@@ -187,6 +243,26 @@ public class FoodListing implements Serializable {
     return this.listingId;
   }
 
+  /**
+   * Gets the client the listing is in.
+   *
+   * @return The client.
+   */
+  @JsonIgnore
+  public ClientProfile getClient() {
+    return this.client;
+  }
+
+  /**
+   * Gets the account of the provider who listed the food.
+   *
+   * @return The provider account.
+   */
+  @JsonIgnore
+  public AccountProfile getAccount() {
+    return this.account;
+  }
+
   /**
    * Returns whether two FoodListing objects are equal based on their attributes.
    *
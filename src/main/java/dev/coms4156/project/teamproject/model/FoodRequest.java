@@ -1,17 +1,24 @@
 package dev.coms4156.project.teamproject.model;
 
+import static org.hibernate.id.enhanced.SequenceStyleGenerator.SEQUENCE_PARAM;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.Objects;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 /**
  * Represents a food request made by an account (user) of a client (app) for a specific food
@@ -19,13 +26,19 @@ import java.util.Objects;
  * listing, the quantity requested, and the request and pickup times.
  */
 @Entity
+@Table(name = "food_request", indexes = {
+    @Index(name = "idx_food_request_client_listing", columnList = "client_id, listing_id"),
+    @Index(name = "idx_food_request_client_account", columnList = "client_id, account_id")
+})
 public class FoodRequest implements Serializable {
 
   @Serial
   private static final long serialVersionUID = 345678L;
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(generator = "food_request_id")
+  @GenericGenerator(name = "food_request_id", type = PooledIdGenerator.class,
+      parameters = @Parameter(name = SEQUENCE_PARAM, value = "food_request_seq"))
   @Column(name = "request_id", unique = true)
   private int requestId;
 
@@ -44,6 +57,10 @@ public class FoodRequest implements Serializable {
   private int quantityRequested;
   private LocalDateTime requestTime;
 
+  @Version
+  @Column(name = "version")
+  private long version;
+
   /**
    * Default constructor for the FoodListing class. This constructor is required by JPA for object
    * instantiation. We suppress the warning since the PMD default ruleset does not comply with
@@ -134,6 +151,17 @@ public class FoodRequest implements Serializable {
     return requestTime;
   }
 
+  /**
+   * Returns the version of this request, incremented by every update and used to detect conflicting
+   * concurrent updates.
+   *
+   * @return the version
+   */
+  @JsonIgnore
+  public long getVersion() {
+    return version;
+  }
+
   /**
    * Compares this FoodRequest to another object for equality based on the request ID, food listing,
    * and request details.
@@ -0,0 +1,10 @@
+package dev.coms4156.project.teamproject.model;
+
+/**
+ * One item of a bulk fulfill: a request for `quantity` of the listing with `listingId`.
+ *
+ * @param listingId the ID of the listing to fulfill
+ * @param quantity  the quantity requested
+ */
+public record FulfillItem(int listingId, int quantity) {
+}
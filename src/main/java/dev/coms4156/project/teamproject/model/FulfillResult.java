@@ -0,0 +1,30 @@
+package dev.coms4156.project.teamproject.model;
+
+/**
+ * The outcome of one item of a bulk fulfill.
+ *
+ * @param listingId         the ID of the listing the item is for
+ * @param quantityRequested the quantity the item requested
+ * @param status            whether the item was fulfilled, or why it was not
+ * @param quantityListed    the quantity listed once the bulk fulfill was done, or null if the
+ *                          listing was not found
+ */
+public record FulfillResult(int listingId, int quantityRequested, Status status,
+    Integer quantityListed) {
+
+  /**
+   * Whether an item was fulfilled, or why it was not.
+   */
+  public enum Status {
+    /** The quantity requested was taken from the listing. */
+    FULFILLED,
+    /** Less than the quantity requested was listed. */
+    INSUFFICIENT_QUANTITY,
+    /** There is no listing with this ID in the client. */
+    NOT_FOUND,
+    /** The quantity requested was not positive. */
+    INVALID_QUANTITY,
+    /** Another item of the same atomic bulk fulfill could not be fulfilled, so none was. */
+    ROLLED_BACK
+  }
+}
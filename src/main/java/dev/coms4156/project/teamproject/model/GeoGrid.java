@@ -0,0 +1,154 @@
+package dev.coms4156.project.teamproject.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Uniform latitude/longitude grid used to bucket food listings by pick-up location. Every listing
+ * stores the ID of the grid cell it falls in, so a radius search only has to look at the listings
+ * in the cells that overlap the search circle instead of every listing in the client.
+ */
+public final class GeoGrid {
+
+  /**
+   * Width and height of a grid cell in degrees (about 5.5 km of latitude).
+   */
+  public static final double CELL_DEGREES = 0.05;
+
+  /**
+   * Largest number of cells a single search may cover before it falls back to a full scan.
+   */
+  public static final int MAX_CELLS = 256;
+
+  private static final int ROWS = (int) Math.round(180 / CELL_DEGREES);
+  private static final int COLUMNS = (int) Math.round(360 / CELL_DEGREES);
+
+  private GeoGrid() {
+  }
+
+  /**
+   * Returns the ID of the grid cell containing the given location. Longitudes outside of
+   * [-180, 180) wrap around and latitudes outside of [-90, 90] are clamped to the nearest pole.
+   *
+   * @param latitude  the latitude of the location
+   * @param longitude the longitude of the location
+   * @return the ID of the cell containing the location
+   */
+  public static long cellOf(double latitude, double longitude) {
+    return (long) rowOf(latitude) * COLUMNS + columnOf(longitude);
+  }
+
+  /**
+   * Returns the center of the grid cell with the given ID.
+   *
+   * @param cell the ID of the cell
+   * @return the location of the center of the cell
+   */
+  public static Location centerOf(long cell) {
+    long row = cell / COLUMNS;
+    long column = cell % COLUMNS;
+    return new Location((row + 0.5) * CELL_DEGREES - 90, (column + 0.5) * CELL_DEGREES - 180);
+  }
+
+  /**
+   * Returns the IDs of every grid cell that overlaps the circle of radius `radiusKm` around the
+   * given location.
+   *
+   * @param latitude  the latitude of the center of the circle
+   * @param longitude the longitude of the center of the circle
+   * @param radiusKm  the radius of the circle in kilometers
+   * @return the IDs of the overlapping cells, or an empty Optional if the circle covers more than
+   *     {@link #MAX_CELLS} cells and should be answered with a full scan instead
+   */
+  public static Optional<List<Long>> cellsCovering(double latitude, double longitude,
+      double radiusKm) {
+    double deltaLat = deltaLatitude(radiusKm);
+    double deltaLong = deltaLongitude(latitude, radiusKm);
+    if (Double.isNaN(deltaLong)) {
+      return Optional.empty();
+    }
+
+    int firstRow = rowOf(latitude - deltaLat);
+    int lastRow = rowOf(latitude + deltaLat);
+    long firstColumn = (long) Math.floor((longitude - deltaLong + 180) / CELL_DEGREES);
+    long lastColumn = (long) Math.floor((longitude + deltaLong + 180) / CELL_DEGREES);
+
+    long cellCount = (long) (lastRow - firstRow + 1) * (lastColumn - firstColumn + 1);
+    if (cellCount > MAX_CELLS) {
+      return Optional.empty();
+    }
+
+    List<Long> cells = new ArrayList<>((int) cellCount);
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (long column = firstColumn; column <= lastColumn; column++) {
+        cells.add((long) row * COLUMNS + Math.floorMod(column, COLUMNS));
+      }
+    }
+    return Optional.of(cells);
+  }
+
+  /**
+   * Returns the smallest latitude/longitude box containing the circle of radius `radiusKm` around
+   * the given location. If the circle contains a pole or crosses the antimeridian, the box spans
+   * every longitude.
+   *
+   * @param latitude  the latitude of the center of the circle
+   * @param longitude the longitude of the center of the circle
+   * @param radiusKm  the radius of the circle in kilometers
+   * @return the bounding box of the circle
+   */
+  public static BoundingBox boundingBox(double latitude, double longitude, double radiusKm) {
+    double deltaLat = deltaLatitude(radiusKm);
+    double deltaLong = deltaLongitude(latitude, radiusKm);
+    // Round outwards so that converting to float never shrinks the box
+    float minLat = Math.nextDown((float) (latitude - deltaLat));
+    float maxLat = Math.nextUp((float) (latitude + deltaLat));
+    if (Double.isNaN(deltaLong) || longitude - deltaLong < -180 || longitude + deltaLong > 180) {
+      return new BoundingBox(minLat, maxLat, -Float.MAX_VALUE, Float.MAX_VALUE);
+    }
+    float minLong = Math.nextDown((float) (longitude - deltaLong));
+    float maxLong = Math.nextUp((float) (longitude + deltaLong));
+    return new BoundingBox(minLat, maxLat, minLong, maxLong);
+  }
+
+  private static double deltaLatitude(double radiusKm) {
+    return Math.toDegrees(Math.max(radiusKm, 0) / Location.EARTH_RADIUS_KM);
+  }
+
+  /**
+   * Returns how far in longitude the circle extends from its center, or NaN if it contains a pole
+   * and so spans every longitude.
+   */
+  private static double deltaLongitude(double latitude, double radiusKm) {
+    double angularRadius = Math.max(radiusKm, 0) / Location.EARTH_RADIUS_KM;
+    double deltaLat = Math.toDegrees(angularRadius);
+    double cosLat = Math.cos(Math.toRadians(latitude));
+    if (latitude - deltaLat <= -90 || latitude + deltaLat >= 90
+        || Math.sin(angularRadius) >= cosLat) {
+      return Double.NaN;
+    }
+    return Math.toDegrees(Math.asin(Math.sin(angularRadius) / cosLat));
+  }
+
+  private static int rowOf(double latitude) {
+    int row = (int) Math.floor((latitude + 90) / CELL_DEGREES);
+    return Math.max(0, Math.min(ROWS - 1, row));
+  }
+
+  private static int columnOf(double longitude) {
+    return (int) Math.floorMod((long) Math.floor((longitude + 180) / CELL_DEGREES), COLUMNS);
+  }
+
+  /**
+   * A latitude/longitude box, inclusive of its edges.
+   *
+   * @param minLatitude  the southern edge of the box
+   * @param maxLatitude  the northern edge of the box
+   * @param minLongitude the western edge of the box
+   * @param maxLongitude the eastern edge of the box
+   */
+  public record BoundingBox(float minLatitude, float maxLatitude,
+                            float minLongitude, float maxLongitude) {
+  }
+}
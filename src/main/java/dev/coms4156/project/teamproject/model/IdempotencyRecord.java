@@ -0,0 +1,144 @@
+package dev.coms4156.project.teamproject.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import java.time.LocalDateTime;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * A request made with an idempotency key, and its response once it has one. Stored by the
+ * database-backed idempotency store.
+ */
+@Entity
+@Table(name = "idempotency_record", indexes = {
+    @Index(name = "idx_idempotency_record_created", columnList = "created_at")
+})
+public class IdempotencyRecord implements Persistable<String> {
+
+  @Id
+  @Column(name = "idempotency_key", length = 255)
+  private String key;
+
+  @Column(name = "created_at", nullable = false)
+  private LocalDateTime createdAt;
+
+  @Column(name = "status")
+  private Integer status;
+
+  @Column(name = "content_type")
+  private String contentType;
+
+  @Lob
+  @Column(name = "body")
+  private byte[] body;
+
+  @Column(name = "fingerprint", length = 64)
+  private String fingerprint;
+
+  // Keys are assigned by clients, so whether a record is new cannot be told from its ID
+  @Transient
+  private boolean isNew = true;
+
+  /**
+   * Default constructor for the IdempotencyRecord class. This constructor is required by JPA for
+   * object instantiation. We suppress the warning since the PMD default ruleset does not comply
+   * with this.
+   */
+  @SuppressWarnings("PMD.UncommentedEmptyConstructor")
+  public IdempotencyRecord() {
+  }
+
+  /**
+   * Constructs a record of a request that is in progress.
+   *
+   * @param key       the idempotency key, scoped to the endpoint
+   * @param createdAt when the request was received
+   */
+  public IdempotencyRecord(String key, LocalDateTime createdAt) {
+    this.key = key;
+    this.createdAt = createdAt;
+  }
+
+  @Override
+  public String getId() {
+    return key;
+  }
+
+  @Override
+  public boolean isNew() {
+    return isNew;
+  }
+
+  @PostLoad
+  @PostPersist
+  void markNotNew() {
+    this.isNew = false;
+  }
+
+  /**
+   * Returns when the request was received.
+   *
+   * @return the creation time
+   */
+  public LocalDateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  /**
+   * Returns the HTTP status code of the response.
+   *
+   * @return the status code, or null if the request is in progress
+   */
+  public Integer getStatus() {
+    return status;
+  }
+
+  /**
+   * Returns the content type of the response.
+   *
+   * @return the content type, or null if there is none
+   */
+  public String getContentType() {
+    return contentType;
+  }
+
+  /**
+   * Returns the body of the response.
+   *
+   * @return the body, or null if the request is in progress
+   */
+  public byte[] getBody() {
+    return body;
+  }
+
+  /**
+   * Returns the hash of the request.
+   *
+   * @return the fingerprint, or null if the request is in progress
+   */
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  /**
+   * Records the response to the request.
+   *
+   * @param status      the HTTP status code
+   * @param contentType the content type, or null if there is none
+   * @param body        the body
+   * @param fingerprint the hash of the request
+   */
+  public void complete(int status, String contentType, byte[] body, String fingerprint) {
+    this.status = status;
+    this.contentType = contentType;
+    this.body = body;
+    this.fingerprint = fingerprint;
+  }
+}
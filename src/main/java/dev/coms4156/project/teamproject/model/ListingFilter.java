@@ -0,0 +1,70 @@
+package dev.coms4156.project.teamproject.model;
+
+import java.time.LocalDateTime;
+import org.springframework.format.annotation.DateTimeFormat;
+
+/**
+ * Optional filters on the food listings returned by a search, bound from the request's query
+ * parameters. Filters left null are not applied.
+ *
+ * @param foodType      only return listings of this food type
+ * @param minQuantity   only return listings with at least this quantity listed
+ * @param availableOnly only return listings with a positive quantity listed
+ * @param pickupFrom    only return listings whose earliest pick-up time is at or after this time
+ * @param pickupTo      only return listings whose earliest pick-up time is at or before this time
+ */
+public record ListingFilter(String foodType, Integer minQuantity, Boolean availableOnly,
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime pickupFrom,
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime pickupTo) {
+
+  /**
+   * A filter that matches every listing.
+   */
+  public static final ListingFilter NONE = new ListingFilter(null, null, null, null, null);
+
+  /**
+   * Returns the smallest quantity listed a listing may have to pass the filter, combining
+   * `minQuantity` and `availableOnly`.
+   *
+   * @return the minimum quantity, or null if there is none
+   */
+  public Integer effectiveMinQuantity() {
+    if (Boolean.TRUE.equals(availableOnly)) {
+      return minQuantity == null ? Integer.valueOf(1) : Integer.valueOf(Math.max(minQuantity, 1));
+    }
+    return minQuantity;
+  }
+
+  /**
+   * Returns whether the filter matches every listing.
+   *
+   * @return whether no filter is applied
+   */
+  public boolean isEmpty() {
+    return foodType == null && effectiveMinQuantity() == null
+        && pickupFrom == null && pickupTo == null;
+  }
+
+  /**
+   * Returns whether the pick-up window is valid, i.e. does not start after it ends.
+   *
+   * @return whether the pick-up window is valid
+   */
+  public boolean hasValidPickupWindow() {
+    return pickupFrom == null || pickupTo == null || !pickupFrom.isAfter(pickupTo);
+  }
+
+  /**
+   * Returns whether a listing passes the filter.
+   *
+   * @param listing the listing to check
+   * @return whether the listing passes
+   */
+  public boolean matches(FoodListing listing) {
+    Integer min = effectiveMinQuantity();
+    return (foodType == null || foodType.equals(listing.getFoodType()))
+        && (min == null || listing.getQuantityListed() >= min)
+        && (pickupFrom == null || !listing.getEarliestPickUpTime().isBefore(pickupFrom))
+        && (pickupTo == null || !listing.getEarliestPickUpTime().isAfter(pickupTo));
+  }
+}
@@ -0,0 +1,15 @@
+package dev.coms4156.project.teamproject.model;
+
+/**
+ * One item of a bulk listing creation: `quantityListed` of `foodType` to be picked up at
+ * (`latitude`, `longitude`). Fields left out of the item are null rather than 0, so that they can
+ * be rejected.
+ *
+ * @param foodType       the type of the food
+ * @param quantityListed the quantity of food available
+ * @param latitude       the latitude of the food's location
+ * @param longitude      the longitude of the food's location
+ */
+public record ListingItem(String foodType, Integer quantityListed, Float latitude,
+    Float longitude) {
+}
@@ -0,0 +1,19 @@
+package dev.coms4156.project.teamproject.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * The fields of a {@link FoodListing} returned by the endpoints that list listings, selected
+ * directly by the repository queries so that neither the client nor the account of the listing is
+ * read. Serializes to the same JSON as the listing itself.
+ *
+ * @param listingId          the ID of the listing
+ * @param foodType           the food type of the listing
+ * @param quantityListed     the quantity listed
+ * @param earliestPickUpTime the earliest time the listing can be picked up
+ * @param latitude           the latitude of the pick-up location
+ * @param longitude          the longitude of the pick-up location
+ */
+public record ListingView(int listingId, String foodType, int quantityListed,
+    LocalDateTime earliestPickUpTime, float latitude, float longitude) {
+}
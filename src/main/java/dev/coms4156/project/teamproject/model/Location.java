@@ -8,7 +8,7 @@ import java.io.Serializable;
  */
 public class Location implements Serializable {
 
-  private static final int EARTH_RADIUS_KM = 6378;
+  public static final int EARTH_RADIUS_KM = 6378;
   public double latitude;
   public double longitude;
 
@@ -30,7 +30,8 @@ public class Location implements Serializable {
    * @return the Haversine of the value
    */
   private static double haversine(double val) {
-    return Math.pow(Math.sin(val / 2), 2);
+    double sinHalf = Math.sin(val / 2);
+    return sinHalf * sinHalf;
   }
 
   /**
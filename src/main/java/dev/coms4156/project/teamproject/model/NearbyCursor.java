@@ -0,0 +1,66 @@
+package dev.coms4156.project.teamproject.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Position in a list of listings sorted by distance from a query location (ties broken by listing
+ * ID), used to resume a paginated nearby search after the last listing of the previous page.
+ * Since the position is a distance rather than an offset, listings created in between pages do
+ * not shift the pages that follow. Clients see it as an opaque string.
+ *
+ * @param distance  the distance of the last listing returned, in kilometers
+ * @param listingId the ID of the last listing returned
+ */
+public record NearbyCursor(double distance, int listingId) {
+
+  /**
+   * Returns whether a listing at `otherDistance` with ID `otherListingId` comes after this
+   * position.
+   *
+   * @param otherDistance  the distance of the other listing
+   * @param otherListingId the ID of the other listing
+   * @return whether the other listing comes after this position
+   */
+  public boolean isBefore(double otherDistance, int otherListingId) {
+    return distance < otherDistance
+        || distance == otherDistance && listingId < otherListingId;
+  }
+
+  /**
+   * Encodes this cursor as an opaque, URL-safe string.
+   *
+   * @return the encoded cursor
+   */
+  public String encode() {
+    String raw = Long.toHexString(Double.doubleToLongBits(distance)) + ":" + listingId;
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Decodes a cursor produced by {@link #encode()}.
+   *
+   * @param cursor the encoded cursor
+   * @return the decoded cursor, or an empty Optional if `cursor` is not a valid cursor
+   */
+  public static Optional<NearbyCursor> decode(String cursor) {
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int separator = raw.indexOf(':');
+      if (separator < 0) {
+        return Optional.empty();
+      }
+      double distance = Double.longBitsToDouble(
+          Long.parseUnsignedLong(raw.substring(0, separator), 16));
+      int listingId = Integer.parseInt(raw.substring(separator + 1));
+      if (Double.isNaN(distance) || distance < 0 || Double.isInfinite(distance)) {
+        return Optional.empty();
+      }
+      return Optional.of(new NearbyCursor(distance, listingId));
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+  }
+}
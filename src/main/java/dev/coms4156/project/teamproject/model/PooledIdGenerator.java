@@ -0,0 +1,41 @@
+package dev.coms4156.project.teamproject.model;
+
+import java.util.Properties;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * Generates entity IDs from a sequence with the pooled optimizer: each trip to the sequence
+ * reserves a block of IDs, which are then handed out from memory. Unlike IDs generated by the
+ * database on insert (`GenerationType.IDENTITY`), they are known before the rows are inserted, so
+ * Hibernate can send the inserts of a transaction to the database in JDBC batches.
+ *
+ * <p>On databases without sequences, such as MySQL, the sequence is a single-row table. The size
+ * of the blocks is read from the Hibernate setting {@link #ALLOCATION_SIZE_SETTING} (50 unless
+ * set); IDs reserved by an instance of the service but not used before it stops are skipped.
+ */
+public class PooledIdGenerator extends SequenceStyleGenerator {
+
+  /**
+   * The Hibernate setting holding the number of IDs reserved per trip to the sequence.
+   */
+  public static final String ALLOCATION_SIZE_SETTING = "mealmatch.ids.allocation-size";
+
+  /**
+   * The number of IDs reserved per trip to the sequence unless configured otherwise.
+   */
+  public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+  @Override
+  public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) {
+    Object allocationSize = serviceRegistry.requireService(ConfigurationService.class)
+        .getSettings().get(ALLOCATION_SIZE_SETTING);
+    parameters.setProperty(INCREMENT_PARAM, allocationSize == null
+        ? String.valueOf(DEFAULT_ALLOCATION_SIZE) : allocationSize.toString());
+    parameters.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED.getExternalName());
+    super.configure(type, parameters, serviceRegistry);
+  }
+}
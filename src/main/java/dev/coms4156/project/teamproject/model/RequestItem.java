@@ -0,0 +1,11 @@
+package dev.coms4156.project.teamproject.model;
+
+/**
+ * One item of a batch of food requests: a request for `quantityRequested` of the listing with
+ * `listingId`.
+ *
+ * @param listingId         the ID of the listing to request
+ * @param quantityRequested the quantity requested
+ */
+public record RequestItem(int listingId, int quantityRequested) {
+}
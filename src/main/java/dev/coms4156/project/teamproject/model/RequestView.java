@@ -0,0 +1,19 @@
+package dev.coms4156.project.teamproject.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * The fields of a {@link FoodRequest} returned by the endpoints that list requests, selected
+ * directly by the repository queries. The client, account and listing of the request are given by
+ * their IDs, so none of them is read.
+ *
+ * @param requestId         the ID of the request
+ * @param clientId          the ID of the client the request was made in
+ * @param accountId         the ID of the account that made the request
+ * @param listingId         the ID of the listing requested
+ * @param quantityRequested the quantity requested
+ * @param requestTime       the time the request was made
+ */
+public record RequestView(int requestId, int clientId, int accountId, int listingId,
+    int quantityRequested, LocalDateTime requestTime) {
+}
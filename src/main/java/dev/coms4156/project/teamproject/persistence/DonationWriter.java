@@ -0,0 +1,216 @@
+package dev.coms4156.project.teamproject.persistence;
+
+import dev.coms4156.project.teamproject.model.Donation;
+import dev.coms4156.project.teamproject.model.FoodListing;
+import dev.coms4156.project.teamproject.repository.DonationRepository;
+import dev.coms4156.project.teamproject.repository.FoodListingRepository;
+import dev.coms4156.project.teamproject.repository.FoodRequestRepository;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Records donations off the request thread. Completed pickups are queued in memory and written
+ * by a background thread in batches, one transaction per batch, whenever a batch worth of them is
+ * queued or the flush interval has passed, whichever comes first. A pickup therefore costs the
+ * request thread a queue insertion instead of an INSERT and a commit, and shows up in the
+ * donation history within the flush interval. Since donation IDs come from a pooled sequence,
+ * Hibernate sends the inserts of a batch to the database as JDBC batches.
+ *
+ * <p>If the queue is full, the thread recording a donation writes the queued ones itself, which
+ * slows pickups down to the speed of the database instead of dropping donations. If a batch
+ * fails, its donations are written one at a time, and the ones that still fail are logged and
+ * dropped. Donations still queued when the service stops are written before it does.
+ *
+ * <p>The donation history is therefore best-effort: a pickup succeeds as soon as its donation is
+ * queued, so a donation that keeps failing, or that is still queued when the service crashes, is
+ * lost even though its pickup went through. The quantities listed, which are updated in the
+ * pickup's own transaction, stay authoritative.
+ */
+@Component
+public class DonationWriter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DonationWriter.class);
+
+  private final DonationRepository donationRepository;
+  private final FoodListingRepository foodListingRepository;
+  private final FoodRequestRepository foodRequestRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final int batchSize;
+  private final BlockingQueue<PendingDonation> queue;
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+  private final ScheduledExecutorService executor;
+
+  /**
+   * Constructs the writer and starts its thread.
+   *
+   * @param donationRepository    the repository to save donations with
+   * @param foodListingRepository the repository to read the listings donated from with
+   * @param foodRequestRepository the repository to reference the requests picked up with
+   * @param transactionTemplate   the template to run each batch in a transaction with
+   * @param batchSize             the number of donations written per batch
+   * @param flushMillis           the longest time a donation stays queued, in milliseconds
+   * @param capacity              the maximum number of donations queued
+   */
+  @Autowired
+  public DonationWriter(DonationRepository donationRepository,
+      FoodListingRepository foodListingRepository, FoodRequestRepository foodRequestRepository,
+      TransactionTemplate transactionTemplate,
+      @Value("${mealmatch.donations.batch-size:500}") int batchSize,
+      @Value("${mealmatch.donations.flush-millis:200}") long flushMillis,
+      @Value("${mealmatch.donations.capacity:100000}") int capacity) {
+    if (batchSize < 1 || flushMillis < 1 || capacity < batchSize) {
+      throw new IllegalArgumentException("Expected a positive batch size and flush interval, and "
+          + "room for at least one batch.");
+    }
+    this.donationRepository = donationRepository;
+    this.foodListingRepository = foodListingRepository;
+    this.foodRequestRepository = foodRequestRepository;
+    this.transactionTemplate = transactionTemplate;
+    this.batchSize = batchSize;
+    this.queue = new LinkedBlockingQueue<>(capacity);
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "donation-writer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(this::flushQuietly, flushMillis, flushMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Queues a donation of `quantityPickedUp` from the listing with `listingId` in the client with
+   * `clientId`, picked up now for the request with `requestId`.
+   *
+   * @param clientId         ID of the client
+   * @param listingId        ID of the listing the food was picked up from
+   * @param requestId        ID of the request the food was picked up for
+   * @param quantityPickedUp the quantity picked up
+   */
+  public void record(int clientId, int listingId, int requestId, int quantityPickedUp) {
+    PendingDonation donation = new PendingDonation(clientId, listingId, requestId,
+        quantityPickedUp, LocalDateTime.now());
+    while (!queue.offer(donation)) {
+      flush();
+    }
+    if (queue.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+      executor.execute(this::flushQuietly);
+    }
+  }
+
+  /**
+   * Writes every queued donation now.
+   *
+   * @return the number of donations written
+   */
+  public synchronized int flush() {
+    flushRequested.set(false);
+    List<PendingDonation> batch = new ArrayList<>(batchSize);
+    int written = 0;
+    while (queue.drainTo(batch, batchSize) > 0) {
+      written += write(batch);
+      batch.clear();
+    }
+    return written;
+  }
+
+  /**
+   * Returns the number of donations waiting to be written.
+   *
+   * @return the number of queued donations
+   */
+  public int pending() {
+    return queue.size();
+  }
+
+  /**
+   * Stops the writer's thread and writes the donations still queued.
+   */
+  @PreDestroy
+  public void close() {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      // Keeps the scheduled flushes going
+      LOG.error("Could not write donations.", e);
+    }
+  }
+
+  private int write(List<PendingDonation> batch) {
+    try {
+      return save(batch);
+    } catch (DataAccessException | TransactionException e) {
+      if (LOG.isWarnEnabled()) {
+        LOG.warn("Could not write a batch of {} donations, writing them one at a time.",
+            batch.size(), e);
+      }
+    }
+    int written = 0;
+    for (PendingDonation donation : batch) {
+      try {
+        written += save(List.of(donation));
+      } catch (DataAccessException | TransactionException e) {
+        LOG.error("Could not write {}.", donation, e);
+      }
+    }
+    return written;
+  }
+
+  /**
+   * Saves the donations in one transaction. The provider account of each donation is the one
+   * that listed the food, so the listings are read first, all at once.
+   */
+  private int save(List<PendingDonation> batch) {
+    Integer saved = transactionTemplate.execute(status -> {
+      Map<Integer, FoodListing> listings = new HashMap<>();
+      for (FoodListing listing : foodListingRepository.findAllById(
+          batch.stream().map(PendingDonation::listingId).distinct().toList())) {
+        listings.put(listing.getListingId(), listing);
+      }
+      List<Donation> donations = new ArrayList<>(batch.size());
+      for (PendingDonation pending : batch) {
+        FoodListing listing = listings.get(pending.listingId());
+        if (listing == null || listing.getClient().getClientId() != pending.clientId()) {
+          LOG.error("Could not write {}: listing not found.", pending);
+          continue;
+        }
+        donations.add(new Donation(listing.getClient(), listing.getAccount(), listing,
+            foodRequestRepository.getReferenceById(pending.requestId()),
+            pending.quantityPickedUp(), pending.pickUpTime()));
+      }
+      return donationRepository.saveAllAndFlush(donations).size();
+    });
+    return saved == null ? 0 : saved;
+  }
+
+  private record PendingDonation(int clientId, int listingId, int requestId,
+      int quantityPickedUp, LocalDateTime pickUpTime) {
+  }
+}
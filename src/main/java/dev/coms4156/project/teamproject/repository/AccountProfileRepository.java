@@ -1,7 +1,10 @@
 package dev.coms4156.project.teamproject.repository;
 
 import dev.coms4156.project.teamproject.model.AccountProfile;
+import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -11,4 +14,18 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface AccountProfileRepository extends JpaRepository<AccountProfile, Integer> {
 
+  /**
+   * Finds the account with `accountId` if it belongs to the client with `clientId`, along with
+   * its client. Checks that both exist and that the account is the client's in a single query
+   * over both primary keys, instead of looking up the client and the account separately.
+   *
+   * @param clientId  the ID of the client
+   * @param accountId the ID of the account
+   * @return the account, whose client is loaded, or empty if there is no such account in the
+   *     client
+   */
+  @Query("SELECT a FROM AccountProfile a JOIN FETCH a.client c"
+      + " WHERE a.accountId = :accountId AND c.clientId = :clientId")
+  Optional<AccountProfile> findByClientIdAndAccountId(@Param("clientId") int clientId,
+      @Param("accountId") int accountId);
 }
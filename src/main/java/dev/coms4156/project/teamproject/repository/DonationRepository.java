@@ -0,0 +1,43 @@
+package dev.coms4156.project.teamproject.repository;
+
+import dev.coms4156.project.teamproject.model.AccountProfile;
+import dev.coms4156.project.teamproject.model.ClientProfile;
+import dev.coms4156.project.teamproject.model.Donation;
+import dev.coms4156.project.teamproject.model.DonationView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository interface for managing {@link Donation} entities. Donations are written in batches
+ * by {@link dev.coms4156.project.teamproject.persistence.DonationWriter}; this repository reads
+ * them back.
+ */
+@Repository
+public interface DonationRepository extends JpaRepository<Donation, Integer> {
+
+  /**
+   * JPQL selecting the {@link DonationView} of every donation `d`. The IDs of the donation's
+   * listing and request are read from its own columns, without joining their tables. The finders
+   * return the donations with IDs after `afterId` in order, one page of `pageable` at a time.
+   */
+  String DONATION_VIEW = "SELECT new dev.coms4156.project.teamproject.model.DonationView("
+      + "d.donationId, d.foodListing.listingId, d.foodRequest.requestId, d.quantityPickedUp,"
+      + " d.pickUpTime) FROM Donation d";
+
+  @Query(DONATION_VIEW + " WHERE d.client = :client AND d.account = :account"
+      + " AND d.donationId > :afterId ORDER BY d.donationId")
+  Slice<DonationView> findViewsByClientAndAccount(@Param("client") ClientProfile client,
+      @Param("account") AccountProfile account, @Param("afterId") int afterId,
+      Pageable pageable);
+
+  @Query(DONATION_VIEW + " WHERE d.client = :client AND d.account = :account"
+      + " AND d.foodListing.listingId = :listingId AND d.donationId > :afterId"
+      + " ORDER BY d.donationId")
+  Slice<DonationView> findViewsByClientAndAccountAndListingId(
+      @Param("client") ClientProfile client, @Param("account") AccountProfile account,
+      @Param("listingId") int listingId, @Param("afterId") int afterId, Pageable pageable);
+}
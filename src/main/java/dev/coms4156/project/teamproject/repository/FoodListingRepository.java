@@ -3,25 +3,115 @@ package dev.coms4156.project.teamproject.repository;
 import dev.coms4156.project.teamproject.model.AccountProfile;
 import dev.coms4156.project.teamproject.model.ClientProfile;
 import dev.coms4156.project.teamproject.model.FoodListing;
+import dev.coms4156.project.teamproject.model.ListingFilter;
+import dev.coms4156.project.teamproject.model.ListingView;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Repository interface for managing {@link FoodListing} entities. Provides methods to retrieve food
  * listings based on client, account, and listing ID.
  */
 @Repository
-public interface FoodListingRepository extends JpaRepository<FoodListing, Integer> {
+public interface FoodListingRepository extends JpaRepository<FoodListing, Integer>,
+    FoodListingRepositoryCustom {
+
+  /**
+   * JPQL predicates applying a {@link ListingFilter} bound as `filter`, so that filtered out
+   * listings are never read from the database.
+   */
+  String FILTER = " AND (:#{#filter.foodType()} IS NULL OR l.foodType = :#{#filter.foodType()})"
+      + " AND (:#{#filter.effectiveMinQuantity()} IS NULL"
+      + " OR l.quantityListed >= :#{#filter.effectiveMinQuantity()})"
+      + " AND (:#{#filter.pickupFrom()} IS NULL"
+      + " OR l.earliestPickUpTime >= :#{#filter.pickupFrom()})"
+      + " AND (:#{#filter.pickupTo()} IS NULL OR l.earliestPickUpTime <= :#{#filter.pickupTo()})";
+
+  /**
+   * JPQL selecting the {@link ListingView} of every listing `l`, so that only the columns returned
+   * by the API are read. The finders selecting views return the listings with IDs after `afterId`
+   * in order, one page of `pageable` at a time.
+   */
+  String LISTING_VIEW = "SELECT new dev.coms4156.project.teamproject.model.ListingView("
+      + "l.listingId, l.foodType, l.quantityListed, l.earliestPickUpTime, l.latitude, l.longitude)"
+      + " FROM FoodListing l";
 
   List<FoodListing> findByClient(ClientProfile client);
 
-  List<FoodListing> findByClientAndAccount(ClientProfile client, AccountProfile account);
+  @Query(LISTING_VIEW + " WHERE l.client = :client AND l.listingId > :afterId"
+      + " ORDER BY l.listingId")
+  Slice<ListingView> findViewsByClient(@Param("client") ClientProfile client,
+      @Param("afterId") int afterId, Pageable pageable);
+
+  @Query(LISTING_VIEW + " WHERE l.client = :client AND l.listingId > :afterId" + FILTER
+      + " ORDER BY l.listingId")
+  Slice<ListingView> findViewsByClientMatching(@Param("client") ClientProfile client,
+      @Param("filter") ListingFilter filter, @Param("afterId") int afterId, Pageable pageable);
+
+  @Query("SELECT l FROM FoodListing l WHERE l.client = :client AND l.geoCell IN :geoCells"
+      + " AND l.latitude BETWEEN :minLat AND :maxLat"
+      + " AND l.longitude BETWEEN :minLong AND :maxLong" + FILTER)
+  List<FoodListing> findInCellsAndBoundingBox(@Param("client") ClientProfile client,
+      @Param("geoCells") Collection<Long> geoCells,
+      @Param("minLat") float minLat, @Param("maxLat") float maxLat,
+      @Param("minLong") float minLong, @Param("maxLong") float maxLong,
+      @Param("filter") ListingFilter filter);
+
+  @Query("SELECT l FROM FoodListing l WHERE l.client = :client"
+      + " AND l.latitude BETWEEN :minLat AND :maxLat"
+      + " AND l.longitude BETWEEN :minLong AND :maxLong" + FILTER)
+  List<FoodListing> findInBoundingBox(@Param("client") ClientProfile client,
+      @Param("minLat") float minLat, @Param("maxLat") float maxLat,
+      @Param("minLong") float minLong, @Param("maxLong") float maxLong,
+      @Param("filter") ListingFilter filter);
+
+  @Query("SELECT l FROM FoodListing l WHERE l.client = :client AND l.listingId IN :listingIds"
+      + FILTER)
+  List<FoodListing> findByClientAndListingIdInMatching(@Param("client") ClientProfile client,
+      @Param("listingIds") Collection<Integer> listingIds, @Param("filter") ListingFilter filter);
+
+  List<FoodListing> findTop1000ByGeoCellIsNull();
+
+  @Query(LISTING_VIEW + " WHERE l.client = :client AND l.account = :account"
+      + " AND l.listingId > :afterId ORDER BY l.listingId")
+  Slice<ListingView> findViewsByClientAndAccount(@Param("client") ClientProfile client,
+      @Param("account") AccountProfile account, @Param("afterId") int afterId,
+      Pageable pageable);
 
   Optional<FoodListing> findByClientAndAccountAndListingId(ClientProfile client,
       AccountProfile account,
       int listingId);
 
   Optional<FoodListing> findByClientAndListingId(ClientProfile client, int listingId);
+
+  List<FoodListing> findByClientAndListingIdIn(ClientProfile client,
+      Collection<Integer> listingIds);
+
+  /**
+   * Subtracts `quantity` from the quantity listed of the listing with `listingId` in `client`, in a
+   * single statement that only applies if enough is listed. Concurrent calls for the same listing
+   * therefore never take more than is listed. Also increments the listing's version, so that
+   * concurrent read-modify-write updates of the listing detect the change.
+   *
+   * @param client    the client of the listing
+   * @param listingId the ID of the listing
+   * @param quantity  the quantity to subtract
+   * @return 1 if the quantity was subtracted, 0 if there is no such listing or not enough is listed
+   */
+  @Transactional
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE FoodListing l SET l.quantityListed = l.quantityListed - :quantity,"
+      + " l.version = l.version + 1"
+      + " WHERE l.listingId = :listingId AND l.client = :client AND l.quantityListed >= :quantity")
+  int decrementQuantityListed(@Param("client") ClientProfile client,
+      @Param("listingId") int listingId, @Param("quantity") int quantity);
 }
@@ -0,0 +1,23 @@
+package dev.coms4156.project.teamproject.repository;
+
+import dev.coms4156.project.teamproject.model.ClientProfile;
+import dev.coms4156.project.teamproject.model.FulfillItem;
+import java.util.List;
+
+/**
+ * Queries of {@link FoodListingRepository} that are written against JDBC directly.
+ */
+public interface FoodListingRepositoryCustom {
+
+  /**
+   * Applies {@link FoodListingRepository#decrementQuantityListed} to every item, in order, as one
+   * batch of statements. Runs in the caller's transaction if there is one, and otherwise commits
+   * each item on its own.
+   *
+   * @param client the client of the listings
+   * @param items  the listings and the quantities to subtract from them
+   * @return for each item, 1 if its quantity was subtracted and 0 if there is no such listing or
+   *     not enough is listed
+   */
+  int[] decrementQuantitiesListed(ClientProfile client, List<FulfillItem> items);
+}
@@ -0,0 +1,61 @@
+package dev.coms4156.project.teamproject.repository;
+
+import dev.coms4156.project.teamproject.model.ClientProfile;
+import dev.coms4156.project.teamproject.model.FulfillItem;
+import jakarta.persistence.EntityManager;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Implements {@link FoodListingRepositoryCustom}. Picked up by Spring Data as part of
+ * {@link FoodListingRepository}.
+ */
+public class FoodListingRepositoryImpl implements FoodListingRepositoryCustom {
+
+  private static final String DECREMENT_QUANTITY_LISTED = "UPDATE food_listing"
+      + " SET quantity = quantity - ?, version = version + 1"
+      + " WHERE listing_id = ? AND client_id = ? AND quantity >= ?";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final EntityManager entityManager;
+
+  /**
+   * Constructs the repository implementation.
+   *
+   * @param jdbcTemplate  the template to run the statements with
+   * @param entityManager the entity manager whose entities the statements may make stale
+   */
+  @Autowired
+  public FoodListingRepositoryImpl(JdbcTemplate jdbcTemplate, EntityManager entityManager) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.entityManager = entityManager;
+  }
+
+  @Override
+  public int[] decrementQuantitiesListed(ClientProfile client, List<FulfillItem> items) {
+    if (items.isEmpty()) {
+      return new int[0];
+    }
+    // Like decrementQuantityListed, write pending changes first and drop the loaded entities after
+    if (entityManager.isJoinedToTransaction()) {
+      entityManager.flush();
+    }
+    int[][] counts = jdbcTemplate.batchUpdate(DECREMENT_QUANTITY_LISTED, items, items.size(),
+        (statement, item) -> {
+          statement.setInt(1, item.quantity());
+          statement.setInt(2, item.listingId());
+          statement.setInt(3, client.getClientId());
+          statement.setInt(4, item.quantity());
+        });
+    entityManager.clear();
+    int[] results = new int[items.size()];
+    int i = 0;
+    for (int[] batch : counts) {
+      for (int count : batch) {
+        results[i++] = count;
+      }
+    }
+    return results;
+  }
+}
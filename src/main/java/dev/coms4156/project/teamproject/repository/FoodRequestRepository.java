@@ -4,18 +4,39 @@ import dev.coms4156.project.teamproject.model.AccountProfile;
 import dev.coms4156.project.teamproject.model.ClientProfile;
 import dev.coms4156.project.teamproject.model.FoodListing;
 import dev.coms4156.project.teamproject.model.FoodRequest;
-import java.util.List;
+import dev.coms4156.project.teamproject.model.RequestView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
  * Repository interface for managing {@link FoodRequest} entities. Provides methods for querying
- * food requests based on client ID and food listing.
+ * food requests based on client ID and food listing or account.
  */
 @Repository
 public interface FoodRequestRepository extends JpaRepository<FoodRequest, Integer> {
 
-  List<FoodRequest> findByClientAndFoodListing(ClientProfile client, FoodListing foodListing);
+  /**
+   * JPQL selecting the {@link RequestView} of every request `r`. The IDs of the request's client,
+   * account and listing are read from its own columns, without joining their tables. The finders
+   * return the requests with IDs after `afterId` in order, one page of `pageable` at a time.
+   */
+  String REQUEST_VIEW = "SELECT new dev.coms4156.project.teamproject.model.RequestView("
+      + "r.requestId, r.client.clientId, r.account.accountId, r.foodListing.listingId,"
+      + " r.quantityRequested, r.requestTime) FROM FoodRequest r";
 
-  List<FoodRequest> findByClientAndAccount(ClientProfile client, AccountProfile account);
+  @Query(REQUEST_VIEW + " WHERE r.client = :client AND r.foodListing = :foodListing"
+      + " AND r.requestId > :afterId ORDER BY r.requestId")
+  Slice<RequestView> findViewsByClientAndFoodListing(@Param("client") ClientProfile client,
+      @Param("foodListing") FoodListing foodListing, @Param("afterId") int afterId,
+      Pageable pageable);
+
+  @Query(REQUEST_VIEW + " WHERE r.client = :client AND r.account = :account"
+      + " AND r.requestId > :afterId ORDER BY r.requestId")
+  Slice<RequestView> findViewsByClientAndAccount(@Param("client") ClientProfile client,
+      @Param("account") AccountProfile account, @Param("afterId") int afterId,
+      Pageable pageable);
 }
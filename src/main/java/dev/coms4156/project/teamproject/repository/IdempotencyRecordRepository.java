@@ -0,0 +1,58 @@
+package dev.coms4156.project.teamproject.repository;
+
+import dev.coms4156.project.teamproject.model.IdempotencyRecord;
+import java.time.LocalDateTime;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository interface for managing {@link IdempotencyRecord} entities.
+ */
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+  /**
+   * Deletes the records created before `cutoff`.
+   *
+   * @param cutoff the creation time before which records are deleted
+   * @return the number of records deleted
+   */
+  @Transactional
+  @Modifying
+  @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+  int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+  /**
+   * Reserves the record with `key` again as received at `now`, if its request has not completed
+   * and was received at or before `cutoff`.
+   *
+   * @param key    the idempotency key
+   * @param cutoff the time at or before which the reservation has expired
+   * @param now    the time of the new reservation
+   * @return 1 if the record was reserved again, and 0 otherwise
+   */
+  @Transactional
+  @Modifying(clearAutomatically = true)
+  @Query("UPDATE IdempotencyRecord r SET r.createdAt = :now WHERE r.key = :key"
+      + " AND r.status IS NULL AND r.createdAt <= :cutoff")
+  int takeOverReservation(@Param("key") String key, @Param("cutoff") LocalDateTime cutoff,
+      @Param("now") LocalDateTime now);
+
+  /**
+   * Reserves the record with `key` again as received at `now`, if its request has not completed,
+   * so that its lease starts over.
+   *
+   * @param key the idempotency key
+   * @param now the time of the renewed reservation
+   * @return 1 if the reservation was renewed, and 0 otherwise
+   */
+  @Transactional
+  @Modifying(clearAutomatically = true)
+  @Query("UPDATE IdempotencyRecord r SET r.createdAt = :now WHERE r.key = :key"
+      + " AND r.status IS NULL")
+  int renewReservation(@Param("key") String key, @Param("now") LocalDateTime now);
+}
@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.when;
 
+import dev.coms4156.project.teamproject.cache.ProfileCache;
 import dev.coms4156.project.teamproject.controller.AccountProfileController;
 import dev.coms4156.project.teamproject.model.AccountProfile;
 import dev.coms4156.project.teamproject.model.ClientProfile;
@@ -11,6 +12,7 @@ import dev.coms4156.project.teamproject.repository.AccountProfileRepository;
 import dev.coms4156.project.teamproject.repository.ClientProfileRepository;
 import java.util.HashMap;
 import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -29,6 +31,9 @@ public class AccountProfileControllerUnitTests {
   @Autowired
   private AccountProfileController accountProfileController;
 
+  @Autowired
+  private ProfileCache profileCache;
+
   @MockBean
   private ClientProfileRepository clientProfileRepository;
 
@@ -37,6 +42,14 @@ public class AccountProfileControllerUnitTests {
 
   private static final ClientProfile client = new ClientProfile();
 
+  /**
+   * Drops the profiles cached by earlier tests, whose repositories were mocked differently.
+   */
+  @BeforeEach
+  public void setUp() {
+    profileCache.clear();
+  }
+
   @Test
   public void createAccountProfileOkTest() {
     when(clientProfileRepository.findById(client.getClientId())).thenReturn(Optional.of(client));
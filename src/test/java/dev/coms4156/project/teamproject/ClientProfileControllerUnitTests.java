@@ -5,11 +5,13 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.when;
 
+import dev.coms4156.project.teamproject.cache.ProfileCache;
 import dev.coms4156.project.teamproject.controller.ClientProfileController;
 import dev.coms4156.project.teamproject.model.ClientProfile;
 import dev.coms4156.project.teamproject.repository.ClientProfileRepository;
 import java.util.HashMap;
 import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -27,9 +29,20 @@ public class ClientProfileControllerUnitTests {
   @Autowired
   private ClientProfileController clientProfileController;
 
+  @Autowired
+  private ProfileCache profileCache;
+
   @MockBean
   private ClientProfileRepository clientProfileRepository;
 
+  /**
+   * Drops the profiles cached by earlier tests, whose repositories were mocked differently.
+   */
+  @BeforeEach
+  public void setUp() {
+    profileCache.clear();
+  }
+
   @Test
   public void createClientProfileOkTest() {
     ResponseEntity<?> response = clientProfileController.createClientProfile();
@@ -0,0 +1,95 @@
+package dev.coms4156.project.teamproject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import dev.coms4156.project.teamproject.model.DistanceKernel;
+import dev.coms4156.project.teamproject.model.Location;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the DistanceKernel class.
+ */
+public class DistanceKernelUnitTests {
+
+  private static final double DELTA = 1e-6;
+
+  @Test
+  public void distancesWithinMatchesLocationTest() {
+    float[] latitudes = {34.0522f, 34.1f, 40.7128f, 33.9f, 34.0522f};
+    float[] longitudes = {-118.2437f, -118.3f, -74.006f, -118.4f, -118.2437f};
+    double[] distances = new double[latitudes.length];
+
+    int within = DistanceKernel.distancesWithin(34.0522f, -118.2437f, latitudes, longitudes, 4,
+        50, distances);
+
+    assertEquals(3, within);
+    assertEquals(0, distances[0], DELTA);
+    assertEquals(distanceTo(34.0522f, -118.2437f, 34.1f, -118.3f), distances[1], DELTA);
+    assertEquals(Double.POSITIVE_INFINITY, distances[2]);
+    assertEquals(distanceTo(34.0522f, -118.2437f, 33.9f, -118.4f), distances[3], DELTA);
+    // Only the first `count` locations are computed
+    assertEquals(0, distances[4]);
+  }
+
+  @Test
+  public void distancesWithinAcrossAntimeridianTest() {
+    float[] latitudes = {10f, 10f};
+    float[] longitudes = {-179.9f, 179.9f};
+    double[] distances = new double[2];
+
+    int within = DistanceKernel.distancesWithin(10, 180, latitudes, longitudes, 2, 20, distances);
+
+    assertEquals(2, within);
+    assertEquals(distanceTo(10f, 180f, 10f, -179.9f), distances[0], DELTA);
+    assertEquals(distanceTo(10f, 180f, 10f, 179.9f), distances[1], DELTA);
+  }
+
+  @Test
+  public void distancesWithinAgreesWithLocationTest() {
+    Random random = new Random(4156);
+    int count = 2000;
+    float[] latitudes = new float[count];
+    float[] longitudes = new float[count];
+    for (int i = 0; i < count; i++) {
+      latitudes[i] = (float) (random.nextDouble() * 180 - 90);
+      longitudes[i] = (float) (random.nextDouble() * 360 - 180);
+    }
+    double[] distances = new double[count];
+
+    for (double maxDistance : new double[] {0, 100, 2500, 20000, 30000}) {
+      float queryLat = (float) (random.nextDouble() * 180 - 90);
+      float queryLong = (float) (random.nextDouble() * 360 - 180);
+      int within = DistanceKernel.distancesWithin(queryLat, queryLong, latitudes, longitudes,
+          count, maxDistance, distances);
+
+      int expectedWithin = 0;
+      for (int i = 0; i < count; i++) {
+        double expected = distanceTo(queryLat, queryLong, latitudes[i], longitudes[i]);
+        if (expected <= maxDistance) {
+          expectedWithin++;
+          assertEquals(expected, distances[i], DELTA);
+        } else {
+          assertEquals(Double.POSITIVE_INFINITY, distances[i]);
+        }
+      }
+      assertEquals(expectedWithin, within);
+    }
+  }
+
+  @Test
+  public void distancesWithinAtEdgeTest() {
+    float[] latitudes = {45.5f};
+    float[] longitudes = {-73.5f};
+    double[] distances = new double[1];
+    double edge = distanceTo(45f, -73f, 45.5f, -73.5f);
+
+    assertEquals(1, DistanceKernel.distancesWithin(45, -73, latitudes, longitudes, 1, edge,
+        distances));
+    assertEquals(edge, distances[0], DELTA);
+  }
+
+  private static double distanceTo(float fromLat, float fromLong, float toLat, float toLong) {
+    return new Location(fromLat, fromLong).distance(new Location(toLat, toLong));
+  }
+}
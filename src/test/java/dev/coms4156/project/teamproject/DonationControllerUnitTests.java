@@ -0,0 +1,149 @@
+package dev.coms4156.project.teamproject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import dev.coms4156.project.teamproject.cache.ProfileCache;
+import dev.coms4156.project.teamproject.controller.DonationController;
+import dev.coms4156.project.teamproject.model.AccountProfile;
+import dev.coms4156.project.teamproject.model.ClientProfile;
+import dev.coms4156.project.teamproject.model.DonationView;
+import dev.coms4156.project.teamproject.repository.AccountProfileRepository;
+import dev.coms4156.project.teamproject.repository.DonationRepository;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+/**
+ * Tests for DonationController.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class DonationControllerUnitTests {
+
+  @Autowired
+  private DonationController donationController;
+
+  @Autowired
+  private ProfileCache profileCache;
+
+  @MockBean
+  private DonationRepository donationRepository;
+
+  @MockBean
+  private AccountProfileRepository accountProfileRepository;
+
+  private ClientProfile client;
+  private AccountProfile provider;
+  private DonationView donation;
+
+  /**
+   * Mocks a client with a provider account that made one donation.
+   */
+  @BeforeEach
+  public void setUp() {
+    profileCache.clear();
+    client = new ClientProfile();
+    provider = new AccountProfile(client, AccountProfile.AccountType.PROVIDER, "1234567890", "p");
+    donation = new DonationView(7, 3, 4, 5, LocalDateTime.of(2024, 10, 6, 12, 0));
+
+    when(accountProfileRepository.findByClientIdAndAccountId(client.getClientId(),
+        provider.getAccountId())).thenReturn(Optional.of(provider));
+  }
+
+  @Test
+  public void getDonationsOkTest() {
+    when(donationRepository.findViewsByClientAndAccount(eq(client), eq(provider), eq(0), any()))
+        .thenReturn(new SliceImpl<>(List.of(donation)));
+
+    ResponseEntity<?> response = donationController.getDonations(
+        client.getClientId(), provider.getAccountId(), null, null, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    @SuppressWarnings("unchecked")
+    List<Map<String, Object>> body = (List<Map<String, Object>>) response.getBody();
+    assert body != null;
+    assertEquals(1, body.size());
+    assertEquals(3, body.get(0).get("listing_id"));
+    assertEquals(4, body.get(0).get("request_id"));
+    assertEquals(5, body.get(0).get("quantity_picked_up"));
+    assertEquals(LocalDateTime.of(2024, 10, 6, 12, 0), body.get(0).get("pick_up_time"));
+
+    // Unpaged calls are capped rather than reading every donation
+    verify(donationRepository).findViewsByClientAndAccount(client, provider, 0,
+        PageRequest.of(0, 10000));
+  }
+
+  @Test
+  public void getDonationsPageTest() {
+    when(donationRepository.findViewsByClientAndAccount(eq(client), eq(provider), eq(6), any()))
+        .thenReturn(new SliceImpl<>(List.of(donation), PageRequest.of(0, 1), true));
+
+    ResponseEntity<?> response = donationController.getDonations(
+        client.getClientId(), provider.getAccountId(), null, 1, 6);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    @SuppressWarnings("unchecked")
+    Map<String, Object> body = (Map<String, Object>) response.getBody();
+    assert body != null;
+    assertEquals(1, ((List<?>) body.get("donations")).size());
+    assertEquals(7, body.get("nextAfterId"));
+  }
+
+  @Test
+  public void getDonationsInvalidLimitTest() {
+    ResponseEntity<?> response = donationController.getDonations(
+        client.getClientId(), provider.getAccountId(), null, 0, null);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+  }
+
+  @Test
+  public void getDonationsForListingTest() {
+    when(donationRepository.findViewsByClientAndAccountAndListingId(eq(client), eq(provider),
+        eq(3), anyInt(), any())).thenReturn(new SliceImpl<>(List.of()));
+
+    // A listing that has not been picked up from yet
+    ResponseEntity<?> response = donationController.getDonations(
+        client.getClientId(), provider.getAccountId(), 3, null, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of(), response.getBody());
+  }
+
+  @Test
+  public void getDonationsRecipientTest() {
+    AccountProfile recipient =
+        new AccountProfile(client, AccountProfile.AccountType.RECIPIENT, "1234567890", "r");
+    when(accountProfileRepository.findByClientIdAndAccountId(client.getClientId(), 5))
+        .thenReturn(Optional.of(recipient));
+
+    ResponseEntity<?> response = donationController.getDonations(
+        client.getClientId(), 5, null, null, null);
+    assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+    verify(donationRepository, never()).findViewsByClientAndAccount(any(), any(), anyInt(),
+        any());
+  }
+
+  @Test
+  public void getDonationsNotFoundTest() {
+    when(accountProfileRepository.findByClientIdAndAccountId(anyInt(), anyInt()))
+        .thenReturn(Optional.empty());
+
+    ResponseEntity<?> response = donationController.getDonations(
+        client.getClientId(), 111, null, null, null);
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+  }
+}
@@ -0,0 +1,162 @@
+package dev.coms4156.project.teamproject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import dev.coms4156.project.teamproject.model.AccountProfile;
+import dev.coms4156.project.teamproject.model.ClientProfile;
+import dev.coms4156.project.teamproject.model.Donation;
+import dev.coms4156.project.teamproject.model.FoodListing;
+import dev.coms4156.project.teamproject.model.FoodRequest;
+import dev.coms4156.project.teamproject.persistence.DonationWriter;
+import dev.coms4156.project.teamproject.repository.DonationRepository;
+import dev.coms4156.project.teamproject.repository.FoodListingRepository;
+import dev.coms4156.project.teamproject.repository.FoodRequestRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * This class contains unit tests for the DonationWriter class, over mocked repositories.
+ */
+public class DonationWriterUnitTests {
+
+  private DonationRepository donationRepository;
+  private FoodListingRepository foodListingRepository;
+  private FoodRequestRepository foodRequestRepository;
+  private TransactionTemplate transactionTemplate;
+  private List<Donation> saved;
+  private ClientProfile client;
+  private FoodListing listing;
+  private DonationWriter writer;
+
+  /**
+   * Mocks repositories with one listing (ID 0) that record the donations saved before each test.
+   */
+  @BeforeEach
+  public void setUp() {
+    donationRepository = mock(DonationRepository.class);
+    foodListingRepository = mock(FoodListingRepository.class);
+    foodRequestRepository = mock(FoodRequestRepository.class);
+    transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+    saved = new CopyOnWriteArrayList<>();
+
+    client = new ClientProfile();
+    AccountProfile provider =
+        new AccountProfile(client, AccountProfile.AccountType.PROVIDER, "1234567890", "p");
+    listing = new FoodListing(client, provider, "snack", 25,
+        LocalDateTime.of(2024, 10, 6, 11, 0), 34.052f, -118.243f);
+    when(foodListingRepository.findAllById(anyList())).thenReturn(List.of(listing));
+    when(foodRequestRepository.getReferenceById(anyInt())).thenReturn(new FoodRequest());
+    when(donationRepository.saveAllAndFlush(anyList())).thenAnswer(invocation -> {
+      List<Donation> donations = new ArrayList<>(invocation.getArgument(0));
+      saved.addAll(donations);
+      return donations;
+    });
+  }
+
+  /**
+   * Stops the writer started by the test.
+   */
+  @AfterEach
+  public void tearDown() {
+    if (writer != null) {
+      writer.close();
+    }
+  }
+
+  private DonationWriter writer(int batchSize, long flushMillis, int capacity) {
+    return new DonationWriter(donationRepository, foodListingRepository, foodRequestRepository,
+        transactionTemplate, batchSize, flushMillis, capacity);
+  }
+
+  @Test
+  public void fullBatchIsWrittenTest() {
+    writer = writer(2, 3_600_000, 100);
+    writer.record(client.getClientId(), listing.getListingId(), 3, 4);
+    writer.record(client.getClientId(), listing.getListingId(), 4, 4);
+
+    // The second donation fills a batch, so both are written without waiting for the interval
+    verify(donationRepository, timeout(5000)).saveAllAndFlush(anyList());
+    assertEquals(2, saved.size());
+    assertEquals(listing, saved.get(0).getFoodListing());
+    assertEquals(4, saved.get(0).getQuantityPickedUp());
+  }
+
+  @Test
+  public void partialBatchIsWrittenAfterIntervalTest() {
+    writer = writer(100, 50, 100);
+    writer.record(client.getClientId(), listing.getListingId(), 3, 4);
+
+    verify(donationRepository, timeout(5000)).saveAllAndFlush(anyList());
+    assertEquals(1, saved.size());
+    assertEquals(0, writer.pending());
+  }
+
+  @Test
+  public void fullQueueIsWrittenByCallerTest() {
+    writer = writer(1, 3_600_000, 1);
+    for (int i = 0; i < 10; i++) {
+      writer.record(client.getClientId(), listing.getListingId(), i, 1);
+    }
+    writer.close();
+
+    // No donation is dropped, even though at most one fits in the queue
+    assertEquals(10, saved.size());
+  }
+
+  @Test
+  public void failedBatchIsWrittenRowByRowTest() {
+    when(donationRepository.saveAllAndFlush(anyList()))
+        .thenThrow(new DataIntegrityViolationException("request_id"))
+        .thenReturn(List.of(new Donation()))
+        .thenThrow(new DataIntegrityViolationException("request_id"))
+        .thenReturn(List.of(new Donation()));
+    writer = writer(10, 3_600_000, 100);
+    writer.record(client.getClientId(), listing.getListingId(), 3, 4);
+    writer.record(client.getClientId(), listing.getListingId(), 4, 4);
+    writer.record(client.getClientId(), listing.getListingId(), 5, 4);
+
+    // Only the donation that fails on its own is dropped
+    assertEquals(2, writer.flush());
+    verify(donationRepository, times(4)).saveAllAndFlush(anyList());
+  }
+
+  @Test
+  public void missingListingIsDroppedTest() {
+    writer = writer(10, 3_600_000, 100);
+    writer.record(client.getClientId(), listing.getListingId() + 1, 3, 4);
+    writer.record(client.getClientId(), listing.getListingId(), 4, 4);
+
+    assertEquals(1, writer.flush());
+    assertEquals(listing, saved.get(0).getFoodListing());
+  }
+
+  @Test
+  public void emptyFlushTest() {
+    writer = writer(10, 3_600_000, 100);
+    assertEquals(0, writer.flush());
+    verify(donationRepository, never()).saveAllAndFlush(anyList());
+  }
+
+  @Test
+  public void invalidConfigurationTest() {
+    assertThrows(IllegalArgumentException.class, () -> writer(10, 3_600_000, 5));
+    assertThrows(IllegalArgumentException.class, () -> writer(0, 3_600_000, 5));
+  }
+}
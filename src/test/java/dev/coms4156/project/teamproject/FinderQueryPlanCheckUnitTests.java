@@ -0,0 +1,77 @@
+package dev.coms4156.project.teamproject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import dev.coms4156.project.teamproject.config.FinderQueryPlanCheck;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * This class contains unit tests for the FinderQueryPlanCheck class, over a mocked database.
+ */
+public class FinderQueryPlanCheckUnitTests {
+
+  private JdbcTemplate jdbcTemplate;
+  private FinderQueryPlanCheck check;
+
+  /**
+   * Mocks a database where every finder uses an index before each test.
+   */
+  @BeforeEach
+  public void setUp() {
+    jdbcTemplate = mock(JdbcTemplate.class);
+    when(jdbcTemplate.queryForList(anyString()))
+        .thenReturn(List.of(step("ref", "idx_food_listing_client_account")));
+    check = new FinderQueryPlanCheck(jdbcTemplate);
+  }
+
+  private static Map<String, Object> step(String type, String possibleKeys) {
+    Map<String, Object> step = new HashMap<>();
+    step.put("type", type);
+    step.put("possible_keys", possibleKeys);
+    return step;
+  }
+
+  @Test
+  public void indexedFindersTest() {
+    assertEquals(List.of(), check.findFullScans());
+  }
+
+  @Test
+  public void fullScanTest() {
+    when(jdbcTemplate.queryForList(startsWith("EXPLAIN SELECT * FROM food_request")))
+        .thenReturn(List.of(step("ALL", null)));
+
+    assertEquals(List.of("FoodRequestRepository.findViewsByClientAndFoodListing",
+        "FoodRequestRepository.findViewsByClientAndAccount"), check.findFullScans());
+  }
+
+  @Test
+  public void scanWithUsableIndexTest() {
+    // Small tables are scanned even when an index applies
+    when(jdbcTemplate.queryForList(startsWith("EXPLAIN SELECT * FROM donation")))
+        .thenReturn(List.of(step("ALL", "idx_donation_client_account_id")));
+
+    assertEquals(List.of(), check.findFullScans());
+  }
+
+  @Test
+  public void otherDatabasesTest() {
+    when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("H2");
+    check.afterSingletonsInstantiated();
+
+    verify(jdbcTemplate, never()).queryForList(anyString());
+  }
+}
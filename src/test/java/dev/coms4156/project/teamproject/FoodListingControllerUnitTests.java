@@ -1,21 +1,46 @@
 package dev.coms4156.project.teamproject;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import dev.coms4156.project.teamproject.cache.NearbySearchCache;
+import dev.coms4156.project.teamproject.cache.ProfileCache;
+import dev.coms4156.project.teamproject.concurrency.InventoryLanes;
 import dev.coms4156.project.teamproject.controller.FoodListingController;
 import dev.coms4156.project.teamproject.model.AccountProfile;
 import dev.coms4156.project.teamproject.model.ClientProfile;
 import dev.coms4156.project.teamproject.model.FoodListing;
+import dev.coms4156.project.teamproject.model.FoodRequest;
+import dev.coms4156.project.teamproject.model.FulfillItem;
+import dev.coms4156.project.teamproject.model.FulfillResult;
+import dev.coms4156.project.teamproject.model.ListingFilter;
+import dev.coms4156.project.teamproject.model.ListingView;
+import dev.coms4156.project.teamproject.persistence.DonationWriter;
 import dev.coms4156.project.teamproject.repository.AccountProfileRepository;
 import dev.coms4156.project.teamproject.repository.ClientProfileRepository;
 import dev.coms4156.project.teamproject.repository.FoodListingRepository;
+import dev.coms4156.project.teamproject.repository.FoodRequestRepository;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -24,8 +49,11 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 
 /**
@@ -44,12 +72,27 @@ public class FoodListingControllerUnitTests {
   @Autowired
   private FoodListingController foodListingController;
 
+  @Autowired
+  private NearbySearchCache nearbySearchCache;
+
+  @Autowired
+  private ProfileCache profileCache;
+
   @MockBean
   private ClientProfileRepository clientProfileRepository;
 
   @MockBean
   private AccountProfileRepository accountProfileRepository;
 
+  @MockBean
+  private FoodRequestRepository foodRequestRepository;
+
+  @MockBean
+  private DonationWriter donationWriter;
+
+  @MockBean
+  private InventoryLanes inventoryLanes;
+
   private ClientProfile client;
   private AccountProfile providerAccount;
   private final int providerId = 0;
@@ -69,6 +112,8 @@ public class FoodListingControllerUnitTests {
   public void setup() {
     // Make sure repository is in a clean state
     foodListingRepository.deleteAll();
+    nearbySearchCache.clear();
+    profileCache.clear();
 
     client = new ClientProfile();
     providerAccount = new AccountProfile(
@@ -89,16 +134,17 @@ public class FoodListingControllerUnitTests {
         33.989f, -118.243f);
 
     when(clientProfileRepository.findById(client.getClientId())).thenReturn(Optional.of(client));
-    when(accountProfileRepository.findById(any())).thenAnswer(invocation -> {
-      int id = invocation.getArgument(0); // Retrieve the argument (ID) passed to findById
-      if (id == 0) {
-        return Optional.of(providerAccount);
-      } else if (id == 1) {
-        return Optional.of(recipientAccount);
-      } else {
-        return Optional.empty();
-      }
-    });
+    when(accountProfileRepository.findByClientIdAndAccountId(eq(client.getClientId()), anyInt()))
+        .thenAnswer(invocation -> {
+          int id = invocation.getArgument(1); // Retrieve the account ID passed to the finder
+          if (id == 0) {
+            return Optional.of(providerAccount);
+          } else if (id == 1) {
+            return Optional.of(recipientAccount);
+          } else {
+            return Optional.empty();
+          }
+        });
 
     when(foodListingRepository.save(any())).thenAnswer(invocation -> {
       FoodListing listing = invocation.getArgument(0, FoodListing.class);
@@ -114,6 +160,11 @@ public class FoodListingControllerUnitTests {
         return null;
       }
     });
+    // Like lists, slices of listings are empty unless a test says otherwise
+    when(foodListingRepository.findViewsByClient(any(), anyInt(), any()))
+        .thenReturn(new SliceImpl<>(List.of()));
+    when(foodListingRepository.findViewsByClientAndAccount(any(), any(), anyInt(), any()))
+        .thenReturn(new SliceImpl<>(List.of()));
     when(foodListingRepository.findById(any())).thenAnswer(invocation -> {
       int id = invocation.getArgument(0); // Retrieve the argument (ID) passed to findById
       if (id == 0) {
@@ -164,32 +215,150 @@ public class FoodListingControllerUnitTests {
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
   }
 
+  @Test
+  public void createFoodListingsNdjsonTest() throws IOException {
+    String body = """
+        {"foodType": "snack", "quantityListed": 5, "latitude": 34.052, "longitude": -118.243}
+        {"foodType": "rice", "quantityListed": 8, "latitude": 33.989, "longitude": -118.243}
+        """;
+    ResponseEntity<?> response = foodListingController.createFoodListings(client.getClientId(),
+        providerId, stream(body));
+
+    assertEquals(HttpStatus.CREATED, response.getStatusCode());
+    assertEquals(2, ((Map<?, ?>) Objects.requireNonNull(response.getBody())).get("created"));
+    verify(foodListingRepository).saveAll(any());
+  }
+
+  @Test
+  public void createFoodListingsJsonArrayTest() throws IOException {
+    String body = "[{\"foodType\": \"snack\", \"quantityListed\": 5, \"latitude\": 34.052, "
+        + "\"longitude\": -118.243, \"note\": \"ignored\"}]";
+    ResponseEntity<?> response = foodListingController.createFoodListings(client.getClientId(),
+        providerId, stream(body));
+
+    assertEquals(HttpStatus.CREATED, response.getStatusCode());
+    assertEquals(1, ((Map<?, ?>) Objects.requireNonNull(response.getBody())).get("created"));
+  }
+
+  @Test
+  public void createFoodListingsInvalidListingTest() throws IOException {
+    String body = """
+        {"foodType": "snack", "quantityListed": 5, "latitude": 34.052, "longitude": -118.243}
+        {"foodType": "rice", "quantityListed": 0, "latitude": 33.989, "longitude": -118.243}
+        """;
+    ResponseEntity<?> response = foodListingController.createFoodListings(client.getClientId(),
+        providerId, stream(body));
+
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    assertEquals("Listing 2 is invalid: quantityListed must be positive.",
+        ((Map<?, ?>) Objects.requireNonNull(response.getBody())).get("error"));
+    verify(foodListingRepository, never()).saveAll(any());
+  }
+
+  @Test
+  public void createFoodListingsMissingLatitudeTest() throws IOException {
+    String body = """
+        {"foodType": "snack", "quantityListed": 5, "longitude": -118.243}
+        """;
+    ResponseEntity<?> response = foodListingController.createFoodListings(client.getClientId(),
+        providerId, stream(body));
+
+    // Rather than creating the listing at latitude 0
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    assertEquals("Listing 1 is invalid: latitude and longitude are required.",
+        ((Map<?, ?>) Objects.requireNonNull(response.getBody())).get("error"));
+    verify(foodListingRepository, never()).saveAll(any());
+  }
+
+  @Test
+  public void createFoodListingsTrailingContentTest() throws IOException {
+    String listing = "{\"foodType\": \"snack\", \"quantityListed\": 5, \"latitude\": 34.052, "
+        + "\"longitude\": -118.243}";
+    // A concatenated upload, a truncated second array and garbage after the array
+    for (String body : List.of("[" + listing + "][" + listing + "]",
+        "[" + listing + "] [" + listing, "[" + listing + "]}")) {
+      ResponseEntity<?> response = foodListingController.createFoodListings(
+          client.getClientId(), providerId, stream(body));
+
+      assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+      assertEquals("Unexpected content after listing 1.",
+          ((Map<?, ?>) Objects.requireNonNull(response.getBody())).get("error"));
+    }
+    // Trailing whitespace is fine
+    assertEquals(HttpStatus.CREATED, foodListingController.createFoodListings(
+        client.getClientId(), providerId, stream("[" + listing + "]\n")).getStatusCode());
+  }
+
+  @Test
+  public void createFoodListingsMalformedBodyTest() throws IOException {
+    ResponseEntity<?> response = foodListingController.createFoodListings(client.getClientId(),
+        providerId, stream("[{\"foodType\": \"snack\", "));
+
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+  }
+
+  @Test
+  public void createFoodListingsMissingClientTest() throws IOException {
+    ResponseEntity<?> response = foodListingController.createFoodListings(111, providerId,
+        stream("[]"));
+
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+  }
+
+  private static ListingView view(FoodListing listing) {
+    return new ListingView(listing.getListingId(), listing.getFoodType(),
+        listing.getQuantityListed(), listing.getEarliestPickUpTime(), listing.getLatitude(),
+        listing.getLongitude());
+  }
+
+  private static InputStream stream(String body) {
+    return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+  }
+
   @Test
   public void getFoodListingNoneFoundTest() {
     // Mock repository to return empty list
-    when(foodListingRepository.findByClient(client)).thenReturn(List.of());
-    ResponseEntity<?> response = foodListingController.getFoodListings(client.getClientId());
+    when(foodListingRepository.findViewsByClient(eq(client), anyInt(), any()))
+        .thenReturn(new SliceImpl<>(List.of()));
+    ResponseEntity<?> response = foodListingController.getFoodListings(client.getClientId(),
+        ListingFilter.NONE, null, null);
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
   }
 
   @Test
-  public void getFoodListingsOneClientTest() {
-    List<FoodListing> mockedReturn = new ArrayList<>();
-    mockedReturn.add(listing1);
-    mockedReturn.add(listing2);
-    when(foodListingRepository.findByClient(client)).thenReturn(mockedReturn);
+  public void getFoodListingsUnpagedOverCapTest() {
+    // The capped read found more listings than an unpaged call may return
+    when(foodListingRepository.findViewsByClient(eq(client), anyInt(), any()))
+        .thenReturn(new SliceImpl<>(Collections.nCopies(10000, view(listing1)),
+            PageRequest.of(0, 10000), true));
+
+    ResponseEntity<?> response = foodListingController.getFoodListings(client.getClientId(),
+        ListingFilter.NONE, null, null);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    assertTrue(((Map<?, ?>) Objects.requireNonNull(response.getBody())).get("error").toString()
+        .contains("limit"));
+  }
 
-    ResponseEntity<?> response = foodListingController.getFoodListings(client.getClientId());
-    FoodListing expected1 = listing1;
-    FoodListing expected2 = listing2;
-    Set<FoodListing> expected = Set.of(expected1, expected2);
+  @Test
+  public void getFoodListingsOneClientTest() {
+    List<ListingView> mockedReturn = new ArrayList<>();
+    mockedReturn.add(view(listing1));
+    mockedReturn.add(view(listing2));
+    when(foodListingRepository.findViewsByClient(eq(client), anyInt(), any()))
+        .thenReturn(new SliceImpl<>(mockedReturn));
+
+    ResponseEntity<?> response = foodListingController.getFoodListings(client.getClientId(),
+        ListingFilter.NONE, null, null);
+    ListingView expected1 = view(listing1);
+    ListingView expected2 = view(listing2);
+    Set<ListingView> expected = Set.of(expected1, expected2);
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
     @SuppressWarnings("unchecked") // suppress warning for unchecked cast...
-    List<FoodListing> foodListings = (List<FoodListing>) response.getBody();
+    List<ListingView> foodListings = (List<ListingView>) response.getBody();
     assert (Objects.requireNonNull(foodListings).size() == 2);
 
-    for (FoodListing listing : foodListings) {
+    for (ListingView listing : foodListings) {
       assert (expected.contains(listing));
     }
   }
@@ -198,37 +367,43 @@ public class FoodListingControllerUnitTests {
   public void getFoodListingMultipleClientsTest() {
 
     // Let listings 1 and 2 be under the same client
-    List<FoodListing> mockedReturn1 = new ArrayList<>();
-    mockedReturn1.add(listing1);
-    mockedReturn1.add(listing2);
-    when(foodListingRepository.findByClient(client)).thenReturn(mockedReturn1);
-    ResponseEntity<?> response = foodListingController.getFoodListings(client.getClientId());
-    Set<FoodListing> expectedSet = Set.of(listing1, listing2);
+    List<ListingView> mockedReturn1 = new ArrayList<>();
+    mockedReturn1.add(view(listing1));
+    mockedReturn1.add(view(listing2));
+    when(foodListingRepository.findViewsByClient(eq(client), anyInt(), any()))
+        .thenReturn(new SliceImpl<>(mockedReturn1));
+    ResponseEntity<?> response = foodListingController.getFoodListings(client.getClientId(),
+        ListingFilter.NONE, null, null);
+    Set<ListingView> expectedSet = Set.of(view(listing1), view(listing2));
 
     assertEquals(HttpStatus.OK, response.getStatusCode()); // Check status code
 
     // Check body
     @SuppressWarnings("unchecked") // suppress warning for unchecked cast...
-    List<FoodListing> foodListings = (List<FoodListing>) response.getBody();
+    List<ListingView> foodListings = (List<ListingView>) response.getBody();
     assert (Objects.requireNonNull(foodListings).size() == 2);
-    for (FoodListing listing : foodListings) {
+    for (ListingView listing : foodListings) {
       assert (expectedSet.contains(listing));
     }
 
     // Let listing 3 be under a new client
     ClientProfile client2 = new ClientProfile();
-    List<FoodListing> mockedReturn2 = new ArrayList<>();
-    mockedReturn2.add(listing3);
+    List<ListingView> mockedReturn2 = new ArrayList<>();
+    mockedReturn2.add(view(listing3));
     when(clientProfileRepository.findById(client2.getClientId())).thenReturn(Optional.of(client2));
-    when(foodListingRepository.findByClient(client2)).thenReturn(mockedReturn2);
-    ResponseEntity<?> response2 = foodListingController.getFoodListings(client2.getClientId());
+    // The mocked clients share an ID, so the cached one is replaced
+    profileCache.invalidateClient(client2.getClientId());
+    when(foodListingRepository.findViewsByClient(eq(client2), anyInt(), any()))
+        .thenReturn(new SliceImpl<>(mockedReturn2));
+    ResponseEntity<?> response2 = foodListingController.getFoodListings(client2.getClientId(),
+        ListingFilter.NONE, null, null);
     assertEquals(HttpStatus.OK, response2.getStatusCode()); // Check status code
 
     // Check body
     @SuppressWarnings("unchecked") // suppress warning for unchecked cast...
-    List<FoodListing> foodListings2 = (List<FoodListing>) response2.getBody();
+    List<ListingView> foodListings2 = (List<ListingView>) response2.getBody();
     assert (Objects.requireNonNull(foodListings2).size() == 1);
-    assert (foodListings2.get(0).equals(listing3));
+    assert (foodListings2.get(0).equals(view(listing3)));
   }
 
   @Test
@@ -239,14 +414,15 @@ public class FoodListingControllerUnitTests {
     // No client has this ID
     int badClientId = client.getClientId() + 2;
 
-    ResponseEntity<?> response = foodListingController.getFoodListings(badClientId);
+    ResponseEntity<?> response = foodListingController.getFoodListings(badClientId,
+        ListingFilter.NONE, null, null);
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
   }
 
   @Test
   public void getNearbyListingsZeroFoundTest() {
     ResponseEntity<?> response = foodListingController.getNearbyListings(
-        client.getClientId(), 30.000f, -100.000f, 10);
+        client.getClientId(), 30.000f, -100.000f, 10, ListingFilter.NONE, null, null);
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
   }
 
@@ -258,20 +434,25 @@ public class FoodListingControllerUnitTests {
     // This query location is within 10 (units) of listing 1, but
     // response should still be NOT_FOUND since client doesn't exist
     ResponseEntity<?> response = foodListingController.getNearbyListings(
-        badClientId, 78.121f, 120.282f, 10);
+        badClientId, 78.121f, 120.282f, 10, ListingFilter.NONE, null, null);
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
   }
 
   @Test
   public void getNearbyListingsOneFoundSingleClientTest() {
-    // Mock the return from findByClient()
+    // Mock the return from findInCellsAndBoundingBox()
     List<FoodListing> mockedReturn = new ArrayList<>();
     mockedReturn.add(listing1);
     mockedReturn.add(listing2);
-    when(foodListingRepository.findByClient(client)).thenReturn(mockedReturn);
+    when(foodListingRepository.findInCellsAndBoundingBox(eq(client), anyCollection(),
+        anyFloat(), anyFloat(), anyFloat(), anyFloat(), any()))
+        .thenReturn(mockedReturn);
+    // Cached searches near the pole cover too many grid cells and use the bounding box only
+    when(foodListingRepository.findInBoundingBox(eq(client),
+        anyFloat(), anyFloat(), anyFloat(), anyFloat(), any())).thenReturn(mockedReturn);
     // Query from a location near listing 1
     ResponseEntity<?> response = foodListingController.getNearbyListings(
-        client.getClientId(), 34.060f, -118.250f, 10);
+        client.getClientId(), 34.060f, -118.250f, 10, ListingFilter.NONE, null, null);
     // Check status code
     assertEquals(HttpStatus.OK, response.getStatusCode());
     // Check body
@@ -283,7 +464,7 @@ public class FoodListingControllerUnitTests {
 
     // Query form a location near listing 2
     ResponseEntity<?> response2 = foodListingController.getNearbyListings(
-        client.getClientId(), 78.121f, 120.282f, 10);
+        client.getClientId(), 78.121f, 120.282f, 10, ListingFilter.NONE, null, null);
     // Check status code
     assertEquals(HttpStatus.OK, response2.getStatusCode());
     // Check body
@@ -301,11 +482,13 @@ public class FoodListingControllerUnitTests {
     List<FoodListing> mockedReturn = new ArrayList<>();
     mockedReturn.add(listing1);
     mockedReturn.add(listing2);
-    when(foodListingRepository.findByClient(client)).thenReturn(mockedReturn);
+    when(foodListingRepository.findInCellsAndBoundingBox(eq(client), anyCollection(),
+        anyFloat(), anyFloat(), anyFloat(), anyFloat(), any()))
+        .thenReturn(mockedReturn);
 
     // Should only find listing1
     ResponseEntity<?> response = foodListingController.getNearbyListings(
-        client.getClientId(), 34.060f, -118.250f, 10);
+        client.getClientId(), 34.060f, -118.250f, 10, ListingFilter.NONE, null, null);
     // Check status code
     assertEquals(HttpStatus.OK, response.getStatusCode());
     // Check body
@@ -325,14 +508,20 @@ public class FoodListingControllerUnitTests {
     List<FoodListing> mockedReturn2 = new ArrayList<>();
     mockedReturn2.add(listing2);
     mockedReturn2.add(listing3);
-    when(foodListingRepository.findByClient(client2)).thenReturn(mockedReturn2);
+    when(foodListingRepository.findInCellsAndBoundingBox(eq(client2), anyCollection(),
+        anyFloat(), anyFloat(), anyFloat(), anyFloat(), any()))
+        .thenReturn(mockedReturn2);
+    // Cached searches near the pole cover too many grid cells and use the bounding box only
+    when(foodListingRepository.findInBoundingBox(eq(client2),
+        anyFloat(), anyFloat(), anyFloat(), anyFloat(), any())).thenReturn(mockedReturn2);
     when(clientProfileRepository.findById(client2Id)).thenReturn(Optional.of(client2));
+    profileCache.invalidateClient(client2Id);
     when(accountProfileRepository.findById(account2.getAccountId()))
         .thenReturn(Optional.of(account2));
 
     // Should only find listing2
     ResponseEntity<?> response2 = foodListingController.getNearbyListings(
-        client2Id, 78.121f, 120.282f, 10);
+        client2Id, 78.121f, 120.282f, 10, ListingFilter.NONE, null, null);
     // Check status code
     assertEquals(HttpStatus.OK, response2.getStatusCode());
     // Check body
@@ -350,11 +539,13 @@ public class FoodListingControllerUnitTests {
     mockedReturn.add(listing1);
     mockedReturn.add(listing2);
     mockedReturn.add(listing3);
-    when(foodListingRepository.findByClient(client)).thenReturn(mockedReturn);
+    when(foodListingRepository.findInCellsAndBoundingBox(eq(client), anyCollection(),
+        anyFloat(), anyFloat(), anyFloat(), anyFloat(), any()))
+        .thenReturn(mockedReturn);
 
     // Test endpoint
     ResponseEntity<?> response = foodListingController.getNearbyListings(
-        client.getClientId(), 34.021f, -118.243f, 10);
+        client.getClientId(), 34.021f, -118.243f, 10, ListingFilter.NONE, null, null);
     // Check status code
     assertEquals(HttpStatus.OK, response.getStatusCode());
     // Check body
@@ -371,10 +562,141 @@ public class FoodListingControllerUnitTests {
     }
   }
 
+  @Test
+  public void getFoodListingsFilteredTest() {
+    ListingFilter filter = new ListingFilter("snack", null, true, null, null);
+    when(foodListingRepository.findViewsByClientMatching(eq(client), eq(filter), anyInt(), any()))
+        .thenReturn(new SliceImpl<>(List.of(view(listing1))));
+
+    ResponseEntity<?> response = foodListingController.getFoodListings(client.getClientId(),
+        filter, null, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of(view(listing1)), response.getBody());
+  }
+
+  @Test
+  public void getFoodListingsInvalidPickupWindowTest() {
+    ListingFilter filter = new ListingFilter(null, null, null,
+        LocalDateTime.of(2024, 10, 7, 0, 0), LocalDateTime.of(2024, 10, 6, 0, 0));
+    ResponseEntity<?> response = foodListingController.getFoodListings(client.getClientId(),
+        filter, null, null);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+
+    ResponseEntity<?> response2 = foodListingController.getNearbyListings(
+        client.getClientId(), 34.019f, -118.243f, 10, filter, null, null);
+    assertEquals(HttpStatus.BAD_REQUEST, response2.getStatusCode());
+  }
+
+  @Test
+  public void getNearbyListingsFilteredTest() {
+    listing3.setQuantityListed(0);
+    List<FoodListing> mockedReturn = List.of(listing1, listing3);
+    when(foodListingRepository.findInCellsAndBoundingBox(eq(client), anyCollection(),
+        anyFloat(), anyFloat(), anyFloat(), anyFloat(), any())).thenReturn(mockedReturn);
+
+    ResponseEntity<?> response = foodListingController.getNearbyListings(
+        client.getClientId(), 34.019f, -118.243f, 10,
+        new ListingFilter(null, null, true, null, null), null, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of(listing1), response.getBody());
+  }
+
+  @Test
+  public void getNearbyListingsPaginatedTest() {
+    List<FoodListing> mockedReturn = List.of(listing2, listing1, listing3);
+    when(foodListingRepository.findInCellsAndBoundingBox(eq(client), anyCollection(),
+        anyFloat(), anyFloat(), anyFloat(), anyFloat(), any())).thenReturn(mockedReturn);
+
+    // Listing 3 is slightly closer to the query location than listing 1
+    ResponseEntity<?> response = foodListingController.getNearbyListings(
+        client.getClientId(), 34.019f, -118.243f, 10, ListingFilter.NONE, 1, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    @SuppressWarnings("unchecked")
+    Map<String, Object> page = (Map<String, Object>) response.getBody();
+    assert page != null;
+    assertEquals(List.of(listing3), page.get("listings"));
+    String cursor = (String) page.get("nextCursor");
+    assert cursor != null;
+
+    ResponseEntity<?> response2 = foodListingController.getNearbyListings(
+        client.getClientId(), 34.019f, -118.243f, 10, ListingFilter.NONE, 1, cursor);
+    assertEquals(HttpStatus.OK, response2.getStatusCode());
+    @SuppressWarnings("unchecked")
+    Map<String, Object> page2 = (Map<String, Object>) response2.getBody();
+    assert page2 != null;
+    assertEquals(List.of(listing1), page2.get("listings"));
+    assertNull(page2.get("nextCursor"));
+  }
+
+  @Test
+  public void getNearbyListingsInvalidPageTest() {
+    ResponseEntity<?> response = foodListingController.getNearbyListings(
+        client.getClientId(), 34.019f, -118.243f, 10, ListingFilter.NONE, 0, null);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+
+    ResponseEntity<?> response2 = foodListingController.getNearbyListings(
+        client.getClientId(), 34.019f, -118.243f, 10, ListingFilter.NONE, 5, "not a cursor");
+    assertEquals(HttpStatus.BAD_REQUEST, response2.getStatusCode());
+  }
+
+  @Test
+  public void getNearestListingsSortedTest() {
+    List<FoodListing> mockedReturn = List.of(listing2, listing3, listing1);
+    when(foodListingRepository.findInCellsAndBoundingBox(eq(client), anyCollection(),
+        anyFloat(), anyFloat(), anyFloat(), anyFloat(), any())).thenReturn(mockedReturn);
+
+    // Listing 3 is slightly closer to the query location than listing 1
+    ResponseEntity<?> response = foodListingController.getNearestListings(
+        client.getClientId(), 34.019f, -118.243f, 2);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of(listing3, listing1), response.getBody());
+
+    ResponseEntity<?> response2 = foodListingController.getNearestListings(
+        client.getClientId(), 34.019f, -118.243f, 1);
+    assertEquals(HttpStatus.OK, response2.getStatusCode());
+    assertEquals(List.of(listing3), response2.getBody());
+  }
+
+  @Test
+  public void getNearestListingsSkipsDepletedTest() {
+    listing3.setQuantityListed(0);
+    List<FoodListing> mockedReturn = List.of(listing1, listing3);
+    when(foodListingRepository.findInCellsAndBoundingBox(eq(client), anyCollection(),
+        anyFloat(), anyFloat(), anyFloat(), anyFloat(), any())).thenReturn(mockedReturn);
+    when(foodListingRepository.findInBoundingBox(eq(client),
+        anyFloat(), anyFloat(), anyFloat(), anyFloat(), any())).thenReturn(mockedReturn);
+
+    ResponseEntity<?> response = foodListingController.getNearestListings(
+        client.getClientId(), 34.019f, -118.243f, 2);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of(listing1), response.getBody());
+  }
+
+  @Test
+  public void getNearestListingsNoneFoundTest() {
+    ResponseEntity<?> response = foodListingController.getNearestListings(
+        client.getClientId(), 34.019f, -118.243f, 2);
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+  }
+
+  @Test
+  public void getNearestListingsInvalidCountTest() {
+    ResponseEntity<?> response = foodListingController.getNearestListings(
+        client.getClientId(), 34.019f, -118.243f, 0);
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+  }
+
+  @Test
+  public void getNearestListingsMissingClientTest() {
+    ResponseEntity<?> response = foodListingController.getNearestListings(
+        client.getClientId() + 2, 34.019f, -118.243f, 2);
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+  }
+
   @Test
   public void getFoodListingsUnderAccountMissingClientTest() {
     ResponseEntity<?> response = foodListingController.getFoodListingsUnderAccount(
-        111, 222);
+        111, 222, null, null);
 
     // Check status code
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -384,7 +706,7 @@ public class FoodListingControllerUnitTests {
   public void getFoodListingsUnderAccountMissingAccountTest() {
 
     ResponseEntity<?> response = foodListingController.getFoodListingsUnderAccount(
-        client.getClientId(), 222);
+        client.getClientId(), 222, null, null);
 
     // Check status code
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -397,15 +719,15 @@ public class FoodListingControllerUnitTests {
         "1234567890", "x");
 
     // Save listings under account 2, then should find no listings when querying account 1
-    List<FoodListing> mockedReturn = new ArrayList<>();
-    mockedReturn.add(listing1);
-    mockedReturn.add(listing2);
-    mockedReturn.add(listing3);
-    when(foodListingRepository.findByClientAndAccount(eq(client), eq(account2)))
-                              .thenReturn(mockedReturn);
+    List<ListingView> mockedReturn = new ArrayList<>();
+    mockedReturn.add(view(listing1));
+    mockedReturn.add(view(listing2));
+    mockedReturn.add(view(listing3));
+    when(foodListingRepository.findViewsByClientAndAccount(eq(client), eq(account2), anyInt(),
+        any())).thenReturn(new SliceImpl<>(mockedReturn));
     // Check status code
     ResponseEntity<?> response = foodListingController.getFoodListingsUnderAccount(
-        client.getClientId(), providerId);
+        client.getClientId(), providerId, null, null);
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
   }
 
@@ -413,36 +735,36 @@ public class FoodListingControllerUnitTests {
   public void getFoodListingsUnderAccountSomeFoundTest() {
 
     // Save listings under account 2, then should find no listings when querying account 1
-    List<FoodListing> mockedReturn = new ArrayList<>();
-    mockedReturn.add(listing1);
-    mockedReturn.add(listing2);
-    mockedReturn.add(listing3);
+    List<ListingView> mockedReturn = new ArrayList<>();
+    mockedReturn.add(view(listing1));
+    mockedReturn.add(view(listing2));
+    mockedReturn.add(view(listing3));
     int accountId = providerId;
-    when(foodListingRepository.findByClientAndAccount(eq(client), eq(providerAccount)))
-        .thenReturn(mockedReturn);
+    when(foodListingRepository.findViewsByClientAndAccount(eq(client), eq(providerAccount),
+        anyInt(), any())).thenReturn(new SliceImpl<>(mockedReturn));
 
     // Check status code
     ResponseEntity<?> response = foodListingController.getFoodListingsUnderAccount(
-        client.getClientId(), accountId);
+        client.getClientId(), accountId, null, null);
     assertEquals(HttpStatus.OK, response.getStatusCode());
     // Check body
     @SuppressWarnings("unchecked") // suppress warning for unchecked cast...
-    List<FoodListing> foodListings = (List<FoodListing>) response.getBody();
+    List<ListingView> foodListings = (List<ListingView>) response.getBody();
     assert (Objects.requireNonNull(foodListings).size() == 3);
 
-    FoodListing expected1 = listing1;
-    FoodListing expected2 = listing2;
-    FoodListing expected3 = listing3;
-    Set<FoodListing> expectedSet = Set.of(expected1, expected2, expected3);
+    ListingView expected1 = view(listing1);
+    ListingView expected2 = view(listing2);
+    ListingView expected3 = view(listing3);
+    Set<ListingView> expectedSet = Set.of(expected1, expected2, expected3);
 
-    for (FoodListing listing : foodListings) {
+    for (ListingView listing : foodListings) {
       assert (expectedSet.contains(listing));
     }
   }
 
   @Test
   public void fulfillRequestMissingClientTest() {
-    ResponseEntity<?> response = foodListingController.fulfillRequest(111, 1, 1);
+    ResponseEntity<?> response = foodListingController.fulfillRequest(111, 1, 1, null);
 
     // Check status code
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -451,7 +773,8 @@ public class FoodListingControllerUnitTests {
   @Test
   public void fulfillRequestMissingAccountTest() {
 
-    ResponseEntity<?> response = foodListingController.fulfillRequest(client.getClientId(), 1, 1);
+    ResponseEntity<?> response =
+        foodListingController.fulfillRequest(client.getClientId(), 1, 1, null);
 
     // Check status code
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -463,7 +786,7 @@ public class FoodListingControllerUnitTests {
     int badListingId = listing1Id + 2; // No listing has this ID
 
     ResponseEntity<?> response = foodListingController.fulfillRequest(
-        client.getClientId(), badListingId, 1);
+        client.getClientId(), badListingId, 1, null);
 
     // Check status code
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -475,7 +798,7 @@ public class FoodListingControllerUnitTests {
         eq(client), eq(listing2Id)
     )).thenReturn(Optional.of(listing2));
     ResponseEntity<?> response = foodListingController
-        .fulfillRequest(client.getClientId(), listing2Id, -30);
+        .fulfillRequest(client.getClientId(), listing2Id, -30, null);
 
     // Check status code
     assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
@@ -483,11 +806,14 @@ public class FoodListingControllerUnitTests {
 
   @Test
   public void fulfillRequestOkTest() {
+    when(foodListingRepository.decrementQuantityListed(
+        eq(client), eq(listing2Id), eq(30)
+    )).thenReturn(1);
     when(foodListingRepository.findByClientAndListingId(
         eq(client), eq(listing2Id)
     )).thenReturn(Optional.of(listing2));
     ResponseEntity<?> response = foodListingController
-        .fulfillRequest(client.getClientId(), listing2Id, 30);
+        .fulfillRequest(client.getClientId(), listing2Id, 30, null);
 
     // Check status code
     assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -499,12 +825,134 @@ public class FoodListingControllerUnitTests {
         eq(client), eq(listing1Id)
     )).thenReturn(Optional.of(listing1));
     ResponseEntity<?> response = foodListingController.fulfillRequest(
-        client.getClientId(), listing1Id, 31);
+        client.getClientId(), listing1Id, 31, null);
 
     // Check status code
     assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
   }
 
+  @Test
+  public void fulfillRequestDoesNotSaveListingTest() {
+    when(foodListingRepository.decrementQuantityListed(
+        eq(client), eq(listing2Id), eq(30)
+    )).thenReturn(1);
+    when(foodListingRepository.findByClientAndListingId(
+        eq(client), eq(listing2Id)
+    )).thenReturn(Optional.of(listing2));
+    foodListingController.fulfillRequest(client.getClientId(), listing2Id, 30, null);
+
+    // The quantity is only ever updated by the conditional decrement
+    verify(foodListingRepository, never()).save(any());
+  }
+
+  @Test
+  public void fulfillRequestRecordsDonationTest() {
+    when(foodRequestRepository.findById(7)).thenReturn(
+        Optional.of(new FoodRequest(client, recipientAccount, listing1, 5)));
+    when(foodListingRepository.decrementQuantityListed(
+        eq(client), eq(listing1Id), eq(5)
+    )).thenReturn(1);
+    when(foodListingRepository.findByClientAndListingId(
+        eq(client), eq(listing1Id)
+    )).thenReturn(Optional.of(listing1));
+    ResponseEntity<?> response = foodListingController
+        .fulfillRequest(client.getClientId(), listing1Id, 5, 7);
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    verify(donationWriter).record(client.getClientId(), listing1Id, 7, 5);
+  }
+
+  @Test
+  public void fulfillRequestUnknownRequestTest() {
+    ResponseEntity<?> response = foodListingController
+        .fulfillRequest(client.getClientId(), listing1Id, 5, 7);
+
+    // Nothing is fulfilled for a request that does not exist
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    verify(foodListingRepository, never()).decrementQuantityListed(any(), anyInt(), anyInt());
+    verify(donationWriter, never()).record(anyInt(), anyInt(), anyInt(), anyInt());
+  }
+
+  @Test
+  public void fulfillRequestWithoutRequestIdRecordsNoDonationTest() {
+    when(foodListingRepository.decrementQuantityListed(
+        eq(client), eq(listing1Id), eq(5)
+    )).thenReturn(1);
+    when(foodListingRepository.findByClientAndListingId(
+        eq(client), eq(listing1Id)
+    )).thenReturn(Optional.of(listing1));
+    foodListingController.fulfillRequest(client.getClientId(), listing1Id, 5, null);
+
+    verify(donationWriter, never()).record(anyInt(), anyInt(), anyInt(), anyInt());
+  }
+
+  @Test
+  public void fulfillRequestsNoItemsTest() {
+    ResponseEntity<?> response = foodListingController.fulfillRequests(
+        client.getClientId(), true, List.of());
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+  }
+
+  @Test
+  public void fulfillRequestsMissingClientTest() {
+    ResponseEntity<?> response = foodListingController.fulfillRequests(
+        111, true, List.of(new FulfillItem(listing1Id, 1)));
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+  }
+
+  @Test
+  public void fulfillRequestsAtomicRollbackTest() {
+    int missingListingId = 5;
+    List<FulfillItem> items =
+        List.of(new FulfillItem(listing1Id, 5), new FulfillItem(missingListingId, 1));
+    when(foodListingRepository.decrementQuantitiesListed(eq(client), eq(items)))
+        .thenReturn(new int[] {1, 0});
+    when(foodListingRepository.findByClientAndListingIdIn(eq(client), anyCollection()))
+        .thenReturn(List.of(listing1));
+
+    ResponseEntity<?> response = foodListingController.fulfillRequests(
+        client.getClientId(), true, items);
+    // The second item cannot be fulfilled, so the first is rolled back with it
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    assertEquals(List.of(
+        new FulfillResult(listing1Id, 5, FulfillResult.Status.ROLLED_BACK, 25),
+        new FulfillResult(missingListingId, 1, FulfillResult.Status.NOT_FOUND, null)),
+        response.getBody());
+  }
+
+  @Test
+  public void fulfillRequestsForgetsLaneQuantitiesTest() {
+    List<FulfillItem> items =
+        List.of(new FulfillItem(listing1Id, 5), new FulfillItem(listing2Id, 100));
+    when(foodListingRepository.decrementQuantitiesListed(eq(client), eq(items)))
+        .thenReturn(new int[] {1, 0});
+    when(foodListingRepository.findByClientAndListingIdIn(eq(client), anyCollection()))
+        .thenReturn(List.of(listing1, listing2));
+
+    ResponseEntity<?> response = foodListingController.fulfillRequests(
+        client.getClientId(), false, items);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    // A lane holding listing 1 must read its quantity again; listing 2 did not change
+    verify(inventoryLanes).forget(listing1Id);
+    verify(inventoryLanes, never()).forget(listing2Id);
+  }
+
+  @Test
+  public void fulfillRequestsInvalidQuantityTest() {
+    when(foodListingRepository.findByClientAndListingIdIn(eq(client), anyCollection()))
+        .thenReturn(List.of(listing1));
+
+    ResponseEntity<?> response = foodListingController.fulfillRequests(client.getClientId(),
+        true, List.of(new FulfillItem(listing1Id, 5), new FulfillItem(listing1Id, 0)));
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    assertEquals(List.of(
+        new FulfillResult(listing1Id, 5, FulfillResult.Status.ROLLED_BACK, 25),
+        new FulfillResult(listing1Id, 0, FulfillResult.Status.INVALID_QUANTITY, 25)),
+        response.getBody());
+    // Nothing is sent to the database when an item is invalid
+    verify(foodListingRepository, never()).decrementQuantitiesListed(any(), any());
+  }
+
   @Test
   public void updateFoodListingMissingClientTest() {
     ResponseEntity<?> response = foodListingController.updateFoodListing(
@@ -573,6 +1021,37 @@ public class FoodListingControllerUnitTests {
     }
   }
 
+  @Test
+  public void updateFoodListingRetriesConflictTest() {
+    when(foodListingRepository.findByClientAndAccountAndListingId(
+        eq(client), eq(providerAccount), eq(listing2Id)
+    )).thenReturn(Optional.of(listing2));
+    doThrow(new ObjectOptimisticLockingFailureException(FoodListing.class, listing2Id))
+        .doReturn(listing2)
+        .when(foodListingRepository).save(any());
+
+    ResponseEntity<?> response = foodListingController.updateFoodListing(
+        client.getClientId(), providerId, listing2Id,
+        "hot cocoa", null, null, null);
+    // The listing is read and saved again after the first save conflicts
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    verify(foodListingRepository, times(2)).save(any());
+  }
+
+  @Test
+  public void updateFoodListingConflictTest() {
+    when(foodListingRepository.findByClientAndAccountAndListingId(
+        eq(client), eq(providerAccount), eq(listing2Id)
+    )).thenReturn(Optional.of(listing2));
+    doThrow(new ObjectOptimisticLockingFailureException(FoodListing.class, listing2Id))
+        .when(foodListingRepository).save(any());
+
+    ResponseEntity<?> response = foodListingController.updateFoodListing(
+        client.getClientId(), providerId, listing2Id,
+        "hot cocoa", null, null, null);
+    assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+  }
+
   @Test
   public void updateFoodListingNewLatitudeTest() {
     when(foodListingRepository.findByClientAndAccountAndListingId(
@@ -3,28 +3,40 @@ package dev.coms4156.project.teamproject;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import dev.coms4156.project.teamproject.cache.ProfileCache;
 import dev.coms4156.project.teamproject.controller.FoodRequestController;
 import dev.coms4156.project.teamproject.model.AccountProfile;
 import dev.coms4156.project.teamproject.model.ClientProfile;
 import dev.coms4156.project.teamproject.model.FoodListing;
 import dev.coms4156.project.teamproject.model.FoodRequest;
+import dev.coms4156.project.teamproject.model.RequestItem;
+import dev.coms4156.project.teamproject.model.RequestView;
 import dev.coms4156.project.teamproject.repository.AccountProfileRepository;
-import dev.coms4156.project.teamproject.repository.ClientProfileRepository;
 import dev.coms4156.project.teamproject.repository.FoodListingRepository;
 import dev.coms4156.project.teamproject.repository.FoodRequestRepository;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 
 /**
  * Unit tests for FoodListingController.
@@ -37,15 +49,15 @@ public class FoodRequestControllerUnitTests {
   @Autowired
   private FoodRequestController foodRequestController;
 
+  @Autowired
+  private ProfileCache profileCache;
+
   @MockBean
   private FoodRequestRepository foodRequestRepository;
 
   @MockBean
   private FoodListingRepository foodListingRepository;
 
-  @MockBean
-  private ClientProfileRepository clientProfileRepository;
-
   @MockBean
   private AccountProfileRepository accountProfileRepository;
 
@@ -64,6 +76,8 @@ public class FoodRequestControllerUnitTests {
    */
   @BeforeEach
   public void setUp() {
+    profileCache.clear();
+
     // Create and store a client
     client = new ClientProfile();
 
@@ -88,19 +102,21 @@ public class FoodRequestControllerUnitTests {
         78.122f, 120.281f);
 
     // Mock the behavior of JPA repositories
-    when(clientProfileRepository.findById(any())).thenReturn(Optional.of(client));
-    when(accountProfileRepository.findById(0)).thenReturn(Optional.of(providerAccount));
-    when(accountProfileRepository.findById(1)).thenReturn(Optional.of(recipientAccount));
-    when(foodListingRepository.findById(any())).thenAnswer(invocation -> {
-      int id = invocation.getArgument(0); // Retrieve the argument (ID) passed to findById
-      if (id == 0) {
-        return Optional.of(listing1);
-      } else if (id == 1) {
-        return Optional.of(listing2);
-      } else {
-        return Optional.empty();
-      }
-    });
+    when(accountProfileRepository.findByClientIdAndAccountId(clientId, providerId))
+        .thenReturn(Optional.of(providerAccount));
+    when(accountProfileRepository.findByClientIdAndAccountId(clientId, recipientId))
+        .thenReturn(Optional.of(recipientAccount));
+    when(foodListingRepository.findByClientAndListingId(eq(client), anyInt()))
+        .thenAnswer(invocation -> {
+          int id = invocation.getArgument(1); // Retrieve the listing ID passed to the finder
+          if (id == 0) {
+            return Optional.of(listing1);
+          } else if (id == 1) {
+            return Optional.of(listing2);
+          } else {
+            return Optional.empty();
+          }
+        });
   }
 
   @Test
@@ -125,6 +141,70 @@ public class FoodRequestControllerUnitTests {
     assertEquals(2, foodRequest.getQuantityRequested());
   }
 
+  @Test
+  public void createRequestOtherClientTest() {
+    // The account and listing are not in the client with ID 3
+    ResponseEntity<?> response = foodRequestController.createFoodRequest(
+        3, recipientId, listing1Id, 2);
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+
+    response = foodRequestController.createFoodRequest(clientId, recipientId, 7, 2);
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    verify(foodRequestRepository, never()).save(any());
+  }
+
+  @Test
+  public void createRequestsOkTest() {
+    ReflectionTestUtils.setField(listing2, "listingId", 1);
+    when(foodListingRepository.findByClientAndListingIdIn(any(), any()))
+        .thenReturn(List.of(listing1, listing2));
+    ResponseEntity<?> response = foodRequestController.createFoodRequests(clientId, recipientId,
+        List.of(new RequestItem(1, 3), new RequestItem(listing1Id, 2)));
+
+    assertEquals(HttpStatus.CREATED, response.getStatusCode());
+    List<?> foodRequests = (List<?>) Objects.requireNonNull(response.getBody());
+    assertEquals(2, foodRequests.size());
+    FoodRequest first = (FoodRequest) foodRequests.get(0);
+    assertEquals("beverage", first.getListing().getFoodType());
+    assertEquals(3, first.getQuantityRequested());
+    assertEquals(recipientAccount, first.getAccountId());
+    assertEquals("snack", ((FoodRequest) foodRequests.get(1)).getListing().getFoodType());
+    // The listings are looked up together and the requests saved together
+    verify(foodListingRepository).findByClientAndListingIdIn(client, Set.of(0, 1));
+    verify(foodListingRepository, never()).findById(any());
+    verify(foodRequestRepository).saveAll(any());
+  }
+
+  @Test
+  public void createRequestsMissingListingTest() {
+    when(foodListingRepository.findByClientAndListingIdIn(any(), any()))
+        .thenReturn(List.of(listing1));
+    ResponseEntity<?> response = foodRequestController.createFoodRequests(clientId, recipientId,
+        List.of(new RequestItem(listing1Id, 2), new RequestItem(7, 1)));
+
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    assertEquals("Listing with ID 7 not found.",
+        ((Map<?, ?>) Objects.requireNonNull(response.getBody())).get("error"));
+    verify(foodRequestRepository, never()).saveAll(any());
+  }
+
+  @Test
+  public void createRequestsMissingAccountTest() {
+    ResponseEntity<?> response = foodRequestController.createFoodRequests(clientId, 5,
+        List.of(new RequestItem(listing1Id, 2)));
+
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+  }
+
+  @Test
+  public void createRequestsInvalidItemsTest() {
+    assertEquals(HttpStatus.BAD_REQUEST, foodRequestController.createFoodRequests(clientId,
+        recipientId, List.of()).getStatusCode());
+    assertEquals(HttpStatus.BAD_REQUEST, foodRequestController.createFoodRequests(clientId,
+        recipientId, List.of(new RequestItem(listing1Id, 0))).getStatusCode());
+    verify(foodRequestRepository, never()).saveAll(any());
+  }
+
   @Test
   public void getRequestOkTest() {
     // Save a request to repository
@@ -162,6 +242,25 @@ public class FoodRequestControllerUnitTests {
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
   }
 
+  @Test
+  public void getRequestsUnderAccountTest() {
+    RequestView view = new RequestView(4, clientId, recipientId, listing1Id, 2,
+        LocalDateTime.of(2024, 10, 6, 9, 0));
+    when(foodRequestRepository.findViewsByClientAndAccount(any(), any(), anyInt(), any()))
+        .thenReturn(new SliceImpl<>(List.of()));
+    when(foodRequestRepository.findViewsByClientAndAccount(eq(client), eq(recipientAccount),
+        anyInt(), any())).thenReturn(new SliceImpl<>(List.of(view)));
+
+    ResponseEntity<?> response = foodRequestController.getFoodRequestsUnderAccount(clientId,
+        recipientId, null, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of(view), response.getBody());
+
+    // The provider has made no requests
+    assertEquals(HttpStatus.NOT_FOUND, foodRequestController.getFoodRequestsUnderAccount(
+        clientId, providerId, null, null).getStatusCode());
+  }
+
   @Test
   public void updateRequestOkTest() {
     FoodRequest request = new FoodRequest(client, recipientAccount, listing2, 2);
@@ -179,6 +278,17 @@ public class FoodRequestControllerUnitTests {
     }
   }
 
+  @Test
+  public void updateRequestConflictTest() {
+    FoodRequest request = new FoodRequest(client, recipientAccount, listing2, 2);
+    when(foodRequestRepository.findById(request.getRequestId())).thenReturn(Optional.of(request));
+    when(foodRequestRepository.save(any())).thenThrow(
+        new ObjectOptimisticLockingFailureException(FoodRequest.class, request.getRequestId()));
+    ResponseEntity<?> response = foodRequestController.updateFoodRequest(request.getRequestId(), 5);
+
+    assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+  }
+
   @Test
   public void updateRequestNotFoundTest() {
     ResponseEntity<?> response = foodRequestController.updateFoodRequest(1, 5);
@@ -0,0 +1,72 @@
+package dev.coms4156.project.teamproject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dev.coms4156.project.teamproject.model.GeoGrid;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the GeoGrid class.
+ */
+public class GeoGridUnitTests {
+
+  @Test
+  public void cellOfSameCellTest() {
+    assertEquals(GeoGrid.cellOf(34.0521, -118.2431), GeoGrid.cellOf(34.0522, -118.2432));
+    assertNotEquals(GeoGrid.cellOf(34.052, -118.243), GeoGrid.cellOf(40.714, -74.006));
+  }
+
+  @Test
+  public void cellOfWrapsLongitudeTest() {
+    assertEquals(GeoGrid.cellOf(10, -170), GeoGrid.cellOf(10, 190));
+  }
+
+  @Test
+  public void cellsCoveringContainsCenterTest() {
+    Optional<List<Long>> cells = GeoGrid.cellsCovering(34.052, -118.243, 5);
+    assertTrue(cells.isPresent());
+    assertTrue(cells.get().contains(GeoGrid.cellOf(34.052, -118.243)));
+    assertTrue(cells.get().size() <= GeoGrid.MAX_CELLS);
+  }
+
+  @Test
+  public void cellsCoveringContainsNearbyPointTest() {
+    // About 9 km north-east of the center, in a different cell
+    Optional<List<Long>> cells = GeoGrid.cellsCovering(34.052, -118.243, 10);
+    assertTrue(cells.isPresent());
+    assertTrue(cells.get().contains(GeoGrid.cellOf(34.110, -118.180)));
+  }
+
+  @Test
+  public void cellsCoveringAcrossAntimeridianTest() {
+    Optional<List<Long>> cells = GeoGrid.cellsCovering(0, 179.99, 5);
+    assertTrue(cells.isPresent());
+    assertTrue(cells.get().contains(GeoGrid.cellOf(0, -179.99)));
+  }
+
+  @Test
+  public void cellsCoveringTooLargeTest() {
+    assertTrue(GeoGrid.cellsCovering(34.052, -118.243, 1000).isEmpty());
+    assertTrue(GeoGrid.cellsCovering(89.99, 0, 5).isEmpty());
+  }
+
+  @Test
+  public void boundingBoxContainsCircleTest() {
+    GeoGrid.BoundingBox box = GeoGrid.boundingBox(34.052, -118.243, 10);
+    // 10 km is roughly 0.09 degrees of latitude and 0.108 degrees of longitude here
+    assertTrue(box.minLatitude() < 34.052 - 0.089 && box.maxLatitude() > 34.052 + 0.089);
+    assertTrue(box.minLongitude() < -118.243 - 0.107 && box.maxLongitude() > -118.243 + 0.107);
+    assertTrue(box.maxLatitude() - box.minLatitude() < 0.2);
+    assertTrue(box.maxLongitude() - box.minLongitude() < 0.25);
+  }
+
+  @Test
+  public void boundingBoxAcrossAntimeridianTest() {
+    GeoGrid.BoundingBox box = GeoGrid.boundingBox(0, 179.99, 5);
+    assertTrue(box.minLongitude() < -180 && box.maxLongitude() > 180);
+  }
+}
@@ -0,0 +1,220 @@
+package dev.coms4156.project.teamproject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import dev.coms4156.project.teamproject.idempotency.IdempotencyFilter;
+import dev.coms4156.project.teamproject.idempotency.IdempotencyStore;
+import dev.coms4156.project.teamproject.idempotency.InMemoryIdempotencyStore;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * This class contains unit tests for the IdempotencyFilter class, backed by an
+ * InMemoryIdempotencyStore.
+ */
+public class IdempotencyFilterUnitTests {
+
+  private IdempotencyStore store;
+  private IdempotencyFilter filter;
+  private int processed;
+  private int responseStatus;
+
+  /**
+   * Creates an empty store and a filter using it before each test.
+   */
+  @BeforeEach
+  public void setUp() {
+    store = new InMemoryIdempotencyStore(1000, 60, 60);
+    filter = new IdempotencyFilter(store, 60);
+    processed = 0;
+    responseStatus = 201;
+  }
+
+  @AfterEach
+  public void tearDown() {
+    filter.close();
+  }
+
+  private MockHttpServletResponse send(MockHttpServletRequest request) throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    HttpServlet servlet = new HttpServlet() {
+      @Override
+      protected void service(HttpServletRequest req, HttpServletResponse resp)
+          throws IOException {
+        processed++;
+        String body = new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        resp.setStatus(responseStatus);
+        resp.setContentType("application/json");
+        resp.getWriter().write("{\"processed\":" + processed + ",\"body\":\"" + body + "\"}");
+      }
+    };
+    filter.doFilter(request, response, new MockFilterChain(servlet));
+    return response;
+  }
+
+  private MockHttpServletRequest createListing(String key, String quantity) {
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/createFoodListing");
+    if (key != null) {
+      request.addHeader(IdempotencyFilter.HEADER, key);
+    }
+    request.setParameter("clientId", "1");
+    request.setParameter("quantityListed", quantity);
+    return request;
+  }
+
+  @Test
+  public void replayTest() throws Exception {
+    MockHttpServletResponse first = send(createListing("abc", "5"));
+    MockHttpServletResponse retry = send(createListing("abc", "5"));
+
+    // The retry gets the first response back without being processed
+    assertEquals(1, processed);
+    assertEquals(201, retry.getStatus());
+    assertEquals(first.getContentAsString(), retry.getContentAsString());
+    assertEquals("application/json", retry.getContentType());
+    assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    assertNull(first.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+  }
+
+  @Test
+  public void replayWithBodyTest() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("PATCH", "/fulfillRequests");
+    request.addHeader(IdempotencyFilter.HEADER, "abc");
+    request.setContent("[{\"listingId\":1}]".getBytes(StandardCharsets.UTF_8));
+    send(request);
+
+    MockHttpServletRequest differentBody =
+        new MockHttpServletRequest("PATCH", "/fulfillRequests");
+    differentBody.addHeader(IdempotencyFilter.HEADER, "abc");
+    differentBody.setContent("[{\"listingId\":2}]".getBytes(StandardCharsets.UTF_8));
+    assertEquals(422, send(differentBody).getStatus());
+
+    MockHttpServletRequest sameBody = new MockHttpServletRequest("PATCH", "/fulfillRequests");
+    sameBody.addHeader(IdempotencyFilter.HEADER, "abc");
+    sameBody.setContent("[{\"listingId\":1}]".getBytes(StandardCharsets.UTF_8));
+    assertEquals(201, send(sameBody).getStatus());
+    assertEquals(1, processed);
+  }
+
+  @Test
+  public void keyReusedForDifferentRequestTest() throws Exception {
+    send(createListing("abc", "5"));
+    MockHttpServletResponse response = send(createListing("abc", "6"));
+
+    assertEquals(1, processed);
+    assertEquals(422, response.getStatus());
+  }
+
+  @Test
+  public void keysAreScopedToEndpointTest() throws Exception {
+    send(createListing("abc", "5"));
+    MockHttpServletRequest fulfill = new MockHttpServletRequest("PATCH", "/fulfillRequest");
+    fulfill.addHeader(IdempotencyFilter.HEADER, "abc");
+    send(fulfill);
+
+    assertEquals(2, processed);
+  }
+
+  @Test
+  public void requestInProgressTest() throws Exception {
+    store.reserve("POST /createFoodListing abc");
+    MockHttpServletResponse response = send(createListing("abc", "5"));
+
+    assertEquals(0, processed);
+    assertEquals(409, response.getStatus());
+  }
+
+  @Test
+  public void expiredReservationTest() throws Exception {
+    // Every reservation has expired as soon as it is made
+    store = new InMemoryIdempotencyStore(1000, 60, 0);
+    filter.close();
+    filter = new IdempotencyFilter(store, 60);
+    store.reserve("POST /createFoodListing abc");
+    MockHttpServletResponse response = send(createListing("abc", "5"));
+
+    // The first request never completed, so the retry is processed
+    assertEquals(1, processed);
+    assertEquals(201, response.getStatus());
+    // Unlike a completed one
+    assertEquals(201, send(createListing("abc", "5")).getStatus());
+    assertEquals(1, processed);
+  }
+
+  @Test
+  public void slowRequestKeepsKeyTest() throws Exception {
+    store = new InMemoryIdempotencyStore(1000, 60, 1);
+    filter.close();
+    filter = new IdempotencyFilter(store, 1);
+    IdempotencyStore.Reservation[] retried = new IdempotencyStore.Reservation[1];
+    HttpServlet slowServlet = new HttpServlet() {
+      @Override
+      protected void service(HttpServletRequest req, HttpServletResponse resp) {
+        try {
+          Thread.sleep(1500);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        // A retry arriving after the lease would have run out
+        retried[0] = store.reserve("POST /createFoodListings abc");
+        resp.setStatus(201);
+      }
+    };
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/createFoodListings");
+    request.addHeader(IdempotencyFilter.HEADER, "abc");
+    request.setParameter("clientId", "1");
+    filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(slowServlet));
+
+    // The lease was renewed while the request ran, so the retry was not processed
+    assertEquals(IdempotencyStore.Reservation.IN_PROGRESS, retried[0]);
+    assertEquals(IdempotencyStore.Reservation.State.COMPLETED,
+        store.reserve("POST /createFoodListings abc").state());
+  }
+
+  @Test
+  public void serverErrorsAreNotRecordedTest() throws Exception {
+    responseStatus = 500;
+    send(createListing("abc", "5"));
+    responseStatus = 201;
+    MockHttpServletResponse retry = send(createListing("abc", "5"));
+
+    assertEquals(2, processed);
+    assertEquals(201, retry.getStatus());
+  }
+
+  @Test
+  public void requestsWithoutKeyAreNotRecordedTest() throws Exception {
+    send(createListing(null, "5"));
+    send(createListing(null, "5"));
+
+    assertEquals(2, processed);
+  }
+
+  @Test
+  public void otherEndpointsAreNotRecordedTest() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/getFoodListings");
+    request.addHeader(IdempotencyFilter.HEADER, "abc");
+    send(request);
+    send(request);
+
+    assertEquals(2, processed);
+  }
+
+  @Test
+  public void invalidKeyTest() throws Exception {
+    MockHttpServletResponse response = send(createListing(" ", "5"));
+
+    assertEquals(0, processed);
+    assertEquals(400, response.getStatus());
+  }
+}
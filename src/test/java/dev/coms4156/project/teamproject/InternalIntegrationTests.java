@@ -1,27 +1,64 @@
 package dev.coms4156.project.teamproject;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import dev.coms4156.project.teamproject.cache.NearbySearchCache;
+import dev.coms4156.project.teamproject.cache.ProfileCache;
+import dev.coms4156.project.teamproject.concurrency.InventoryLanes;
+import dev.coms4156.project.teamproject.concurrency.OptimisticRetry;
 import dev.coms4156.project.teamproject.controller.AccountProfileController;
+import dev.coms4156.project.teamproject.controller.AdminController;
 import dev.coms4156.project.teamproject.controller.ClientProfileController;
+import dev.coms4156.project.teamproject.controller.DonationController;
 import dev.coms4156.project.teamproject.controller.FoodListingController;
+import dev.coms4156.project.teamproject.controller.FoodRequestController;
+import dev.coms4156.project.teamproject.idempotency.IdempotencyStore;
+import dev.coms4156.project.teamproject.idempotency.JpaIdempotencyStore;
+import dev.coms4156.project.teamproject.index.KdTree;
+import dev.coms4156.project.teamproject.index.ListingSpatialIndex;
 import dev.coms4156.project.teamproject.model.AccountProfile;
 import dev.coms4156.project.teamproject.model.ClientProfile;
 import dev.coms4156.project.teamproject.model.FoodListing;
 import dev.coms4156.project.teamproject.model.FoodRequest;
+import dev.coms4156.project.teamproject.model.FulfillItem;
+import dev.coms4156.project.teamproject.model.FulfillResult;
+import dev.coms4156.project.teamproject.model.ListingFilter;
+import dev.coms4156.project.teamproject.model.ListingView;
+import dev.coms4156.project.teamproject.model.NearbyCursor;
+import dev.coms4156.project.teamproject.model.RequestItem;
+import dev.coms4156.project.teamproject.model.RequestView;
+import dev.coms4156.project.teamproject.persistence.DonationWriter;
+import dev.coms4156.project.teamproject.repository.AccountProfileRepository;
 import dev.coms4156.project.teamproject.repository.FoodListingRepository;
 import dev.coms4156.project.teamproject.repository.FoodRequestRepository;
+import dev.coms4156.project.teamproject.repository.IdempotencyRecordRepository;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Integration tests for the ClientProfileController, AccountProfileController,
@@ -41,11 +78,21 @@ import org.springframework.test.context.TestPropertySource;
     "spring.datasource.driver-class-name=org.h2.Driver",
     "spring.datasource.username=sa",
     "spring.datasource.password=",
-    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect"
+    "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+    "mealmatch.donations.flush-millis=3600000"
   })
 @Import({FoodListingController.class,
     ClientProfileController.class,
-    AccountProfileController.class})
+    AccountProfileController.class,
+    ListingSpatialIndex.class,
+    NearbySearchCache.class,
+    ProfileCache.class,
+    OptimisticRetry.class,
+    InventoryLanes.class,
+    DonationController.class,
+    DonationWriter.class,
+    FoodRequestController.class,
+    AdminController.class})
 public class InternalIntegrationTests {
 
   @Autowired
@@ -55,9 +102,23 @@ public class InternalIntegrationTests {
   @Autowired
   private FoodRequestRepository foodRequestRepository;
   @Autowired
+  private IdempotencyRecordRepository idempotencyRecordRepository;
+  @Autowired
+  private DonationController donationController;
+  @Autowired
+  private DonationWriter donationWriter;
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+  @Autowired
   private ClientProfileController clientProfileController;
   @Autowired
   private AccountProfileController accountProfileController;
+  @Autowired
+  private FoodRequestController foodRequestController;
+  @Autowired
+  private AdminController adminController;
+  @Autowired
+  private AccountProfileRepository accountProfileRepository;
 
   private FoodListing saveListing1(ClientProfile client, AccountProfile account) {
     FoodListing listing1 = new FoodListing(client, account, "snack",
@@ -79,6 +140,20 @@ public class InternalIntegrationTests {
     return foodRequestRepository.save(foodRequest);
   }
 
+  private static ListingView view(FoodListing listing) {
+    return new ListingView(listing.getListingId(), listing.getFoodType(),
+        listing.getQuantityListed(), listing.getEarliestPickUpTime(), listing.getLatitude(),
+        listing.getLongitude());
+  }
+
+  private static RequestView view(FoodRequest request) {
+    // The database stores request times rounded to the microsecond
+    return new RequestView(request.getRequestId(), request.getClient().getClientId(),
+        request.getAccountId().getAccountId(), request.getListing().getListingId(),
+        request.getQuantityRequested(),
+        request.getRequestTime().plusNanos(500).truncatedTo(ChronoUnit.MICROS));
+  }
+
   @Test
   public void getRequestsForListingMissingClientTest() {
     // Create client
@@ -109,7 +184,7 @@ public class InternalIntegrationTests {
     int badClientId = client.getClientId() + 2;
 
     ResponseEntity<?> response = foodListingController.getRequestsForListing(
-        badClientId, providerId, listingId);
+        badClientId, providerId, listingId, null, null);
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
   }
 
@@ -143,7 +218,7 @@ public class InternalIntegrationTests {
     int badProviderId = providerId + 2;
 
     ResponseEntity<?> response = foodListingController.getRequestsForListing(
-        clientId, badProviderId, listingId);
+        clientId, badProviderId, listingId, null, null);
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
   }
 
@@ -174,10 +249,31 @@ public class InternalIntegrationTests {
 
     // Try to call this endpoint as a recipient type account
     ResponseEntity<?> response = foodListingController.getRequestsForListing(
-        clientId, recipientAccountId, listingId);
+        clientId, recipientAccountId, listingId, null, null);
     assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
   }
 
+  @Test
+  public void accountOfOtherClientNotFoundTest() {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    ClientProfile otherClient = clientProfileController.createClientProfile().getBody();
+    assert client != null && otherClient != null;
+    AccountProfile providerAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.PROVIDER, "1234567890", "p").getBody();
+    assert providerAccount != null;
+    FoodListing listing1 = saveListing1(client, providerAccount);
+
+    // The account exists, but under another client
+    assertEquals(HttpStatus.NOT_FOUND, foodListingController.getRequestsForListing(
+        otherClient.getClientId(), providerAccount.getAccountId(), listing1.getListingId(), null,
+        null).getStatusCode());
+    assertEquals(HttpStatus.NOT_FOUND, foodListingController.createFoodListing(
+        otherClient.getClientId(), providerAccount.getAccountId(), "snack", 1, 0f, 0f)
+        .getStatusCode());
+    assertEquals(HttpStatus.OK, foodListingController.getFoodListingsUnderAccount(
+        client.getClientId(), providerAccount.getAccountId(), null, null).getStatusCode());
+  }
+
   @Test
   public void getRequestsForListingMissingListingTest() {
     // Create client
@@ -208,7 +304,7 @@ public class InternalIntegrationTests {
     int badListingId = listingId + 2;
 
     ResponseEntity<?> response = foodListingController.getRequestsForListing(
-        clientId, providerId, badListingId);
+        clientId, providerId, badListingId, null, null);
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
   }
 
@@ -241,7 +337,7 @@ public class InternalIntegrationTests {
     int queryListingId = listing2.getListingId();
 
     ResponseEntity<?> response = foodListingController.getRequestsForListing(
-        clientId, providerId, queryListingId);
+        clientId, providerId, queryListingId, null, null);
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
   }
 
@@ -280,17 +376,570 @@ public class InternalIntegrationTests {
     FoodRequest request3 = requestListing(client, recipientAccount2, listing1, 3);
 
     ResponseEntity<?> response = foodListingController.getRequestsForListing(
-        clientId, providerId, queryListingId);
+        clientId, providerId, queryListingId, null, null);
     // Check status code
     assertEquals(HttpStatus.OK, response.getStatusCode());
     // Check body
     @SuppressWarnings("unchecked") // suppress warning for unchecked cast...
-    List<FoodRequest> requests = (List<FoodRequest>) response.getBody();
+    List<RequestView> requests = (List<RequestView>) response.getBody();
     assert (Objects.requireNonNull(requests).size() == 3);
-    Set<FoodRequest> expectedRequests = Set.of(request1, request2, request3);
+    Set<RequestView> expectedRequests = Set.of(view(request1), view(request2), view(request3));
 
-    for (FoodRequest request : requests) {
+    for (RequestView request : requests) {
       assert (expectedRequests.contains(request));
     }
   }
+
+  @Test
+  public void getNearbyListingsUsesGridCellsTest() {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    assert client != null;
+    AccountProfile providerAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.PROVIDER, "1234567890", "p").getBody();
+
+    // Listing 1 is in Los Angeles, listing 2 is far away
+    FoodListing listing1 = saveListing1(client, providerAccount);
+    saveListing2(client, providerAccount);
+
+    ResponseEntity<?> response = foodListingController.getNearbyListings(
+        client.getClientId(), 34.060f, -118.250f, 10, ListingFilter.NONE, null, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    @SuppressWarnings("unchecked") // suppress warning for unchecked cast...
+    List<FoodListing> listings = (List<FoodListing>) response.getBody();
+    assertEquals(List.of(listing1), listings);
+  }
+
+  @Test
+  public void getNearbyListingsLargeRadiusTest() {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    assert client != null;
+    AccountProfile providerAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.PROVIDER, "1234567890", "p").getBody();
+    FoodListing listing1 = saveListing1(client, providerAccount);
+    saveListing2(client, providerAccount);
+
+    // Too many grid cells for this radius, so only the bounding box is used
+    ResponseEntity<?> response = foodListingController.getNearbyListings(
+        client.getClientId(), 36.000f, -118.000f, 500, ListingFilter.NONE, null, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    @SuppressWarnings("unchecked") // suppress warning for unchecked cast...
+    List<FoodListing> listings = (List<FoodListing>) response.getBody();
+    assertEquals(List.of(listing1), listings);
+  }
+
+  @Test
+  public void getNearestListingsWidensSearchTest() {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    assert client != null;
+    AccountProfile providerAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.PROVIDER, "1234567890", "p").getBody();
+    FoodListing listing1 = saveListing1(client, providerAccount);
+    FoodListing listing2 = saveListing2(client, providerAccount);
+
+    // Listing 2 is thousands of kilometers away, so the search has to widen to reach it
+    ResponseEntity<?> response = foodListingController.getNearestListings(
+        client.getClientId(), 34.060f, -118.250f, 5);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of(listing1, listing2), response.getBody());
+  }
+
+  @Test
+  public void listingSpatialIndexTracksListingsTest() {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    assert client != null;
+    AccountProfile providerAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.PROVIDER, "1234567890", "p").getBody();
+    FoodListing listing1 = saveListing1(client, providerAccount);
+    FoodListing listing2 = saveListing2(client, providerAccount);
+    ListingSpatialIndex index = new ListingSpatialIndex(foodListingRepository, true);
+
+    // The client's listings are loaded on the first search
+    assertEquals(List.of(listing1.getListingId()),
+        index.findCandidateIds(client, 34.060f, -118.250f, 10));
+
+    // Moved listings are found at their new location
+    listing2.setLatitude(34.055f);
+    listing2.setLongitude(-118.245f);
+    foodListingRepository.save(listing2);
+    index.update(client, listing2);
+    assertEquals(Set.of(listing1.getListingId(), listing2.getListingId()),
+        Set.copyOf(index.findCandidateIds(client, 34.060f, -118.250f, 10)));
+    // Listing 2 is now the closer one, and paging past it yields listing 1
+    List<KdTree.Neighbor> nearest = index.findNearest(client, 34.055f, -118.245f, 1, 10, null);
+    assertEquals(listing2.getListingId(), nearest.get(0).id());
+    nearest = index.findNearest(client, 34.055f, -118.245f, 1, 10,
+        new NearbyCursor(nearest.get(0).distance(), nearest.get(0).id()));
+    assertEquals(listing1.getListingId(), nearest.get(0).id());
+
+    // Depleted listings are kept, since searches without `availableOnly` still return them
+    listing1.setQuantityListed(0);
+    foodListingRepository.save(listing1);
+    index.update(client, listing1);
+    assertEquals(Set.of(listing1.getListingId(), listing2.getListingId()),
+        Set.copyOf(index.findCandidateIds(client, 34.060f, -118.250f, 10)));
+  }
+
+  @Test
+  public void getNearbyListingsSameWithSpatialIndexTest() {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    assert client != null;
+    AccountProfile providerAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.PROVIDER, "1234567890", "p").getBody();
+    String[] foodTypes = {"snack", "beverage", "meal"};
+    for (int i = 0; i < 9; i++) {
+      // Every third listing is depleted
+      foodListingRepository.save(new FoodListing(client, providerAccount, foodTypes[i % 3],
+          i % 3 == 0 ? 0 : 5 * i, LocalDateTime.of(2024, 10, 6, 11, 0),
+          34.05f + i * 0.002f, -118.24f));
+    }
+    List<ListingFilter> filters = List.of(ListingFilter.NONE,
+        new ListingFilter(null, null, true, null, null),
+        new ListingFilter("snack", null, null, null, null),
+        new ListingFilter(null, 20, null, null, null));
+
+    List<Object> withoutIndex = nearbyResults(client, filters);
+    ListingSpatialIndex index =
+        (ListingSpatialIndex) ReflectionTestUtils.getField(foodListingController,
+            "listingSpatialIndex");
+    ReflectionTestUtils.setField(foodListingController, "listingSpatialIndex",
+        new ListingSpatialIndex(foodListingRepository, true));
+    try {
+      assertEquals(withoutIndex, nearbyResults(client, filters));
+    } finally {
+      ReflectionTestUtils.setField(foodListingController, "listingSpatialIndex", index);
+    }
+  }
+
+  /**
+   * Runs a search and a paged search around the listings of `client` with each filter, and
+   * returns the status and listing IDs of each response.
+   */
+  private List<Object> nearbyResults(ClientProfile client, List<ListingFilter> filters) {
+    List<Object> results = new ArrayList<>();
+    for (ListingFilter filter : filters) {
+      ResponseEntity<?> response = foodListingController.getNearbyListings(client.getClientId(),
+          34.05f, -118.24f, 10, filter, null, null);
+      results.add(response.getStatusCode());
+      if (response.getBody() instanceof List<?> listings) {
+        Set<Integer> ids = new HashSet<>();
+        for (Object listing : listings) {
+          ids.add(((FoodListing) listing).getListingId());
+        }
+        results.add(ids);
+      }
+
+      String cursor = null;
+      do {
+        response = foodListingController.getNearbyListings(client.getClientId(), 34.05f,
+            -118.24f, 10, filter, 2, cursor);
+        results.add(response.getStatusCode());
+        cursor = null;
+        if (response.getBody() instanceof Map<?, ?> body) {
+          for (Object listing : (List<?>) body.get("listings")) {
+            results.add(((FoodListing) listing).getListingId());
+          }
+          cursor = (String) body.get("nextCursor");
+        }
+      } while (cursor != null);
+    }
+    return results;
+  }
+
+  @Test
+  public void getNearbyListingsSeesFulfilledRequestTest() {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    assert client != null;
+    AccountProfile providerAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.PROVIDER, "1234567890", "p").getBody();
+    FoodListing listing1 = saveListing1(client, providerAccount);
+
+    // The first search is cached, and fulfilling a request for the listing invalidates it
+    foodListingController.getNearbyListings(client.getClientId(), 34.060f, -118.250f, 10,
+        ListingFilter.NONE, null, null);
+    foodListingController.fulfillRequest(client.getClientId(), listing1.getListingId(), 5, null);
+
+    ResponseEntity<?> response = foodListingController.getNearbyListings(
+        client.getClientId(), 34.060f, -118.250f, 10, ListingFilter.NONE, null, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    @SuppressWarnings("unchecked") // suppress warning for unchecked cast...
+    List<FoodListing> listings = (List<FoodListing>) response.getBody();
+    assert listings != null;
+    assertEquals(20, listings.get(0).getQuantityListed());
+  }
+
+  @Test
+  public void fulfillRequestRecordsDonationTest() {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    assert client != null;
+    AccountProfile providerAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.PROVIDER, "1234567890", "p").getBody();
+    AccountProfile recipientAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.RECIPIENT, "1234567890", "r").getBody();
+    FoodListing listing1 = saveListing1(client, providerAccount);
+    FoodRequest request = foodRequestRepository.save(
+        new FoodRequest(client, recipientAccount, listing1, 5));
+
+    assertEquals(HttpStatus.OK, foodListingController.fulfillRequest(client.getClientId(),
+        listing1.getListingId(), 5, request.getRequestId()).getStatusCode());
+    // A request for another listing is not picked up from this one
+    assertEquals(HttpStatus.NOT_FOUND, foodListingController.fulfillRequest(client.getClientId(),
+        listing1.getListingId() + 1, 5, request.getRequestId()).getStatusCode());
+
+    // The donation is queued until its batch is written
+    assertEquals(1, donationWriter.pending());
+    assertEquals(1, donationWriter.flush());
+    ResponseEntity<?> response = donationController.getDonations(
+        client.getClientId(), providerAccount.getAccountId(), listing1.getListingId(), null,
+        null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    @SuppressWarnings("unchecked")
+    List<Map<String, Object>> donations = (List<Map<String, Object>>) response.getBody();
+    assert donations != null;
+    assertEquals(1, donations.size());
+    assertEquals(listing1.getListingId(), donations.get(0).get("listing_id"));
+    assertEquals(request.getRequestId(), donations.get(0).get("request_id"));
+    assertEquals(5, donations.get(0).get("quantity_picked_up"));
+
+    // The only page of the account's donations
+    response = donationController.getDonations(client.getClientId(),
+        providerAccount.getAccountId(), null, 10, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    @SuppressWarnings("unchecked")
+    Map<String, Object> page = (Map<String, Object>) response.getBody();
+    assert page != null;
+    assertEquals(donations, page.get("donations"));
+    assertNull(page.get("nextAfterId"));
+  }
+
+  @Test
+  public void listingIdsAreAssignedBeforeInsertTest() {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    assert client != null;
+    AccountProfile providerAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.PROVIDER, "1234567890", "p").getBody();
+
+    // IDs come from a pooled sequence, so saving does not need to insert right away, and the
+    // inserts can be batched when the transaction is flushed
+    List<FoodListing> listings = foodListingRepository.saveAll(List.of(
+        new FoodListing(client, providerAccount, "snack", 25, LocalDateTime.now(), 34.05f, -118.2f),
+        new FoodListing(client, providerAccount, "rice", 5, LocalDateTime.now(), 34.05f, -118.2f)));
+    assertEquals(listings.get(0).getListingId() + 1, listings.get(1).getListingId());
+    String count = "SELECT COUNT(*) FROM food_listing WHERE client_id = ?";
+    assertEquals(0, jdbcTemplate.queryForObject(count, Integer.class, client.getClientId()));
+    foodListingRepository.flush();
+    assertEquals(2, jdbcTemplate.queryForObject(count, Integer.class, client.getClientId()));
+  }
+
+  @Test
+  public void createFoodListingsStreamsBatchesTest() throws IOException {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    assert client != null;
+    AccountProfile providerAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.PROVIDER, "1234567890", "p").getBody();
+    assert providerAccount != null;
+
+    // More listings than fit in one batch
+    StringBuilder body = new StringBuilder();
+    for (int i = 1; i <= 1200; i++) {
+      body.append("{\"foodType\": \"snack\", \"quantityListed\": ").append(i)
+          .append(", \"latitude\": 34.052, \"longitude\": -118.243}\n");
+    }
+    ResponseEntity<?> response = foodListingController.createFoodListings(client.getClientId(),
+        providerAccount.getAccountId(),
+        new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals(HttpStatus.CREATED, response.getStatusCode());
+    assertEquals(1200, ((Map<?, ?>) Objects.requireNonNull(response.getBody())).get("created"));
+    String count = "SELECT COUNT(*) FROM food_listing WHERE client_id = ?";
+    assertEquals(1200, jdbcTemplate.queryForObject(count, Integer.class, client.getClientId()));
+    // The new listings show up in searches
+    assertEquals(HttpStatus.OK, foodListingController.getNearbyListings(client.getClientId(),
+        34.052f, -118.243f, 1, ListingFilter.NONE, null, null).getStatusCode());
+  }
+
+  @Test
+  public void createFoodRequestsTest() {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    assert client != null;
+    AccountProfile providerAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.PROVIDER, "1234567890", "p").getBody();
+    AccountProfile recipientAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.RECIPIENT, "1234567890", "r").getBody();
+    assert recipientAccount != null;
+    FoodListing listing1 = saveListing1(client, providerAccount);
+    FoodListing listing2 = saveListing2(client, providerAccount);
+
+    ResponseEntity<?> response = foodRequestController.createFoodRequests(client.getClientId(),
+        recipientAccount.getAccountId(), List.of(new RequestItem(listing1.getListingId(), 2),
+            new RequestItem(listing2.getListingId(), 4),
+            new RequestItem(listing1.getListingId(), 1)));
+    assertEquals(HttpStatus.CREATED, response.getStatusCode());
+    assertEquals(3, foodRequestRepository.findViewsByClientAndAccount(client, recipientAccount, 0,
+        Pageable.unpaged()).getNumberOfElements());
+
+    // A listing of another client is not found, and none of the requests is created
+    ClientProfile otherClient = clientProfileController.createClientProfile().getBody();
+    FoodListing otherListing = saveListing1(otherClient, providerAccount);
+    response = foodRequestController.createFoodRequests(client.getClientId(),
+        recipientAccount.getAccountId(), List.of(new RequestItem(listing1.getListingId(), 2),
+            new RequestItem(otherListing.getListingId(), 1)));
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    assertEquals(3, foodRequestRepository.findViewsByClientAndAccount(client, recipientAccount, 0,
+        Pageable.unpaged()).getNumberOfElements());
+  }
+
+  @Test
+  public void fulfillRequestNeverOversellsTest() {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    assert client != null;
+    AccountProfile providerAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.PROVIDER, "1234567890", "p").getBody();
+    FoodListing listing1 = saveListing1(client, providerAccount);
+
+    // 25 are listed, so only the first of two requests for 15 can be satisfied
+    assertEquals(HttpStatus.OK, foodListingController.fulfillRequest(
+        client.getClientId(), listing1.getListingId(), 15, null).getStatusCode());
+    assertEquals(HttpStatus.BAD_REQUEST, foodListingController.fulfillRequest(
+        client.getClientId(), listing1.getListingId(), 15, null).getStatusCode());
+    assertEquals(0, foodListingRepository.decrementQuantityListed(
+        client, listing1.getListingId(), 11));
+    assertEquals(1, foodListingRepository.decrementQuantityListed(
+        client, listing1.getListingId(), 10));
+    assertEquals(0, foodListingRepository.findByClientAndListingId(
+        client, listing1.getListingId()).orElseThrow().getQuantityListed());
+  }
+
+  @Test
+  public void staleListingUpdateConflictsTest() {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    assert client != null;
+    AccountProfile providerAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.PROVIDER, "1234567890", "p").getBody();
+    FoodListing stale = foodListingRepository.saveAndFlush(new FoodListing(client,
+        providerAccount, "snack", 25, LocalDateTime.of(2024, 10, 6, 11, 0), 34.052f, -118.243f));
+
+    // Fulfilling a request updates the listing after `stale` was read
+    foodListingController.fulfillRequest(client.getClientId(), stale.getListingId(), 5, null);
+    stale.setQuantityListed(40);
+    assertThrows(OptimisticLockingFailureException.class,
+        () -> foodListingRepository.saveAndFlush(stale));
+  }
+
+  @Test
+  public void fulfillRequestsPerItemTest() {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    assert client != null;
+    AccountProfile providerAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.PROVIDER, "1234567890", "p").getBody();
+    FoodListing listing1 = saveListing1(client, providerAccount);
+    FoodListing listing2 = saveListing2(client, providerAccount);
+    int missingListingId = listing2.getListingId() + 1;
+
+    ResponseEntity<?> response = foodListingController.fulfillRequests(client.getClientId(),
+        false, List.of(new FulfillItem(listing1.getListingId(), 5),
+            new FulfillItem(listing2.getListingId(), 31),
+            new FulfillItem(missingListingId, 1),
+            new FulfillItem(listing1.getListingId(), 20)));
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of(
+        new FulfillResult(listing1.getListingId(), 5, FulfillResult.Status.FULFILLED, 0),
+        new FulfillResult(listing2.getListingId(), 31,
+            FulfillResult.Status.INSUFFICIENT_QUANTITY, 30),
+        new FulfillResult(missingListingId, 1, FulfillResult.Status.NOT_FOUND, null),
+        new FulfillResult(listing1.getListingId(), 20, FulfillResult.Status.FULFILLED, 0)),
+        response.getBody());
+  }
+
+  @Test
+  public void fulfillRequestsAtomicTest() {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    assert client != null;
+    AccountProfile providerAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.PROVIDER, "1234567890", "p").getBody();
+    FoodListing listing1 = saveListing1(client, providerAccount);
+    FoodListing listing2 = saveListing2(client, providerAccount);
+
+    ResponseEntity<?> response = foodListingController.fulfillRequests(client.getClientId(),
+        true, List.of(new FulfillItem(listing1.getListingId(), 5),
+            new FulfillItem(listing2.getListingId(), 30)));
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(20, foodListingRepository.findById(listing1.getListingId())
+        .orElseThrow().getQuantityListed());
+    assertEquals(0, foodListingRepository.findById(listing2.getListingId())
+        .orElseThrow().getQuantityListed());
+  }
+
+  @Test
+  // Entities are only cached once the transaction that created them commits
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public void accountsLoadedFromSecondLevelCacheTest() {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    assert client != null;
+    AccountProfile account = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.RECIPIENT, "1234567890", "r").getBody();
+    assert account != null;
+
+    // Loading the account by ID, as when resolving the account of a request, hits the cache
+    long hits = secondLevelCacheCount("account_profile", "hits");
+    assertEquals("r", accountProfileRepository.findById(account.getAccountId())
+        .orElseThrow().getName());
+    assertEquals(hits + 1, secondLevelCacheCount("account_profile", "hits"));
+  }
+
+  private long secondLevelCacheCount(String region, String count) {
+    Map<?, ?> body = (Map<?, ?>) adminController.getCacheStats().getBody();
+    Map<?, ?> regions = (Map<?, ?>) Objects.requireNonNull(body).get("secondLevelCache");
+    return (Long) ((Map<?, ?>) regions.get(region)).get(count);
+  }
+
+  @Test
+  public void jpaIdempotencyStoreTest() {
+    IdempotencyStore store = new JpaIdempotencyStore(idempotencyRecordRepository, 60, 60);
+    assertEquals(IdempotencyStore.Reservation.RESERVED, store.reserve("POST /create abc"));
+    assertEquals(IdempotencyStore.Reservation.IN_PROGRESS, store.reserve("POST /create abc"));
+
+    byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+    store.complete("POST /create abc",
+        new IdempotencyStore.StoredResponse(201, "application/json", body, "fingerprint"));
+    IdempotencyStore.Reservation replay = store.reserve("POST /create abc");
+    assertEquals(IdempotencyStore.Reservation.State.COMPLETED, replay.state());
+    assertEquals(201, replay.response().status());
+    assertArrayEquals(body, replay.response().body());
+
+    store.release("POST /create abc");
+    assertEquals(IdempotencyStore.Reservation.RESERVED, store.reserve("POST /create abc"));
+  }
+
+  @Test
+  public void jpaIdempotencyStoreExpiredLeaseTest() {
+    // Every reservation has expired as soon as it is made
+    IdempotencyStore store = new JpaIdempotencyStore(idempotencyRecordRepository, 60, 0);
+    assertEquals(IdempotencyStore.Reservation.RESERVED, store.reserve("POST /create abc"));
+    // The first request never completed, so a retry takes the key over
+    assertEquals(IdempotencyStore.Reservation.RESERVED, store.reserve("POST /create abc"));
+    // Requests still running renew their lease
+    assertEquals(1, idempotencyRecordRepository.renewReservation("POST /create abc",
+        LocalDateTime.now()));
+
+    store.complete("POST /create abc", new IdempotencyStore.StoredResponse(201,
+        "application/json", "{}".getBytes(StandardCharsets.UTF_8), "fingerprint"));
+    // Completed keys are not renewed
+    assertEquals(0, idempotencyRecordRepository.renewReservation("POST /create abc",
+        LocalDateTime.now()));
+    // Completed keys are kept for their whole TTL
+    assertEquals(IdempotencyStore.Reservation.State.COMPLETED,
+        store.reserve("POST /create abc").state());
+  }
+
+  @Test
+  public void listingFiltersAppliedByRepositoryTest() {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    assert client != null;
+    AccountProfile providerAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.PROVIDER, "1234567890", "p").getBody();
+    FoodListing listing1 = saveListing1(client, providerAccount);
+    FoodListing listing2 = saveListing2(client, providerAccount);
+    FoodListing depleted = foodListingRepository.save(new FoodListing(client, providerAccount,
+        "snack", 0, LocalDateTime.of(2024, 10, 6, 12, 0), 34.053f, -118.244f));
+
+    assertEquals(List.of(view(listing1), view(depleted)),
+        foodListingRepository.findViewsByClientMatching(client,
+            new ListingFilter("snack", null, null, null, null), 0, Pageable.unpaged())
+            .getContent());
+    assertEquals(List.of(view(listing1)),
+        foodListingRepository.findViewsByClientMatching(client,
+            new ListingFilter("snack", null, true, null, null), 0, Pageable.unpaged())
+            .getContent());
+    assertEquals(List.of(view(listing2)),
+        foodListingRepository.findViewsByClientMatching(client,
+            new ListingFilter(null, 26, null, null, null), 0, Pageable.unpaged())
+            .getContent());
+
+    ResponseEntity<?> response = foodListingController.getNearbyListings(
+        client.getClientId(), 34.060f, -118.250f, 10,
+        new ListingFilter(null, null, true, null, null), null, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of(listing1), response.getBody());
+  }
+
+  @Test
+  public void getFoodListingsKeysetPagesTest() {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    assert client != null;
+    AccountProfile providerAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.PROVIDER, "1234567890", "p").getBody();
+    assert providerAccount != null;
+    List<ListingView> listings = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      listings.add(view(saveListing1(client, providerAccount)));
+    }
+
+    // Pages of 2 listings, in order of ID, until the last page has no next one
+    List<ListingView> paged = new ArrayList<>();
+    Integer afterId = null;
+    int pages = 0;
+    do {
+      ResponseEntity<?> response = foodListingController.getFoodListings(client.getClientId(),
+          ListingFilter.NONE, 2, afterId);
+      assertEquals(HttpStatus.OK, response.getStatusCode());
+      @SuppressWarnings("unchecked")
+      Map<String, Object> page = (Map<String, Object>) response.getBody();
+      assert page != null;
+      paged.addAll((List<ListingView>) page.get("listings"));
+      afterId = (Integer) page.get("nextAfterId");
+      pages++;
+    } while (afterId != null);
+    assertEquals(3, pages);
+    assertEquals(listings, paged);
+
+    // The same pages under the account
+    ResponseEntity<?> response = foodListingController.getFoodListingsUnderAccount(
+        client.getClientId(), providerAccount.getAccountId(), 3,
+        listings.get(0).listingId());
+    @SuppressWarnings("unchecked")
+    Map<String, Object> page = (Map<String, Object>) response.getBody();
+    assert page != null;
+    assertEquals(listings.subList(1, 4), page.get("listings"));
+    assertEquals(listings.get(3).listingId(), page.get("nextAfterId"));
+
+    // A page after the last listing is empty
+    response = foodListingController.getFoodListings(client.getClientId(), ListingFilter.NONE,
+        null, listings.get(4).listingId());
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of(),
+        ((Map<?, ?>) Objects.requireNonNull(response.getBody())).get("listings"));
+
+    assertEquals(HttpStatus.BAD_REQUEST, foodListingController.getFoodListings(
+        client.getClientId(), ListingFilter.NONE, 1001, null).getStatusCode());
+  }
+
+  @Test
+  public void getFoodListingsPickupWindowTest() {
+    ClientProfile client = clientProfileController.createClientProfile().getBody();
+    assert client != null;
+    AccountProfile providerAccount = accountProfileController.createAccountProfile(
+        client.getClientId(), AccountProfile.AccountType.PROVIDER, "1234567890", "p").getBody();
+    // Listing 1 can be picked up from 11:00 on 10/6, listing 2 from 16:30 on 10/7
+    FoodListing listing1 = saveListing1(client, providerAccount);
+    final FoodListing listing2 = saveListing2(client, providerAccount);
+
+    ResponseEntity<?> response = foodListingController.getFoodListings(client.getClientId(),
+        new ListingFilter(null, null, null, LocalDateTime.of(2024, 10, 6, 0, 0),
+            LocalDateTime.of(2024, 10, 6, 23, 59)), null, null);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of(view(listing1)), response.getBody());
+
+    // Both ends of the window are inclusive
+    ResponseEntity<?> response2 = foodListingController.getFoodListings(client.getClientId(),
+        new ListingFilter(null, null, null, LocalDateTime.of(2024, 10, 7, 16, 30), null), null,
+        null);
+    assertEquals(HttpStatus.OK, response2.getStatusCode());
+    assertEquals(List.of(view(listing2)), response2.getBody());
+
+    ResponseEntity<?> response3 = foodListingController.getNearbyListings(
+        client.getClientId(), 34.060f, -118.250f, 10,
+        new ListingFilter(null, null, null, null, LocalDateTime.of(2024, 10, 6, 10, 59)),
+        null, null);
+    assertEquals(HttpStatus.NOT_FOUND, response3.getStatusCode());
+  }
 }
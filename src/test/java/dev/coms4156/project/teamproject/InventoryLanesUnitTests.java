@@ -0,0 +1,165 @@
+package dev.coms4156.project.teamproject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import dev.coms4156.project.teamproject.cache.NearbySearchCache;
+import dev.coms4156.project.teamproject.concurrency.InventoryLanes;
+import dev.coms4156.project.teamproject.index.ListingSpatialIndex;
+import dev.coms4156.project.teamproject.model.ClientProfile;
+import dev.coms4156.project.teamproject.model.FoodListing;
+import dev.coms4156.project.teamproject.repository.FoodListingRepository;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the InventoryLanes class.
+ */
+public class InventoryLanesUnitTests {
+
+  private FoodListingRepository foodListingRepository;
+  private InventoryLanes lanes;
+  private ClientProfile client;
+
+  /**
+   * Starts two lanes over a mocked repository before each test.
+   */
+  @BeforeEach
+  public void setUp() {
+    foodListingRepository = mock(FoodListingRepository.class);
+    lanes = new InventoryLanes(foodListingRepository,
+        new ListingSpatialIndex(foodListingRepository, false), new NearbySearchCache(1000, 60),
+        true, 2, 256, 1000);
+    client = new ClientProfile();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    lanes.close();
+  }
+
+  private FoodListing listing(int quantityListed) {
+    return new FoodListing(client, null, "snack", quantityListed,
+        LocalDateTime.of(2024, 10, 6, 11, 0), 34.052f, -118.243f);
+  }
+
+  @Test
+  public void disabledTest() {
+    InventoryLanes disabled = new InventoryLanes(foodListingRepository,
+        new ListingSpatialIndex(foodListingRepository, false), new NearbySearchCache(1000, 60),
+        false, 2, 256, 1000);
+    assertFalse(disabled.isEnabled());
+    assertFalse(disabled.routesToLane(1));
+    assertFalse(disabled.routesToLane(1));
+  }
+
+  @Test
+  public void routesContendedListingsToLaneTest() {
+    assertFalse(lanes.routesToLane(1));
+    // A second fulfill while the first is in progress makes the listing contended
+    assertTrue(lanes.routesToLane(1));
+    lanes.finishDirect(1);
+    assertTrue(lanes.routesToLane(1));
+
+    // Other listings and listings whose fulfills do not overlap stay direct
+    assertFalse(lanes.routesToLane(2));
+    lanes.finishDirect(2);
+    assertFalse(lanes.routesToLane(2));
+    lanes.finishDirect(2);
+  }
+
+  @Test
+  public void concurrentFulfillsNeverOversellTest() throws Exception {
+    when(foodListingRepository.findByClientAndListingId(any(), eq(1)))
+        .thenReturn(Optional.of(listing(10)));
+    AtomicInteger decremented = new AtomicInteger();
+    when(foodListingRepository.decrementQuantityListed(any(), eq(1), anyInt()))
+        .thenAnswer(invocation -> {
+          decremented.addAndGet(invocation.getArgument(2));
+          return 1;
+        });
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<InventoryLanes.Outcome>> outcomes = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      outcomes.add(executor.submit(() -> lanes.fulfill(client, 1, 3)));
+    }
+    int fulfilled = 0;
+    for (Future<InventoryLanes.Outcome> outcome : outcomes) {
+      if (outcome.get().status() == InventoryLanes.Status.FULFILLED) {
+        fulfilled++;
+      }
+    }
+    executor.shutdown();
+
+    // Only 3 of the 8 requests for 3 fit in 10, and the decrements only add up to what they took
+    assertEquals(3, fulfilled);
+    assertEquals(9, decremented.get());
+    // Decrements are committed in batches, so there are at most as many as fulfills
+    verify(foodListingRepository, atMost(3)).decrementQuantityListed(any(), eq(1), anyInt());
+  }
+
+  @Test
+  public void missingListingTest() {
+    assertEquals(InventoryLanes.Status.NOT_FOUND, lanes.fulfill(client, 1, 1).status());
+  }
+
+  @Test
+  public void failedCommitRereadsQuantityTest() {
+    // Another writer took 8 of the 10 after the lane read the listing
+    when(foodListingRepository.findByClientAndListingId(any(), eq(1)))
+        .thenReturn(Optional.of(listing(10)), Optional.of(listing(2)));
+    when(foodListingRepository.decrementQuantityListed(any(), eq(1), anyInt())).thenReturn(0);
+
+    assertEquals(new InventoryLanes.Outcome(InventoryLanes.Status.INSUFFICIENT_QUANTITY, 2),
+        lanes.fulfill(client, 1, 5));
+  }
+
+  @Test
+  public void rejectionRereadsQuantityTest() {
+    when(foodListingRepository.findByClientAndListingId(any(), eq(1)))
+        .thenReturn(Optional.of(listing(10)), Optional.of(listing(20)));
+    when(foodListingRepository.decrementQuantityListed(any(), eq(1), anyInt())).thenReturn(1);
+
+    assertEquals(new InventoryLanes.Outcome(InventoryLanes.Status.FULFILLED, 0),
+        lanes.fulfill(client, 1, 10));
+    // The provider raised the quantity to 20 since, so the lane reads it before rejecting
+    assertEquals(new InventoryLanes.Outcome(InventoryLanes.Status.FULFILLED, 15),
+        lanes.fulfill(client, 1, 5));
+  }
+
+  @Test
+  public void forgetUnheldListingTest() {
+    // Listing 3 was never fulfilled, so the lane does not hold it
+    lanes.forget(3);
+
+    // The next pass of its lane drains it anyway
+    lanes.fulfill(client, 1, 1);
+    assertEquals(0, lanes.pendingForgets());
+  }
+
+  @Test
+  public void invalidConfigurationTest() {
+    assertThrows(IllegalArgumentException.class, () -> new InventoryLanes(foodListingRepository,
+        new ListingSpatialIndex(foodListingRepository, false), new NearbySearchCache(1000, 60),
+        true, 0, 256, 1000));
+  }
+}
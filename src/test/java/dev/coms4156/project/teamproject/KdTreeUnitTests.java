@@ -0,0 +1,193 @@
+package dev.coms4156.project.teamproject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dev.coms4156.project.teamproject.index.KdTree;
+import dev.coms4156.project.teamproject.model.Location;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the KdTree class.
+ */
+public class KdTreeUnitTests {
+
+  private KdTree tree;
+
+  @BeforeEach
+  public void setUp() {
+    tree = new KdTree();
+  }
+
+  @Test
+  public void findInBoxTest() {
+    tree.put(1, 34.05f, -118.24f);
+    tree.put(2, 40.71f, -74.01f);
+    tree.put(3, 34.10f, -118.30f);
+
+    assertEquals(Set.of(1, 3), Set.copyOf(tree.findInBox(34f, 34.2f, -118.4f, -118.2f)));
+    assertEquals(List.of(2), tree.findInBox(40.71f, 40.71f, -74.01f, -74.01f));
+    assertTrue(tree.findInBox(0f, 1f, 0f, 1f).isEmpty());
+  }
+
+  @Test
+  public void putMovesExistingTest() {
+    tree.put(1, 34.05f, -118.24f);
+    tree.put(1, 40.71f, -74.01f);
+
+    assertEquals(1, tree.size());
+    assertTrue(tree.findInBox(34f, 34.2f, -118.4f, -118.2f).isEmpty());
+    assertEquals(List.of(1), tree.findInBox(40f, 41f, -75f, -74f));
+  }
+
+  @Test
+  public void removeTest() {
+    tree.put(1, 34.05f, -118.24f);
+    tree.put(2, 34.06f, -118.25f);
+
+    assertTrue(tree.remove(1));
+    assertFalse(tree.remove(1));
+    assertFalse(tree.contains(1));
+    assertEquals(List.of(2), tree.findInBox(34f, 34.2f, -118.4f, -118.2f));
+
+    assertTrue(tree.remove(2));
+    assertEquals(0, tree.size());
+    assertTrue(tree.findInBox(-90f, 90f, -180f, 180f).isEmpty());
+  }
+
+  @Test
+  public void matchesLinearScanTest() {
+    Random random = new Random(4156);
+    float[] latitudes = new float[3000];
+    float[] longitudes = new float[3000];
+    for (int id = 0; id < latitudes.length; id++) {
+      // Sorted inserts would make an unbalanced tree without rebalancing
+      latitudes[id] = 34 + id * 0.0001f;
+      longitudes[id] = (float) (-118.5 + random.nextDouble());
+      tree.put(id, latitudes[id], longitudes[id]);
+    }
+    for (int id = 0; id < latitudes.length; id += 3) {
+      tree.remove(id);
+    }
+    for (int id = 1; id < latitudes.length; id += 3) {
+      latitudes[id] = (float) (34 + random.nextDouble() * 0.3);
+      tree.put(id, latitudes[id], longitudes[id]);
+    }
+
+    for (int query = 0; query < 50; query++) {
+      float minLat = (float) (34 + random.nextDouble() * 0.3);
+      float maxLat = minLat + (float) (random.nextDouble() * 0.1);
+      float minLong = (float) (-118.5 + random.nextDouble());
+      float maxLong = minLong + (float) (random.nextDouble() * 0.2);
+
+      Set<Integer> expected = new HashSet<>();
+      for (int id = 0; id < latitudes.length; id++) {
+        if (id % 3 != 0 && latitudes[id] >= minLat && latitudes[id] <= maxLat
+            && longitudes[id] >= minLong && longitudes[id] <= maxLong) {
+          expected.add(id);
+        }
+      }
+      assertEquals(expected, Set.copyOf(tree.findInBox(minLat, maxLat, minLong, maxLong)));
+    }
+    assertEquals(2000, tree.size());
+  }
+
+  @Test
+  public void findNearestPagesMatchSortTest() {
+    Random random = new Random(4156);
+    List<KdTree.Neighbor> expected = new ArrayList<>();
+    Location query = new Location(34.05f, -118.24f);
+    for (int id = 0; id < 2000; id++) {
+      float latitude = (float) (33.5 + random.nextDouble());
+      // Some listings share a location, so their distances tie
+      float longitude = id % 10 == 0 ? -118f : (float) (-118.8 + random.nextDouble());
+      tree.put(id, latitude, longitude);
+      double distance = query.distance(new Location(latitude, longitude));
+      if (distance <= 40) {
+        expected.add(new KdTree.Neighbor(id, distance));
+      }
+    }
+    expected.sort(Comparator.comparingDouble(KdTree.Neighbor::distance)
+        .thenComparingInt(KdTree.Neighbor::id));
+
+    // Paging through every location within 40 km, 7 at a time, yields them all in order
+    List<Integer> paged = new ArrayList<>();
+    double afterDistance = -1;
+    int afterId = 0;
+    while (true) {
+      List<KdTree.Neighbor> page = tree.findNearest(34.05f, -118.24f, 7, 40, afterDistance,
+          afterId);
+      for (KdTree.Neighbor neighbor : page) {
+        paged.add(neighbor.id());
+      }
+      if (page.size() < 7) {
+        break;
+      }
+      afterDistance = page.get(6).distance();
+      afterId = page.get(6).id();
+    }
+    List<Integer> expectedIds = new ArrayList<>();
+    for (KdTree.Neighbor neighbor : expected) {
+      expectedIds.add(neighbor.id());
+    }
+    assertEquals(expectedIds, paged);
+  }
+
+  @Test
+  public void colocatedLocationsTest() {
+    // A bulk upload can put thousands of listings at one pick-up point
+    for (int id = 0; id < 50000; id++) {
+      tree.put(id, 40.7f, -73.9f);
+    }
+    tree.put(50000, 40.8f, -73.9f);
+    for (int id = 0; id < 50000; id += 2) {
+      tree.remove(id);
+    }
+
+    assertEquals(25000, tree.findInBox(40.7f, 40.7f, -73.9f, -73.9f).size());
+    assertEquals(25001, tree.findInBox(40f, 41f, -74f, -73f).size());
+
+    // Paging through the ties at distance 0 yields every live listing by ID, then the far one
+    List<Integer> paged = new ArrayList<>();
+    double afterDistance = -1;
+    int afterId = 0;
+    while (true) {
+      List<KdTree.Neighbor> page = tree.findNearest(40.7f, -73.9f, 1000, 20, afterDistance,
+          afterId);
+      for (KdTree.Neighbor neighbor : page) {
+        paged.add(neighbor.id());
+      }
+      if (page.size() < 1000) {
+        break;
+      }
+      afterDistance = page.get(999).distance();
+      afterId = page.get(999).id();
+    }
+    assertEquals(25001, paged.size());
+    for (int i = 0; i < 25000; i++) {
+      assertEquals(2 * i + 1, paged.get(i));
+    }
+    assertEquals(50000, paged.get(25000));
+  }
+
+  @Test
+  public void findNearestAcrossAntimeridianTest() {
+    tree.put(1, 0f, 179.9f);
+    tree.put(2, 0f, -179.95f);
+    tree.put(3, 0f, 170f);
+    tree.remove(3);
+
+    List<KdTree.Neighbor> nearest = tree.findNearest(0f, -179.99f, 5, 100, -1, 0);
+    assertEquals(2, nearest.size());
+    assertEquals(2, nearest.get(0).id());
+    assertEquals(1, nearest.get(1).id());
+  }
+}
@@ -0,0 +1,33 @@
+package dev.coms4156.project.teamproject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dev.coms4156.project.teamproject.model.ListingFilter;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the ListingFilter class.
+ */
+public class ListingFilterUnitTests {
+
+  @Test
+  public void effectiveMinQuantityTest() {
+    assertNull(ListingFilter.NONE.effectiveMinQuantity());
+    assertEquals(5, new ListingFilter(null, 5, null, null, null).effectiveMinQuantity());
+    assertEquals(1, new ListingFilter(null, null, true, null, null).effectiveMinQuantity());
+    assertEquals(1, new ListingFilter(null, 0, true, null, null).effectiveMinQuantity());
+    assertEquals(5, new ListingFilter(null, 5, true, null, null).effectiveMinQuantity());
+    assertNull(new ListingFilter(null, null, false, null, null).effectiveMinQuantity());
+  }
+
+  @Test
+  public void isEmptyTest() {
+    assertTrue(ListingFilter.NONE.isEmpty());
+    assertTrue(new ListingFilter(null, null, false, null, null).isEmpty());
+    assertFalse(new ListingFilter("snack", null, null, null, null).isEmpty());
+    assertFalse(new ListingFilter(null, null, true, null, null).isEmpty());
+  }
+}
@@ -0,0 +1,37 @@
+package dev.coms4156.project.teamproject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dev.coms4156.project.teamproject.model.NearbyCursor;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the NearbyCursor class.
+ */
+public class NearbyCursorUnitTests {
+
+  @Test
+  public void encodeDecodeTest() {
+    NearbyCursor cursor = new NearbyCursor(3.141592653589793, 42);
+    assertEquals(Optional.of(cursor), NearbyCursor.decode(cursor.encode()));
+  }
+
+  @Test
+  public void decodeInvalidTest() {
+    assertTrue(NearbyCursor.decode("not a cursor").isEmpty());
+    assertTrue(NearbyCursor.decode("").isEmpty());
+    assertTrue(NearbyCursor.decode(new NearbyCursor(-1, 42).encode()).isEmpty());
+  }
+
+  @Test
+  public void isBeforeTest() {
+    NearbyCursor cursor = new NearbyCursor(2.5, 10);
+    assertTrue(cursor.isBefore(2.6, 1));
+    assertTrue(cursor.isBefore(2.5, 11));
+    assertFalse(cursor.isBefore(2.5, 10));
+    assertFalse(cursor.isBefore(2.4, 11));
+  }
+}
@@ -0,0 +1,126 @@
+package dev.coms4156.project.teamproject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dev.coms4156.project.teamproject.cache.NearbySearchCache;
+import dev.coms4156.project.teamproject.model.ClientProfile;
+import dev.coms4156.project.teamproject.model.FoodListing;
+import dev.coms4156.project.teamproject.model.ListingFilter;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the NearbySearchCache class.
+ */
+public class NearbySearchCacheUnitTests {
+
+  private NearbySearchCache cache;
+  private ClientProfile client;
+  private ClientProfile otherClient;
+  private int loads;
+
+  /**
+   * Creates an empty cache before each test.
+   */
+  @BeforeEach
+  public void setUp() {
+    cache = new NearbySearchCache(1000, 60);
+    client = new ClientProfile();
+    otherClient = new ClientProfile() {
+      @Override
+      public int getClientId() {
+        return 1;
+      }
+    };
+    loads = 0;
+  }
+
+  private List<FoodListing> load(double latitude, double longitude, double radiusKm) {
+    loads++;
+    return List.of(new FoodListing());
+  }
+
+  @Test
+  public void coversTest() {
+    assertTrue(cache.covers(34.05f, 10));
+    assertFalse(cache.covers(34.05f, NearbySearchCache.MAX_RADIUS_KM + 1));
+    assertFalse(cache.covers(120f, 10));
+  }
+
+  @Test
+  public void sameCellAndBucketHitTest() {
+    cache.getCandidates(client, 34.051f, -118.241f, 10, ListingFilter.NONE, this::load);
+    // Same grid cell, and 12 km rounds up to the same radius bucket as 10 km
+    cache.getCandidates(client, 34.052f, -118.242f, 12, ListingFilter.NONE, this::load);
+    assertEquals(1, loads);
+
+    // Different radius bucket
+    cache.getCandidates(client, 34.052f, -118.242f, 5, ListingFilter.NONE, this::load);
+    assertEquals(2, loads);
+  }
+
+  @Test
+  public void loaderCoversWholeCellTest() {
+    cache.getCandidates(client, 34.051f, -118.241f, 10, ListingFilter.NONE,
+        (latitude, longitude, radiusKm) -> {
+          // The loaded radius covers the bucket from any point in the cell
+          assertTrue(radiusKm > 16);
+          return List.of();
+        });
+  }
+
+  @Test
+  public void invalidateNearbyWriteTest() {
+    cache.getCandidates(client, 34.051f, -118.241f, 10, ListingFilter.NONE, this::load);
+    cache.invalidate(client, 34.100f, -118.300f);
+    cache.getCandidates(client, 34.051f, -118.241f, 10, ListingFilter.NONE, this::load);
+    assertEquals(2, loads);
+  }
+
+  @Test
+  public void invalidateFarWriteTest() {
+    cache.getCandidates(client, 34.051f, -118.241f, 10, ListingFilter.NONE, this::load);
+    // Outside the area of the cached entry, or in a different client
+    cache.invalidate(client, 40.713f, -74.006f);
+    cache.invalidate(otherClient, 34.051f, -118.241f);
+    cache.getCandidates(client, 34.051f, -118.241f, 10, ListingFilter.NONE, this::load);
+    assertEquals(1, loads);
+  }
+
+  @Test
+  public void nearbyWriteDuringLoadTest() {
+    cache.getCandidates(client, 34.051f, -118.241f, 10, ListingFilter.NONE,
+        (latitude, longitude, radiusKm) -> {
+          // The load may have read the listings before the write
+          cache.invalidate(client, 34.100f, -118.300f);
+          return load(latitude, longitude, radiusKm);
+        });
+    cache.getCandidates(client, 34.051f, -118.241f, 10, ListingFilter.NONE, this::load);
+    assertEquals(2, loads);
+  }
+
+  @Test
+  public void farWriteDuringLoadTest() {
+    cache.getCandidates(client, 34.051f, -118.241f, 10, ListingFilter.NONE,
+        (latitude, longitude, radiusKm) -> {
+          cache.invalidate(client, 40.713f, -74.006f);
+          cache.invalidate(otherClient, 34.051f, -118.241f);
+          return load(latitude, longitude, radiusKm);
+        });
+    cache.getCandidates(client, 34.051f, -118.241f, 10, ListingFilter.NONE, this::load);
+    assertEquals(1, loads);
+  }
+
+  @Test
+  public void invalidateClientTest() {
+    cache.getCandidates(client, 34.051f, -118.241f, 10, ListingFilter.NONE, this::load);
+    cache.getCandidates(otherClient, 34.051f, -118.241f, 10, ListingFilter.NONE, this::load);
+    cache.invalidate(client);
+    cache.getCandidates(client, 34.051f, -118.241f, 10, ListingFilter.NONE, this::load);
+    cache.getCandidates(otherClient, 34.051f, -118.241f, 10, ListingFilter.NONE, this::load);
+    assertEquals(3, loads);
+  }
+}
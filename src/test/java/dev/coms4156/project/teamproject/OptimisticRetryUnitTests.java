@@ -0,0 +1,81 @@
+package dev.coms4156.project.teamproject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import dev.coms4156.project.teamproject.concurrency.OptimisticRetry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ * Unit tests for OptimisticRetry.
+ */
+public class OptimisticRetryUnitTests {
+
+  private EntityManager entityManager;
+  private OptimisticRetry optimisticRetry;
+  private int attempts;
+
+  /**
+   * Creates a retrier making up to three attempts with a short backoff.
+   */
+  @BeforeEach
+  public void setUp() {
+    entityManager = mock(EntityManager.class);
+    optimisticRetry = new OptimisticRetry(entityManager, 3, 1);
+    attempts = 0;
+  }
+
+  @Test
+  public void runWithoutConflictTest() {
+    assertEquals("done", optimisticRetry.run(() -> {
+      attempts++;
+      return "done";
+    }));
+    assertEquals(1, attempts);
+    verify(entityManager, times(0)).clear();
+  }
+
+  @Test
+  public void runRetriesConflictTest() {
+    assertEquals("done", optimisticRetry.run(() -> {
+      attempts++;
+      if (attempts < 3) {
+        throw new OptimisticLockingFailureException("conflict");
+      }
+      return "done";
+    }));
+    assertEquals(3, attempts);
+    // Stale entities are dropped before every retry
+    verify(entityManager, times(2)).clear();
+  }
+
+  @Test
+  public void runGivesUpAfterMaxAttemptsTest() {
+    assertThrows(OptimisticLockingFailureException.class, () -> optimisticRetry.run(() -> {
+      attempts++;
+      throw new OptimisticLockingFailureException("conflict");
+    }));
+    assertEquals(3, attempts);
+  }
+
+  @Test
+  public void runDoesNotRetryOtherFailuresTest() {
+    assertThrows(IllegalStateException.class, () -> optimisticRetry.run(() -> {
+      attempts++;
+      throw new IllegalStateException();
+    }));
+    assertEquals(1, attempts);
+  }
+
+  @Test
+  public void invalidConfigurationTest() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new OptimisticRetry(entityManager, 0, 1));
+  }
+}
@@ -0,0 +1,93 @@
+package dev.coms4156.project.teamproject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import dev.coms4156.project.teamproject.cache.ProfileCache;
+import dev.coms4156.project.teamproject.model.AccountProfile;
+import dev.coms4156.project.teamproject.model.ClientProfile;
+import dev.coms4156.project.teamproject.repository.AccountProfileRepository;
+import dev.coms4156.project.teamproject.repository.ClientProfileRepository;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class contains unit tests for the ProfileCache class, over mocked repositories.
+ */
+public class ProfileCacheUnitTests {
+
+  private ClientProfileRepository clientProfileRepository;
+  private AccountProfileRepository accountProfileRepository;
+  private ProfileCache cache;
+  private ClientProfile client;
+  private AccountProfile account;
+
+  /**
+   * Mocks a client with ID 1 and its account with ID 2, and creates an empty cache before each
+   * test.
+   */
+  @BeforeEach
+  public void setUp() {
+    clientProfileRepository = mock(ClientProfileRepository.class);
+    accountProfileRepository = mock(AccountProfileRepository.class);
+    client = new ClientProfile();
+    account = new AccountProfile(client, AccountProfile.AccountType.PROVIDER, "1234567890", "p");
+    when(clientProfileRepository.findById(1)).thenReturn(Optional.of(client));
+    when(accountProfileRepository.findByClientIdAndAccountId(1, 2))
+        .thenReturn(Optional.of(account));
+    cache = new ProfileCache(clientProfileRepository, accountProfileRepository, 1000, 60);
+  }
+
+  @Test
+  public void findClientTest() {
+    assertSame(client, cache.findClient(1).orElseThrow());
+    assertSame(client, cache.findClient(1).orElseThrow());
+
+    verify(clientProfileRepository, times(1)).findById(1);
+    assertEquals(1, cache.clientStats().hitCount());
+    assertEquals(1, cache.clientStats().missCount());
+  }
+
+  @Test
+  public void findAccountTest() {
+    assertSame(account, cache.findAccount(1, 2).orElseThrow());
+    assertSame(account, cache.findAccount(1, 2).orElseThrow());
+
+    verify(accountProfileRepository, times(1)).findByClientIdAndAccountId(1, 2);
+    assertEquals(1, cache.accountStats().hitCount());
+  }
+
+  @Test
+  public void missingProfilesNotCachedTest() {
+    // The account is not in client 3
+    assertTrue(cache.findAccount(3, 2).isEmpty());
+    assertTrue(cache.findClient(3).isEmpty());
+
+    // Until it is created
+    when(clientProfileRepository.findById(3)).thenReturn(Optional.of(client));
+    assertSame(client, cache.findClient(3).orElseThrow());
+  }
+
+  @Test
+  public void invalidateTest() {
+    cache.findClient(1);
+    cache.findAccount(1, 2);
+
+    cache.invalidateAccount(2);
+    cache.findAccount(1, 2);
+    verify(accountProfileRepository, times(2)).findByClientIdAndAccountId(1, 2);
+
+    // Invalidating a client also drops its accounts
+    cache.invalidateClient(1);
+    cache.findClient(1);
+    cache.findAccount(1, 2);
+    verify(clientProfileRepository, times(2)).findById(1);
+    verify(accountProfileRepository, times(3)).findByClientIdAndAccountId(1, 2);
+  }
+}